@@ -0,0 +1,214 @@
+import bagel.util.Rectangle;
+
+import java.util.Arrays;
+
+/**
+ * Tests one query box against many boxes at once.
+ *
+ * Boxes are packed into primitive arrays of edges, and a query fills a hit bitmask with one bit
+ * per box, in the order the boxes were added. Edges are compared as {@link Rectangle#intersects}
+ * compares them, so boxes that only touch do not hit. Unlike pairwise {@code intersects} calls,
+ * a query reads no objects and allocates nothing, so the JIT keeps the whole loop in registers.
+ *
+ * A slot can be left empty with {@link #addEmpty()}, e.g. for a destroyed monkey, so that bit
+ * indices keep matching the caller's own array.
+ */
+public class AabbKernel {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private double[] left;
+    private double[] right;
+    private double[] top;
+    private double[] bottom;
+    private int count = 0;
+
+    /**
+     * Creates an empty kernel.
+     */
+    public AabbKernel() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Creates an empty kernel sized for a number of boxes.
+     *
+     * @param capacity The number of boxes expected; more can still be added.
+     */
+    public AabbKernel(int capacity) {
+        capacity = Math.max(1, capacity);
+        this.left = new double[capacity];
+        this.right = new double[capacity];
+        this.top = new double[capacity];
+        this.bottom = new double[capacity];
+    }
+
+    /**
+     * Creates a kernel holding every platform's bounding box, in array order.
+     *
+     * @param platforms The platforms to pack.
+     * @return The packed kernel.
+     */
+    public static AabbKernel ofPlatforms(Platform[] platforms) {
+        AabbKernel kernel = new AabbKernel(platforms.length);
+        for (Platform platform : platforms) {
+            kernel.add(platform.getBoundingBox());
+        }
+        return kernel;
+    }
+
+    /**
+     * Removes every box, keeping the storage for reuse.
+     */
+    public void clear() {
+        count = 0;
+    }
+
+    /**
+     * Adds a box after the existing ones.
+     *
+     * @param box The box to add.
+     * @return The box's bit index.
+     */
+    public int add(Rectangle box) {
+        return add(box.left(), box.top(), box.right(), box.bottom());
+    }
+
+    /**
+     * Adds a box given by its edges after the existing ones.
+     *
+     * @return The box's bit index.
+     */
+    public int add(double boxLeft, double boxTop, double boxRight, double boxBottom) {
+        if (count == left.length) {
+            grow(count * 2);
+        }
+        left[count] = boxLeft;
+        top[count] = boxTop;
+        right[count] = boxRight;
+        bottom[count] = boxBottom;
+        return count++;
+    }
+
+    /**
+     * Adds a slot no query can hit.
+     *
+     * @return The slot's bit index.
+     */
+    public int addEmpty() {
+        // Every comparison against NaN is false, so the slot never hits
+        return add(Double.NaN, Double.NaN, Double.NaN, Double.NaN);
+    }
+
+    /**
+     * Creates a bitmask large enough for this kernel's current boxes.
+     *
+     * @return A zeroed mask.
+     */
+    public long[] newMask() {
+        return new long[maskLength(count)];
+    }
+
+    /**
+     * Tests a query box against every box and writes one bit per box into {@code hits}.
+     *
+     * @param query The box to test.
+     * @param hits  The bitmask to fill; must be at least {@link #maskLength(int)} words long.
+     * @return The number of boxes hit.
+     */
+    public int query(Rectangle query, long[] hits) {
+        return query(query.left(), query.top(), query.right(), query.bottom(), hits);
+    }
+
+    /**
+     * Tests a query box given by its edges against every box.
+     *
+     * @return The number of boxes hit.
+     * @see #query(Rectangle, long[])
+     */
+    public int query(double queryLeft, double queryTop, double queryRight, double queryBottom, long[] hits) {
+        Arrays.fill(hits, 0, maskLength(count), 0L);
+
+        // Local copies let the JIT hoist the array loads out of the loop
+        double[] boxLeft = left;
+        double[] boxRight = right;
+        double[] boxTop = top;
+        double[] boxBottom = bottom;
+        int hitCount = 0;
+        for (int i = 0; i < count; i++) {
+            // Most boxes miss on the first edge, so short-circuiting beats a branch-free test
+            if (queryLeft < boxRight[i] && queryRight > boxLeft[i]
+                    && queryTop < boxBottom[i] && queryBottom > boxTop[i]) {
+                hits[i >>> 6] |= 1L << i; // Shifts use the low six bits of i
+                hitCount++;
+            }
+        }
+        return hitCount;
+    }
+
+    /**
+     * Finds the first box a query hits, stopping there instead of testing the rest.
+     * Suits callers that act on the first hit only, such as landing on a platform.
+     *
+     * @param query The box to test.
+     * @param from  The first box index to test.
+     * @return The index of the first box hit at or after {@code from}, or -1 if there is none.
+     */
+    public int firstHit(Rectangle query, int from) {
+        double queryLeft = query.left();
+        double queryTop = query.top();
+        double queryRight = query.right();
+        double queryBottom = query.bottom();
+        for (int i = from; i < count; i++) {
+            if (queryLeft < right[i] && queryRight > left[i]
+                    && queryTop < bottom[i] && queryBottom > top[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the next set bit of a mask.
+     *
+     * @param hits The mask filled by a query.
+     * @param from The first bit index to look at.
+     * @return The index of the next hit at or after {@code from}, or -1 if there is none.
+     */
+    public static int nextHit(long[] hits, int from) {
+        int word = from >>> 6;
+        if (word >= hits.length) {
+            return -1;
+        }
+        long bits = hits[word] & (-1L << (from & 63));
+        while (true) {
+            if (bits != 0) {
+                return (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+            if (++word == hits.length) {
+                return -1;
+            }
+            bits = hits[word];
+        }
+    }
+
+    /**
+     * Gets the number of mask words needed for a number of boxes.
+     *
+     * @param boxCount The number of boxes.
+     * @return The mask length in longs.
+     */
+    public static int maskLength(int boxCount) {
+        return (boxCount + 63) >>> 6;
+    }
+
+    /** Getters */
+    public int getCount() { return count; }
+
+    private void grow(int capacity) {
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        top = Arrays.copyOf(top, capacity);
+        bottom = Arrays.copyOf(bottom, capacity);
+    }
+}
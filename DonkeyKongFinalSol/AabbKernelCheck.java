@@ -0,0 +1,244 @@
+import bagel.*;
+import bagel.util.Rectangle;
+
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Checks that an {@link AabbKernel} hits exactly the platforms that pairwise {@link Rectangle#intersects}
+ * calls hit, and times the two, so the kernel's speed-up can be reproduced.
+ *
+ * Each scene is laid out like the levels' platforms, in rows of tiles across the window, with more
+ * rows stacked on top for the larger scenes. Query boxes about Mario's size are placed from a fixed
+ * seed, at fractional positions so that none only touches a tile. Every query is answered three
+ * ways: pairwise against each platform's {@code getBoundingBox()}, as Mario's platform check did
+ * before the kernel; pairwise against prebuilt rectangles; and with one kernel query. Each way is
+ * warmed up, then timed over several rounds, and the median round is reported along with the bytes
+ * allocated per query. A scene fails if any query's hits differ. The timings and the kernel's
+ * speed-up over the loop it replaced are printed; they are not checked, as they depend on how
+ * loaded the machine is.
+ *
+ * Like {@link BotSmokeRunner}, all runs happen inside the first frame of a bagel window.
+ *
+ * Usage: {@code java AabbKernelCheck [rounds]}
+ */
+public class AabbKernelCheck extends AbstractGame {
+
+    /** Numbers of tiles checked: about a level's platforms, a busy level, and a stress arena */
+    private static final int[] SCENE_SIZES = {32, 512, 8192};
+
+    private static final int QUERY_COUNT = 256;
+    private static final long SEED = 42L;
+
+    /** Layout of the tiles */
+    private static final int ROWS = 7;
+    private static final double ROW_SPACING = 100;
+    private static final double LAYER_OFFSET = 0.37; // Shifts each stack of rows, so stacked tiles do not coincide
+
+    /** Size of a query box, about Mario's */
+    private static final double QUERY_WIDTH = 44.3;
+    private static final double QUERY_HEIGHT = 60.7;
+
+    /** Tests per timed round, so that small scenes are not timed over a handful of nanoseconds */
+    private static final long TESTS_PER_ROUND = 4_000_000;
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int DEFAULT_ROUNDS = 11;
+
+    private final int ROUNDS;
+    private boolean hasRun = false;
+    private int failures = 0;
+
+    /**
+     * Constructs the checker window using the window size from the game properties.
+     *
+     * @param gameProps Game configuration properties.
+     * @param rounds    Number of timed rounds per way and scene size.
+     */
+    public AabbKernelCheck(Properties gameProps, int rounds) {
+        super(Integer.parseInt(gameProps.getProperty("window.width")),
+                Integer.parseInt(gameProps.getProperty("window.height")),
+                "AABB kernel check");
+        this.ROUNDS = Math.max(1, rounds);
+        ShadowDonkeyKong.screenWidth = Integer.parseInt(gameProps.getProperty("window.width"));
+        ShadowDonkeyKong.screenHeight = Integer.parseInt(gameProps.getProperty("window.height"));
+        ShadowDonkeyKong.setHeadless(true);
+    }
+
+    /**
+     * Checks every scene size on the first frame, then closes the window.
+     *
+     * @param input The current mouse/keyboard input (unused).
+     */
+    @Override
+    protected void update(Input input) {
+        if (hasRun) {
+            return;
+        }
+        hasRun = true;
+
+        System.out.printf("%-8s %14s %14s %14s %9s %14s%n", "tiles", "entity ns/q", "prebuilt ns/q",
+                "kernel ns/q", "speed-up", "bytes/q e/p/k");
+        for (int size : SCENE_SIZES) {
+            checkScene(size);
+        }
+
+        Window.close();
+    }
+
+    /** Checks one scene size and prints its timings. */
+    private void checkScene(int size) {
+        Platform[] platforms = createPlatforms(size);
+        Rectangle[] boxes = new Rectangle[size];
+        for (int i = 0; i < size; i++) {
+            boxes[i] = platforms[i].getBoundingBox();
+        }
+        AabbKernel kernel = AabbKernel.ofPlatforms(platforms);
+        Random random = new Random(SEED);
+        Rectangle[] queries = new Rectangle[QUERY_COUNT];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = new Rectangle(random.nextDouble() * (ShadowDonkeyKong.getScreenWidth() - QUERY_WIDTH),
+                    random.nextDouble() * (ShadowDonkeyKong.getScreenHeight() - QUERY_HEIGHT),
+                    QUERY_WIDTH, QUERY_HEIGHT);
+        }
+
+        // 1) Every query must hit the same platforms both ways, and find the same first one
+        long[] hits = kernel.newMask();
+        int mismatches = 0;
+        for (Rectangle query : queries) {
+            kernel.query(query, hits);
+            int firstHit = -1;
+            for (int i = 0; i < size; i++) {
+                boolean isHit = query.intersects(boxes[i]);
+                if (isHit != ((hits[i >>> 6] & (1L << i)) != 0)) {
+                    mismatches++;
+                }
+                if (isHit && firstHit < 0) {
+                    firstHit = i;
+                }
+            }
+            if (kernel.firstHit(query, 0) != firstHit) {
+                mismatches++;
+            }
+        }
+
+        // 2) Time the three ways
+        int repeats = (int) Math.max(1, TESTS_PER_ROUND / ((long) size * QUERY_COUNT));
+        long[] entity = new long[1];
+        long[] prebuilt = new long[1];
+        long[] packed = new long[1];
+        double[] entityTiming = time(() -> entity[0] += countEntity(queries, platforms), repeats);
+        double[] prebuiltTiming = time(() -> prebuilt[0] += countPrebuilt(queries, boxes), repeats);
+        double[] kernelTiming = time(() -> packed[0] += countKernel(queries, kernel, hits), repeats);
+        if (entity[0] != packed[0] || prebuilt[0] != packed[0]) {
+            mismatches++;
+        }
+
+        boolean isPassed = mismatches == 0;
+        if (!isPassed) {
+            failures++;
+        }
+        System.out.printf("%-8d %14.1f %14.1f %14.1f %8.1fx %14s  %s%s%n", size, entityTiming[0],
+                prebuiltTiming[0], kernelTiming[0], entityTiming[0] / kernelTiming[0],
+                String.format("%.0f/%.0f/%.0f", entityTiming[1], prebuiltTiming[1], kernelTiming[1]),
+                isPassed ? "PASS" : "FAIL", isPassed ? "" : "  " + mismatches + " mismatched");
+    }
+
+    /** Counts the hits of every query with pairwise tests against each platform's bounding box. */
+    private static long countEntity(Rectangle[] queries, Platform[] platforms) {
+        long count = 0;
+        for (Rectangle query : queries) {
+            for (Platform platform : platforms) {
+                if (query.intersects(platform.getBoundingBox())) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /** Counts the hits of every query with pairwise tests against prebuilt rectangles. */
+    private static long countPrebuilt(Rectangle[] queries, Rectangle[] boxes) {
+        long count = 0;
+        for (Rectangle query : queries) {
+            for (Rectangle box : boxes) {
+                if (query.intersects(box)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /** Counts the hits of every query with one kernel query each. */
+    private static long countKernel(Rectangle[] queries, AabbKernel kernel, long[] hits) {
+        long count = 0;
+        for (Rectangle query : queries) {
+            count += kernel.query(query, hits);
+        }
+        return count;
+    }
+
+    /**
+     * Warms up a workload, then times it over {@link #ROUNDS} rounds.
+     *
+     * @param workload Answers every query once.
+     * @param repeats  Times the workload runs per round.
+     * @return The median round's time per query in nanoseconds, then the bytes allocated per query.
+     */
+    private double[] time(Runnable workload, int repeats) {
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            for (int i = 0; i < repeats; i++) {
+                workload.run();
+            }
+        }
+        long[] rounds = new long[ROUNDS];
+        long bytesBefore = AllocationTracker.allocatedBytes();
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < repeats; i++) {
+                workload.run();
+            }
+            rounds[round] = System.nanoTime() - start;
+        }
+        long bytes = AllocationTracker.allocatedBytes() - bytesBefore;
+        Arrays.sort(rounds);
+        long queries = (long) ROUNDS * repeats * QUERY_COUNT;
+        return new double[] {
+                (double) rounds[ROUNDS / 2] / ((long) repeats * QUERY_COUNT),
+                bytes < 0 ? Double.NaN : (double) bytes / queries };
+    }
+
+    /**
+     * Fills the window with rows of platform tiles, bottom row first; once every row is full,
+     * the next stack of rows starts again from the bottom, shifted slightly.
+     */
+    private static Platform[] createPlatforms(int count) {
+        Platform first = new Platform(0, 0);
+        double tileWidth = first.getWidth();
+        int columns = (int) (ShadowDonkeyKong.getScreenWidth() / tileWidth);
+        Platform[] platforms = new Platform[count];
+        for (int i = 0; i < count; i++) {
+            int row = (i / columns) % ROWS;
+            int layer = i / (columns * ROWS);
+            double x = tileWidth / 2 + (i % columns) * tileWidth + layer * LAYER_OFFSET;
+            double y = ShadowDonkeyKong.getScreenHeight() - first.getHeight() / 2 - row * ROW_SPACING;
+            platforms[i] = new Platform(x, y);
+        }
+        return platforms;
+    }
+
+    /**
+     * Entry point for the check. Exits with status 1 if any scene failed.
+     *
+     * @param args Optional number of timed rounds.
+     */
+    public static void main(String[] args) {
+        Properties gameProps = IOUtils.readPropertiesFile("res/app.properties");
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ROUNDS;
+        AabbKernelCheck check = new AabbKernelCheck(gameProps, rounds);
+        check.run();
+        System.exit(check.failures > 0 ? 1 : 0);
+    }
+}
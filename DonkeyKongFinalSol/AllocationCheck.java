@@ -0,0 +1,162 @@
+import bagel.*;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Checks that the levels allocate little once they reach a steady state, so allocation
+ * improvements do not silently regress.
+ *
+ * Each level is first played by a {@link MarioBot} while its input is recorded. The recorded
+ * session is then replayed headless a few times to warm up the JIT, and once more with the level's
+ * {@link AllocationTracker} enabled; the bot itself is not running then, so only the level's own
+ * allocations are counted. Frames before {@link #STEADY_STATE_FRAME} are left out, as they include
+ * loading and the navigation graph being built. Nothing is drawn headless, but the HUD's text is
+ * still rebuilt, so its allocations are counted too. A level fails if its mean bytes per
+ * steady-state frame exceed the threshold.
+ *
+ * Like {@link BotSmokeRunner}, all runs happen inside the first frame of a bagel window.
+ *
+ * Usage: {@code java AllocationCheck [propertiesFile] [maxBytesPerFrame]}
+ */
+public class AllocationCheck extends AbstractGame {
+
+    private static final int LEVEL_COUNT = 2;
+
+    /** Replays run before the measured one, so the JIT has compiled the update */
+    private static final int WARMUP_REPLAYS = 5;
+
+    /** The first frame counted as steady state */
+    private static final int STEADY_STATE_FRAME = 120;
+
+    private static final long DEFAULT_MAX_BYTES_PER_FRAME = 2048;
+
+    private final Properties GAME_PROPS;
+    private final long MAX_BYTES_PER_FRAME;
+    private boolean hasRun = false;
+    private int failures = 0;
+
+    /**
+     * Constructs the checker window using the window size from the game properties.
+     *
+     * @param gameProps        Game configuration properties.
+     * @param maxBytesPerFrame The most a level may allocate per steady-state frame, on average.
+     */
+    public AllocationCheck(Properties gameProps, long maxBytesPerFrame) {
+        super(Integer.parseInt(gameProps.getProperty("window.width")),
+                Integer.parseInt(gameProps.getProperty("window.height")),
+                "Allocation check");
+        this.GAME_PROPS = gameProps;
+        this.MAX_BYTES_PER_FRAME = maxBytesPerFrame;
+        ShadowDonkeyKong.screenWidth = Integer.parseInt(gameProps.getProperty("window.width"));
+        ShadowDonkeyKong.screenHeight = Integer.parseInt(gameProps.getProperty("window.height"));
+        ShadowDonkeyKong.setHeadless(true);
+        GameLogger.setLevel(GameLogger.LogLevel.OFF);
+    }
+
+    /**
+     * Checks every level on the first frame, then closes the window.
+     *
+     * @param input The current mouse/keyboard input (unused).
+     */
+    @Override
+    protected void update(Input input) {
+        if (hasRun) {
+            return;
+        }
+        hasRun = true;
+
+        if (!AllocationTracker.isSupported()) {
+            System.out.println("This JVM cannot count allocated bytes per thread");
+            failures++;
+            Window.close();
+            return;
+        }
+
+        for (int levelNumber = 1; levelNumber <= LEVEL_COUNT; levelNumber++) {
+            try {
+                checkLevel(levelNumber);
+            } catch (RuntimeException ex) {
+                System.out.printf("level %d: ERROR%n", levelNumber);
+                ex.printStackTrace();
+                failures++;
+            }
+        }
+
+        Window.close();
+    }
+
+    /** Records a bot session on one level, replays it with tracking and prints the result. */
+    private void checkLevel(int levelNumber) {
+        int[] session = recordSession(levelNumber);
+        for (int i = 0; i < WARMUP_REPLAYS; i++) {
+            replay(levelNumber, session);
+        }
+        AllocationTracker allocations = replay(levelNumber, session);
+
+        double bytesPerFrame = allocations.getBytesPerFrame();
+        boolean isPassed = bytesPerFrame <= MAX_BYTES_PER_FRAME;
+        if (!isPassed) {
+            failures++;
+        }
+        System.out.printf("level %d: %s  %d frames  %.1f B/frame  max %d B  (limit %d B/frame)%n",
+                levelNumber, isPassed ? "PASS" : "FAIL", allocations.getFrames(), bytesPerFrame,
+                allocations.getMaxFrameBytes(), MAX_BYTES_PER_FRAME);
+        for (Map.Entry<String, Double> phase : allocations.getBytesPerFrameByPhase().entrySet()) {
+            System.out.printf("    %-16s %10.1f B/frame%n", phase.getKey(), phase.getValue());
+        }
+    }
+
+    /** Plays a level to the end with the bot, recording its input each frame. */
+    private int[] recordSession(int levelNumber) {
+        Level level = createLevel(levelNumber);
+        MarioBot bot = new MarioBot();
+        ArrayList<Integer> masks = new ArrayList<>();
+        boolean isOver = false;
+        while (!isOver) {
+            bot.update(level);
+            masks.add(RecordedControls.encode(bot));
+            isOver = level.update(bot);
+        }
+
+        int[] session = new int[masks.size()];
+        for (int i = 0; i < session.length; i++) {
+            session[i] = masks.get(i);
+        }
+        return session;
+    }
+
+    /** Replays a recorded session on a new level, tracking allocations from the steady-state frame on. */
+    private AllocationTracker replay(int levelNumber, int[] session) {
+        Level level = createLevel(levelNumber);
+        RecordedControls controls = new RecordedControls();
+        AllocationTracker allocations = level.getAllocations();
+        for (int frame = 0; frame < session.length; frame++) {
+            if (frame == STEADY_STATE_FRAME) {
+                allocations.setEnabled(true);
+            }
+            controls.setMask(session[frame]);
+            level.update(controls);
+        }
+        return allocations;
+    }
+
+    /** Creates a level from the game properties. */
+    private Level createLevel(int levelNumber) {
+        return levelNumber == 1 ? new Level1(GAME_PROPS) : new Level2(GAME_PROPS);
+    }
+
+    /**
+     * Entry point for the allocation check. Exits with status 1 if any level failed.
+     *
+     * @param args Optional path of the properties file to play and the allowed bytes per frame.
+     */
+    public static void main(String[] args) {
+        Properties gameProps = IOUtils.readPropertiesFile(args.length > 0 ? args[0] : "res/app.properties");
+        long maxBytesPerFrame = args.length > 1 ? Long.parseLong(args[1]) : DEFAULT_MAX_BYTES_PER_FRAME;
+        AllocationCheck check = new AllocationCheck(gameProps, maxBytesPerFrame);
+        check.run();
+        System.exit(check.failures > 0 ? 1 : 0);
+    }
+}
@@ -0,0 +1,149 @@
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Measures the bytes a level allocates per frame, and per phase of a frame, on the thread updating it.
+ *
+ * A level calls {@link #startFrame()} and {@link #endFrame()} around every update and
+ * {@link #endPhase(String)} after each of its phases; everything allocated since the previous mark
+ * is charged to the phase. Tracking is off until enabled, and then every mark costs one read of
+ * the JVM's per-thread allocation counter. Work that runs on other threads, e.g. parallel loops
+ * or systems run concurrently, is not counted.
+ */
+public class AllocationTracker {
+
+    private static final java.lang.management.ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private boolean isEnabled = false;
+    private final LinkedHashMap<String, long[]> phaseBytes = new LinkedHashMap<>(); // Phases in first-seen order
+
+    private long frameStart = 0;
+    private long phaseStart = 0;
+
+    /** Counters */
+    private long frames = 0;
+    private long totalBytes = 0;
+    private long maxFrameBytes = 0;
+    private long lastFrameBytes = 0;
+
+    /**
+     * Reads the number of bytes allocated so far by the current thread.
+     *
+     * @return Allocated bytes, or {@code -1} if the JVM does not support allocation tracking.
+     */
+    public static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) THREADS;
+            if (sunBean.isThreadAllocatedMemorySupported()) {
+                return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks whether this JVM can count allocated bytes per thread.
+     *
+     * @return {@code true} if {@link #allocatedBytes()} works.
+     */
+    public static boolean isSupported() {
+        return allocatedBytes() >= 0;
+    }
+
+    /**
+     * Turns tracking on or off. Turning it on also forgets what was measured so far.
+     *
+     * @param isEnabled Whether to track.
+     */
+    public void setEnabled(boolean isEnabled) {
+        this.isEnabled = isEnabled && isSupported();
+        if (this.isEnabled) {
+            reset();
+        }
+    }
+
+    /**
+     * Forgets every frame and phase measured so far, e.g. once the JIT has warmed up.
+     */
+    public void reset() {
+        phaseBytes.clear();
+        frames = 0;
+        totalBytes = 0;
+        maxFrameBytes = 0;
+        lastFrameBytes = 0;
+    }
+
+    /**
+     * Starts measuring a frame.
+     */
+    public void startFrame() {
+        if (!isEnabled) {
+            return;
+        }
+        frameStart = allocatedBytes();
+        phaseStart = frameStart;
+    }
+
+    /**
+     * Charges everything allocated since the frame started or the last phase ended to a phase.
+     *
+     * @param phase The phase's name.
+     */
+    public void endPhase(String phase) {
+        if (!isEnabled) {
+            return;
+        }
+        long now = allocatedBytes();
+        long[] bytes = phaseBytes.get(phase);
+        if (bytes == null) {
+            bytes = new long[1];
+            phaseBytes.put(phase, bytes);
+            now = allocatedBytes(); // Leave the new entry out of the phase
+        }
+        bytes[0] += now - phaseStart;
+        phaseStart = allocatedBytes();
+    }
+
+    /**
+     * Stops measuring a frame and records its total.
+     */
+    public void endFrame() {
+        if (!isEnabled) {
+            return;
+        }
+        lastFrameBytes = allocatedBytes() - frameStart;
+        totalBytes += lastFrameBytes;
+        maxFrameBytes = Math.max(maxFrameBytes, lastFrameBytes);
+        frames++;
+    }
+
+    /**
+     * Gets the mean bytes allocated per frame.
+     *
+     * @return The mean, or 0 before the first frame.
+     */
+    public double getBytesPerFrame() {
+        return frames == 0 ? 0 : (double) totalBytes / frames;
+    }
+
+    /**
+     * Gets the mean bytes each phase allocated per frame, in the order the phases first ran.
+     *
+     * @return The phases' names mapped to their mean bytes per frame.
+     */
+    public Map<String, Double> getBytesPerFrameByPhase() {
+        LinkedHashMap<String, Double> perFrame = new LinkedHashMap<>();
+        for (Map.Entry<String, long[]> entry : phaseBytes.entrySet()) {
+            perFrame.put(entry.getKey(), frames == 0 ? 0 : (double) entry.getValue()[0] / frames);
+        }
+        return perFrame;
+    }
+
+    /** Getters */
+    public boolean isEnabled() { return isEnabled; }
+    public long getFrames() { return frames; }
+    public long getTotalBytes() { return totalBytes; }
+    public long getMaxFrameBytes() { return maxFrameBytes; }
+    public long getLastFrameBytes() { return lastFrameBytes; }
+}
@@ -0,0 +1,100 @@
+/**
+ * Finds which of a fixed set of points something passed while moving along one axis, e.g. which
+ * barrels Mario jumped across, by binary search over the points sorted along that axis.
+ *
+ * The points never move, so they are sorted once; a query costs one binary search plus one step
+ * per point found. Points are identified by their index in the caller's own array.
+ */
+public class AxisIndex {
+
+    private final double[] POSITION; // Positions in sorted order
+    private final int[] ORDER;       // The points' indices, in the same order
+
+    /**
+     * Indexes a set of points.
+     *
+     * @param positions The points' positions along the axis; {@code NaN} leaves a point out.
+     */
+    public AxisIndex(double[] positions) {
+        int count = 0;
+        for (double position : positions) {
+            if (!Double.isNaN(position)) {
+                count++;
+            }
+        }
+        this.POSITION = new double[count];
+        this.ORDER = new int[count];
+
+        // Insertion sort keeps points at the same position in index order
+        int sorted = 0;
+        for (int point = 0; point < positions.length; point++) {
+            double position = positions[point];
+            if (Double.isNaN(position)) {
+                continue;
+            }
+            int j = sorted - 1;
+            while (j >= 0 && POSITION[j] > position) {
+                POSITION[j + 1] = POSITION[j];
+                ORDER[j + 1] = ORDER[j];
+                j--;
+            }
+            POSITION[j + 1] = position;
+            ORDER[j + 1] = point;
+            sorted++;
+        }
+    }
+
+    /**
+     * Finds every point passed when moving from one position to another. The start is excluded and
+     * the end included, so consecutive moves never pass the same point twice, even one they stop on.
+     *
+     * @param from Where the move started.
+     * @param to   Where the move ended; may be on either side of {@code from}.
+     * @param hits Receives the passed points' indices, in order along the axis;
+     *             must be as long as the number of points.
+     * @return The number of points written to {@code hits}.
+     */
+    public int query(double from, double to, int[] hits) {
+        int hitCount = 0;
+        if (to > from) {
+            for (int i = firstAbove(from); i < POSITION.length && POSITION[i] <= to; i++) {
+                hits[hitCount++] = ORDER[i];
+            }
+        } else if (to < from) {
+            for (int i = firstAtOrAbove(to); i < POSITION.length && POSITION[i] < from; i++) {
+                hits[hitCount++] = ORDER[i];
+            }
+        }
+        return hitCount;
+    }
+
+    /** Binary-searches the first sorted position greater than {@code value}. */
+    private int firstAbove(double value) {
+        int low = 0;
+        int high = POSITION.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (POSITION[middle] <= value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /** Binary-searches the first sorted position at least {@code value}. */
+    private int firstAtOrAbove(double value) {
+        int low = 0;
+        int high = POSITION.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (POSITION[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
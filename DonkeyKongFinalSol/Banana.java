@@ -50,6 +50,7 @@ public class Banana extends Shootable {
      */
     @Override
     public void draw() {
+        if (ShadowDonkeyKong.isHeadless()) return;
         BANANA_IMAGE.draw(x, y);
     }
 }
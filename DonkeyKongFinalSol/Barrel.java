@@ -2,11 +2,16 @@ import bagel.*;
 import bagel.util.Colour;
 import bagel.util.Rectangle;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 /**
  * Represents a barrel in the game, affected by gravity and platform collisions.
+ * The barrel falls through the level's {@link GravitySystem}.
  * The barrel can be destroyed, at which point it will no longer be drawn or interact with the environment.
  */
-public class Barrel {
+public class Barrel implements FallingBody {
     private final Image BARREL_IMAGE;
     private final double X; // constant because x does not change, only relying on falling
     private double y;
@@ -25,42 +30,11 @@ public class Barrel {
         this.y = startY;
     }
 
-    /**
-     * Updates the barrel's position, applies gravity, checks for platform collisions,
-     * and renders the barrel if it is not destroyed.
-     *
-     * @param platforms An array of platforms for collision detection.
-     */
-    public void update(Platform[] platforms) {
-        if (!isDestroyed) {
-            // 1) Apply gravity
-            velocityY += Physics.BARREL_GRAVITY;
-            if (velocityY > Physics.BARREL_TERMINAL_VELOCITY) {
-                velocityY = Physics.BARREL_TERMINAL_VELOCITY;
-            }
-            y += velocityY;
-
-            // 2) Check for platform collisions
-            for (Platform platform : platforms) {
-                if (this.getBoundingBox().intersects(platform.getBoundingBox())) {
-                    // Position the barrel on top of the platform
-                    y = platform.getY() - (platform.getHeight() / 2) - (BARREL_IMAGE.getHeight() / 2);
-                    velocityY = 0; // Stop falling
-                    break;
-                }
-            }
-
-            // 3) Draw the barrel
-            draw();
-        }
-    }
-
-
     /**
      * Draws the barrel on the screen if it is not destroyed.
      */
     public void draw() {
-        if (!isDestroyed) {
+        if (!isDestroyed && !ShadowDonkeyKong.isHeadless()) {
             BARREL_IMAGE.draw(X, y);
 //            drawBoundingBox(); // Uncomment for debugging
         }
@@ -86,10 +60,13 @@ public class Barrel {
 
     /**
      * Marks the barrel as destroyed, preventing it from being drawn or updated.
+     *
+     * @param events The bus on which the destruction is published.
      */
-    public void destroy() {
+    public void destroy(GameEventBus events) {
         isDestroyed = true;
-        System.out.println("Barrel destroyed!");
+        events.publish(GameEventType.BARREL_DESTROYED);
+        GameLogger.log(GameLogger.Event.BARREL_DESTROYED);
     }
 
     /**
@@ -124,4 +101,52 @@ public class Barrel {
      */
     public double getY() { return y; }
 
+    @Override
+    public boolean isFalling() { return !isDestroyed; }
+
+    @Override
+    public double getVelocityY() { return velocityY; }
+
+    @Override
+    public double getWidth() { return BARREL_IMAGE.getWidth(); }
+
+    @Override
+    public double getHeight() { return BARREL_IMAGE.getHeight(); }
+
+    @Override
+    public double getGravity() { return Physics.BARREL_GRAVITY; }
+
+    @Override
+    public double getTerminalVelocity() { return Physics.BARREL_TERMINAL_VELOCITY; }
+
+    @Override
+    public void applyFall(double y, double velocityY, Platform platform) {
+        this.y = y;
+        this.velocityY = velocityY;
+    }
+
+    /**
+     * Writes the barrel's dynamic state for a replay keyframe.
+     *
+     * @param out The stream to write to.
+     * @throws IOException If writing fails.
+     */
+    public void writeState(DataOutput out) throws IOException {
+        Physics.writeValue(out, y);
+        Physics.writeValue(out, velocityY);
+        out.writeBoolean(isDestroyed);
+    }
+
+    /**
+     * Restores the state written by {@link #writeState(DataOutput)}.
+     *
+     * @param in The stream to read from.
+     * @throws IOException If reading fails.
+     */
+    public void readState(DataInput in) throws IOException {
+        y = Physics.readValue(in);
+        velocityY = Physics.readValue(in);
+        isDestroyed = in.readBoolean();
+    }
+
 }
@@ -4,6 +4,10 @@ import bagel.Image;
 import bagel.util.Colour;
 import bagel.util.Rectangle;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 /**
  * Represents Blaster object in the game.
  */
@@ -49,6 +53,7 @@ public class Blaster {
     }
 
     public void draw(){
+        if (ShadowDonkeyKong.isHeadless()) return;
         BLASTER_IMAGE.draw(X,Y);
     }
     /**
@@ -90,6 +95,28 @@ public class Blaster {
         return bullets > 0;
     }
 
+    /**
+     * Writes the blaster's dynamic state for a replay keyframe.
+     *
+     * @param out The stream to write to.
+     * @throws IOException If writing fails.
+     */
+    public void writeState(DataOutput out) throws IOException {
+        out.writeBoolean(isCollected);
+        out.writeInt(bullets);
+    }
+
+    /**
+     * Restores the state written by {@link #writeState(DataOutput)}.
+     *
+     * @param in The stream to read from.
+     * @throws IOException If reading fails.
+     */
+    public void readState(DataInput in) throws IOException {
+        isCollected = in.readBoolean();
+        bullets = in.readInt();
+    }
+
 
 
 }
@@ -0,0 +1,89 @@
+import bagel.*;
+
+import java.util.Properties;
+
+/**
+ * Plays every level headless with a {@link MarioBot} and reports how each run ended.
+ * A level fails the smoke test if it throws while being played; losing or running out of time is
+ * reported but is not a failure, since it says more about the bot than about the level.
+ *
+ * Like {@link HotPathBenchmark}, all runs happen inside the first frame of a bagel window.
+ *
+ * Usage: {@code java BotSmokeRunner [propertiesFile]}
+ */
+public class BotSmokeRunner extends AbstractGame {
+
+    private static final int LEVEL_COUNT = 2;
+
+    private final Properties GAME_PROPS;
+    private boolean hasRun = false;
+    private int failures = 0;
+
+    /**
+     * Constructs the runner window using the window size from the game properties.
+     *
+     * @param gameProps Game configuration properties.
+     */
+    public BotSmokeRunner(Properties gameProps) {
+        super(Integer.parseInt(gameProps.getProperty("window.width")),
+                Integer.parseInt(gameProps.getProperty("window.height")),
+                "Bot smoke test");
+        this.GAME_PROPS = gameProps;
+        ShadowDonkeyKong.screenWidth = Integer.parseInt(gameProps.getProperty("window.width"));
+        ShadowDonkeyKong.screenHeight = Integer.parseInt(gameProps.getProperty("window.height"));
+        ShadowDonkeyKong.setHeadless(true);
+    }
+
+    /**
+     * Plays every level on the first frame, then closes the window.
+     *
+     * @param input The current mouse/keyboard input (unused).
+     */
+    @Override
+    protected void update(Input input) {
+        if (hasRun) {
+            return;
+        }
+        hasRun = true;
+
+        System.out.printf("%-6s %-8s %8s %8s %8s%n", "level", "result", "frames", "score", "replans");
+        for (int levelNumber = 1; levelNumber <= LEVEL_COUNT; levelNumber++) {
+            try {
+                playLevel(levelNumber);
+            } catch (RuntimeException ex) {
+                System.out.printf("%-6d %-8s%n", levelNumber, "ERROR");
+                ex.printStackTrace();
+                failures++;
+            }
+        }
+
+        Window.close();
+    }
+
+    /** Plays one level to the end with the bot and prints the outcome. */
+    private void playLevel(int levelNumber) {
+        Level level = levelNumber == 1 ? new Level1(GAME_PROPS) : new Level2(GAME_PROPS);
+        MarioBot bot = new MarioBot();
+        boolean isOver = false;
+        while (!isOver) {
+            bot.update(level);
+            isOver = level.update(bot);
+        }
+
+        String result = level.isLevelCompleted() ? "WON" : level.checkingGameTime() ? "TIMEOUT" : "LOST";
+        System.out.printf("%-6d %-8s %8d %8d %8d%n",
+                levelNumber, result, level.getCurrentFrame(), level.getScore(), bot.getReplanCount());
+    }
+
+    /**
+     * Entry point for the smoke test. Exits with status 1 if any level failed.
+     *
+     * @param args Optional path of the properties file to play.
+     */
+    public static void main(String[] args) {
+        Properties gameProps = IOUtils.readPropertiesFile(args.length > 0 ? args[0] : "res/app.properties");
+        BotSmokeRunner runner = new BotSmokeRunner(gameProps);
+        runner.run();
+        System.exit(runner.failures > 0 ? 1 : 0);
+    }
+}
@@ -6,19 +6,19 @@ import bagel.util.Rectangle;
 
 public class Bullet extends Shootable {
     private static final double BULLET_SPEED = 3.8;
+    private static final Image BULLET_RIGHT_IMAGE = new Image("res/bullet_right.png");
+    private static final Image BULLET_LEFT_IMAGE = new Image("res/bullet_left.png");
 
     public Bullet(double x, double y, String direction) {
         super(x, y, getBulletImage(direction), direction, BULLET_SPEED);
     }
 
     private static Image getBulletImage(String direction) {
-        if ("right".equals(direction)) {
-            return new Image("res/bullet_right.png");
-        } else if ("left".equals(direction)) {
-            return new Image("res/bullet_left.png");
+        if ("left".equals(direction)) {
+            return BULLET_LEFT_IMAGE;
         } else {
-            // Default fallback to right-facing image if direction is invalid
-            return new Image("res/bullet_right.png");
+            // Right-facing image is also the fallback if direction is invalid
+            return BULLET_RIGHT_IMAGE;
         }
     }
 
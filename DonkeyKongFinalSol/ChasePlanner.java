@@ -0,0 +1,97 @@
+/**
+ * Plans routes for intelligent monkeys chasing Mario, used when {@code intelligentMonkey.chase} is enabled.
+ *
+ * Monkeys walk, climb ladders and drop off edges, but cannot jump. Their routes come from a
+ * {@link PathCache} over the level's {@link NavigationGraph}, so monkeys sharing a surface and
+ * chasing Mario on the same surface reuse one search. Replanning is amortised across ticks: each
+ * tick at most {@code replansPerTick} monkeys are given a new route, taken round-robin, while the
+ * others keep following their current one.
+ *
+ * The budget counts replans rather than time so that chasing stays deterministic, which replays rely on.
+ */
+public class ChasePlanner {
+
+    private final int REPLANS_PER_TICK;
+
+    private NavigationGraph graph;
+    private PathCache cache;
+    private double marioX;
+    private int cursor = 0; // The monkey the next tick starts considering
+
+    /**
+     * Creates a planner.
+     *
+     * @param replansPerTick The most monkeys given a new route in one tick.
+     */
+    public ChasePlanner(int replansPerTick) {
+        this.REPLANS_PER_TICK = replansPerTick;
+    }
+
+    /**
+     * Replans the routes of the monkeys that need it, within this tick's budget.
+     * Call once per tick before the monkeys are updated.
+     *
+     * @param graph   The level's navigation graph, or null if it is not built yet.
+     * @param mario   The monkeys' target.
+     * @param monkeys The level's monkeys; only intelligent ones chase.
+     */
+    public void update(NavigationGraph graph, Mario mario, Monkey[] monkeys) {
+        if (graph == null) {
+            return;
+        }
+        if (cache == null) {
+            this.graph = graph;
+            this.cache = new PathCache(graph);
+        }
+        marioX = mario.getX();
+        int marioSurface = graph.findSurfaceBelow(mario.getBoundingBox());
+
+        int replans = 0;
+        for (int i = 0; i < monkeys.length && replans < REPLANS_PER_TICK; i++) {
+            int index = (cursor + i) % monkeys.length;
+            if (monkeys[index] instanceof IntelligentMonkey && !monkeys[index].isDestroyed()) {
+                IntelligentMonkey monkey = (IntelligentMonkey) monkeys[index];
+                if (monkey.needsChaseReplan(graph, marioSurface)) {
+                    monkey.replanChase(graph, marioSurface);
+                    replans++;
+                    if (replans == REPLANS_PER_TICK) {
+                        cursor = (index + 1) % monkeys.length; // Resume after this monkey next tick
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks whether the navigation graph is available, so monkeys can chase.
+     *
+     * @return {@code true} once the planner has seen the level's graph.
+     */
+    public boolean isReady() {
+        return cache != null;
+    }
+
+    /** Getters */
+    public NavigationGraph getGraph() { return graph; }
+    public PathCache getCache() { return cache; }
+    public double getMarioX() { return marioX; }
+    public int getCursor() { return cursor; }
+
+    /**
+     * Forgets the navigation graph and every cached route, when a keyframe from before the graph
+     * existed is restored. The planner is ready again once it is given the rebuilt graph.
+     */
+    public void reset() {
+        graph = null;
+        cache = null;
+    }
+
+    /**
+     * Sets the monkey the next tick starts from, when restoring a replay keyframe.
+     *
+     * @param cursor The index of the monkey.
+     */
+    public void setCursor(int cursor) {
+        this.cursor = cursor;
+    }
+}
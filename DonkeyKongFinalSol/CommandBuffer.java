@@ -0,0 +1,99 @@
+import java.util.ArrayList;
+import java.util.function.Predicate;
+
+/**
+ * Records the entities spawned and despawned during a tick, so the level can apply them
+ * together at the tick's sync point instead of changing its collections while iterating them.
+ *
+ * A despawned entity is already destroyed when it is recorded, so it stops interacting at once;
+ * only its removal from the level's live arrays waits for the sync point. A spawned projectile
+ * joins its store at the sync point and first moves on the next tick.
+ */
+public class CommandBuffer {
+
+    private final ArrayList<Bullet> spawnedBullets = new ArrayList<>();
+    private final ArrayList<Banana> spawnedBananas = new ArrayList<>();
+    // Despawned entities are found again by their destroyed flag, so only how many there were is kept
+    private int despawnedBarrelCount = 0;
+    private int despawnedMonkeyCount = 0;
+
+    /**
+     * Records a bullet fired this tick.
+     *
+     * @param bullet The new bullet.
+     */
+    public void spawn(Bullet bullet) {
+        spawnedBullets.add(bullet);
+    }
+
+    /**
+     * Records a banana thrown this tick.
+     *
+     * @param banana The new banana.
+     */
+    public void spawn(Banana banana) {
+        spawnedBananas.add(banana);
+    }
+
+    /**
+     * Records a barrel destroyed this tick.
+     *
+     * @param barrel The destroyed barrel.
+     */
+    public void despawn(Barrel barrel) {
+        despawnedBarrelCount++;
+    }
+
+    /**
+     * Records a monkey destroyed this tick.
+     *
+     * @param monkey The destroyed monkey.
+     */
+    public void despawn(Monkey monkey) {
+        despawnedMonkeyCount++;
+    }
+
+    /**
+     * Forgets every recorded command, once they have been applied or the level is restored.
+     */
+    public void clear() {
+        spawnedBullets.clear();
+        spawnedBananas.clear();
+        despawnedBarrelCount = 0;
+        despawnedMonkeyCount = 0;
+    }
+
+    /**
+     * Removes the entities despawned this tick from the front {@code count} entries of a live array,
+     * keeping the rest in order and packed to the front. Despawned entities are already destroyed,
+     * so one pass over the live entities finds them by that flag.
+     *
+     * @param live           The live entities.
+     * @param count          The number of live entities.
+     * @param despawnedCount The number of entities despawned this tick; nothing is removed if it is 0.
+     * @param isDestroyed    Tells whether a live entity has been destroyed.
+     * @return The new number of live entities.
+     */
+    public static <T> int removeDespawned(T[] live, int count, int despawnedCount, Predicate<? super T> isDestroyed) {
+        if (despawnedCount == 0) {
+            return count;
+        }
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            T entity = live[i];
+            if (!isDestroyed.test(entity)) {
+                live[kept++] = entity;
+            }
+        }
+        for (int i = kept; i < count; i++) {
+            live[i] = null;
+        }
+        return kept;
+    }
+
+    /** Getters */
+    public ArrayList<Bullet> getSpawnedBullets() { return spawnedBullets; }
+    public ArrayList<Banana> getSpawnedBananas() { return spawnedBananas; }
+    public int getDespawnedBarrelCount() { return despawnedBarrelCount; }
+    public int getDespawnedMonkeyCount() { return despawnedMonkeyCount; }
+}
@@ -0,0 +1,25 @@
+import bagel.Keys;
+
+/**
+ * The player input a level reads each frame.
+ * Implemented by the live keyboard as well as by recorded or generated input,
+ * so a level can be driven by anything that behaves like a player.
+ */
+public interface Controls {
+
+    /**
+     * Checks whether a key is currently held down.
+     *
+     * @param key The key to check.
+     * @return {@code true} if the key is down.
+     */
+    boolean isDown(Keys key);
+
+    /**
+     * Checks whether a key was pressed this frame.
+     *
+     * @param key The key to check.
+     * @return {@code true} if the key went down this frame.
+     */
+    boolean wasPressed(Keys key);
+}
@@ -0,0 +1,22 @@
+/**
+ * Why a level was lost, recorded by the level when the game ends.
+ */
+public enum DeathCause {
+    /** The level has not been lost */
+    NONE,
+
+    /** Mario touched a barrel without the hammer */
+    BARREL,
+
+    /** Mario touched a monkey without the hammer */
+    MONKEY,
+
+    /** Mario was hit by a banana */
+    BANANA,
+
+    /** Mario reached Donkey Kong without the hammer */
+    DONKEY,
+
+    /** The time ran out, as reported by {@link Level#checkingGameTime()} */
+    TIMEOUT
+}
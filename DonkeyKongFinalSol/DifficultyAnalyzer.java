@@ -0,0 +1,428 @@
+import bagel.*;
+import bagel.util.Rectangle;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Estimates how hard each level is by playing many headless runs in parallel.
+ *
+ * Half of the runs are played by a {@link MarioBot} whose input is sometimes replaced by a random
+ * action, the other half by random actions held for a few frames each. Every run starts with a random
+ * number of idle frames so runs differ even for the bot. The analyzer reports, per policy, the
+ * completion rate with a 95% confidence interval, the distribution of the time taken to win and the
+ * most common causes of losing. It also checks on the level's {@link NavigationGraph} whether the
+ * hammer and every blaster can be reached at all.
+ *
+ * Progress is printed every few hundred runs, and a level stops early once both completion rates
+ * are known to within {@link #TARGET_HALF_WIDTH}. Like {@link HotPathBenchmark}, everything runs
+ * headless inside the first frame of a bagel window; levels are created there and played on workers.
+ *
+ * Usage: {@code java DifficultyAnalyzer [propertiesFile] [level|0 for all] [maxRuns] [threads] [seed]}
+ */
+public class DifficultyAnalyzer extends AbstractGame {
+
+    private static final int LEVEL_COUNT = 2;
+
+    /** Runs between progress reports */
+    private static final int REPORT_INTERVAL = 200;
+
+    /** Early stopping: runs per policy required, and the target 95% interval half-width */
+    private static final int MIN_RUNS = 400;
+    private static final double TARGET_HALF_WIDTH = 0.02;
+    private static final double Z_95 = 1.96;
+
+    /** Most idle frames at the start of a run */
+    private static final int MAX_IDLE_FRAMES = 60;
+
+    /** Chance per frame that the bot's input is replaced by a random action */
+    private static final double BOT_NOISE = 0.1;
+
+    /** How long the random policy holds each action, in frames */
+    private static final int MIN_HOLD_FRAMES = 4;
+    private static final int MAX_HOLD_FRAMES = 30;
+
+    /** Most frames waited for the ladders to land before the reachability check gives up */
+    private static final int SETTLE_FRAMES = 600;
+
+    /** How runs are played */
+    private enum Policy { BOT, RANDOM }
+
+    private final Properties GAME_PROPS;
+    private final int LEVEL_NUMBER;
+    private final int MAX_RUNS;
+    private final int THREAD_COUNT;
+    private final long SEED;
+    private boolean hasRun = false;
+
+    /**
+     * Constructs the analyzer window using the window size from the game properties.
+     *
+     * @param gameProps   Game configuration of the levels to analyze.
+     * @param levelNumber The level to analyze, or 0 for every level.
+     * @param maxRuns     Most runs per level if the estimates do not converge sooner.
+     * @param threadCount Number of threads playing runs.
+     * @param seed        Seed the runs are drawn from.
+     */
+    public DifficultyAnalyzer(Properties gameProps, int levelNumber, int maxRuns, int threadCount, long seed) {
+        super(Integer.parseInt(gameProps.getProperty("window.width")),
+                Integer.parseInt(gameProps.getProperty("window.height")),
+                "Difficulty analyzer");
+        this.GAME_PROPS = gameProps;
+        this.LEVEL_NUMBER = levelNumber;
+        this.MAX_RUNS = maxRuns;
+        this.THREAD_COUNT = threadCount;
+        this.SEED = seed;
+        ShadowDonkeyKong.screenWidth = Integer.parseInt(gameProps.getProperty("window.width"));
+        ShadowDonkeyKong.screenHeight = Integer.parseInt(gameProps.getProperty("window.height"));
+        ShadowDonkeyKong.setHeadless(true);
+    }
+
+    /**
+     * Analyzes the requested levels on the first frame, then closes the window.
+     *
+     * @param input The current mouse/keyboard input (unused).
+     */
+    @Override
+    protected void update(Input input) {
+        if (hasRun) {
+            return;
+        }
+        hasRun = true;
+        GameLogger.setLevel(GameLogger.LogLevel.OFF);
+
+        for (int levelNumber = 1; levelNumber <= LEVEL_COUNT; levelNumber++) {
+            if (LEVEL_NUMBER == 0 || LEVEL_NUMBER == levelNumber) {
+                System.out.println("== Level " + levelNumber + " ==");
+                reportReachability(createLevel(levelNumber));
+                analyze(levelNumber);
+            }
+        }
+
+        Window.close();
+    }
+
+    /** Plays runs of one level on every thread until the estimates converge or the runs run out. */
+    private void analyze(int levelNumber) {
+        Tally tally = new Tally();
+        AtomicInteger nextRun = new AtomicInteger();
+        Thread[] workers = new Thread[THREAD_COUNT];
+
+        // 1) Create every worker's level here, since images can only be loaded on this thread
+        Monkey.preloadImages();
+        new Bullet(0, 0, "right");
+        new Banana(0, 0, "right");
+        for (int i = 0; i < workers.length; i++) {
+            Worker worker = new Worker(createLevel(levelNumber), tally, nextRun);
+            workers[i] = new Thread(worker, "difficulty-" + i);
+        }
+
+        // 2) Play, then wait for every run in progress to finish
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                ex.printStackTrace();
+                return;
+            }
+        }
+
+        // 3) Final summary
+        tally.printSummary();
+    }
+
+    private Level createLevel(int levelNumber) {
+        return levelNumber == 1 ? new Level1(GAME_PROPS) : new Level2(GAME_PROPS);
+    }
+
+    /**
+     * Checks whether Mario can reach the hammer and each blaster from where he starts.
+     * Items are reachable if a route leads to the surface underneath them and they hang no higher
+     * than Mario can jump from it.
+     */
+    private static void reportReachability(Level level) {
+        RecordedControls idle = new RecordedControls();
+        for (int i = 0; i < SETTLE_FRAMES && level.getNavigationGraph() == null; i++) {
+            if (level.update(idle)) {
+                break;
+            }
+        }
+        NavigationGraph graph = level.getNavigationGraph();
+        if (graph == null) {
+            System.out.println("reachability: unknown, the ladders did not settle");
+            return;
+        }
+
+        Rectangle marioBounds = level.getMario().getBoundingBox();
+        printReachability("hammer", isReachable(graph, marioBounds, level.getHammer().getBoundingBox()));
+        Blaster[] blasters = level.getBlasters();
+        for (int i = 0; i < blasters.length; i++) {
+            printReachability("blaster " + (i + 1), isReachable(graph, marioBounds, blasters[i].getBoundingBox()));
+        }
+    }
+
+    private static void printReachability(String item, boolean isReachable) {
+        System.out.printf("%-12s %s%n", item, isReachable ? "reachable" : "UNREACHABLE");
+    }
+
+    private static boolean isReachable(NavigationGraph graph, Rectangle marioBounds, Rectangle item) {
+        int start = graph.findSurfaceBelow(marioBounds);
+        int goal = graph.findSurfaceBelow(item);
+        if (start < 0 || goal < 0) {
+            return false;
+        }
+        double marioHeight = marioBounds.bottom() - marioBounds.top();
+        if (graph.getSurfaceTop(goal) - item.bottom() > NavigationGraph.MAX_JUMP_HEIGHT + marioHeight) {
+            return false; // Hangs out of reach above its surface
+        }
+        double marioX = (marioBounds.left() + marioBounds.right()) / 2;
+        double itemX = (item.left() + item.right()) / 2;
+        return graph.findPath(start, marioX, goal, itemX, null) != null;
+    }
+
+    /**
+     * Wilson score interval half-width for a proportion, which stays meaningful near 0 and 1.
+     *
+     * @param successes Number of successes.
+     * @param trials    Number of trials.
+     * @return Half-width of the 95% interval, or 1 if there are no trials.
+     */
+    private static double halfWidth(int successes, int trials) {
+        if (trials == 0) {
+            return 1;
+        }
+        double p = (double) successes / trials;
+        double z2 = Z_95 * Z_95;
+        return Z_95 / (1 + z2 / trials) * Math.sqrt(p * (1 - p) / trials + z2 / (4.0 * trials * trials));
+    }
+
+    /**
+     * Plays runs on one thread with its own level, restoring the level's starting state between runs.
+     */
+    private final class Worker implements Runnable {
+        private final Level LEVEL;
+        private final Tally TALLY;
+        private final AtomicInteger NEXT_RUN;
+        private final RecordedControls CONTROLS = new RecordedControls();
+        private final Random RANDOM = new Random();
+        private final ByteArrayInputStream START_BYTES;
+        private final DataInputStream START_STATE;
+
+        private Worker(Level level, Tally tally, AtomicInteger nextRun) {
+            this.LEVEL = level;
+            this.TALLY = tally;
+            this.NEXT_RUN = nextRun;
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                level.writeState(out);
+            } catch (IOException ex) {
+                throw new IllegalStateException(ex);
+            }
+            this.START_BYTES = new ByteArrayInputStream(bytes.toByteArray());
+            this.START_STATE = new DataInputStream(START_BYTES);
+        }
+
+        @Override
+        public void run() {
+            int run;
+            while (!TALLY.isConverged() && (run = NEXT_RUN.getAndIncrement()) < MAX_RUNS) {
+                Policy policy = run % 2 == 0 ? Policy.BOT : Policy.RANDOM;
+                try {
+                    play(policy, SEED + run * 0x9E3779B97F4A7C15L);
+                    TALLY.record(policy, LEVEL.isLevelCompleted(), LEVEL.getCurrentFrame(), LEVEL.getDeathCause());
+                } catch (RuntimeException ex) {
+                    ex.printStackTrace();
+                    TALLY.recordError();
+                }
+            }
+        }
+
+        /** Plays one run from the starting state to the end of the level. */
+        private void play(Policy policy, long seed) {
+            START_BYTES.reset();
+            try {
+                LEVEL.readState(START_STATE);
+            } catch (IOException ex) {
+                throw new IllegalStateException(ex);
+            }
+            RANDOM.setSeed(seed);
+
+            // 1) Idle for a while so that runs differ
+            CONTROLS.setMask(0);
+            int idleFrames = RANDOM.nextInt(MAX_IDLE_FRAMES + 1);
+            for (int i = 0; i < idleFrames; i++) {
+                if (LEVEL.update(CONTROLS)) {
+                    return;
+                }
+            }
+
+            // 2) Play with the chosen policy
+            MarioBot bot = policy == Policy.BOT ? new MarioBot() : null;
+            int holdFrames = 0;
+            boolean isOver = false;
+            while (!isOver) {
+                if (bot != null) {
+                    bot.update(LEVEL);
+                    if (RANDOM.nextDouble() < BOT_NOISE) {
+                        CONTROLS.setMask(VectorEnv.getActionMask(RANDOM.nextInt(VectorEnv.ACTION_COUNT)));
+                        isOver = LEVEL.update(CONTROLS);
+                    } else {
+                        isOver = LEVEL.update(bot);
+                    }
+                } else {
+                    if (holdFrames == 0) {
+                        CONTROLS.setMask(VectorEnv.getActionMask(RANDOM.nextInt(VectorEnv.ACTION_COUNT)));
+                        holdFrames = MIN_HOLD_FRAMES + RANDOM.nextInt(MAX_HOLD_FRAMES - MIN_HOLD_FRAMES + 1);
+                    }
+                    holdFrames--;
+                    isOver = LEVEL.update(CONTROLS);
+                }
+            }
+        }
+    }
+
+    /**
+     * Results of one level's runs, shared by the workers. Prints progress as runs come in and
+     * decides when the estimates have converged.
+     */
+    private static final class Tally {
+        private final int[] RUNS = new int[Policy.values().length];
+        private final int[] WINS = new int[Policy.values().length];
+        private final ArrayList<ArrayList<Integer>> WIN_FRAMES = new ArrayList<>();
+        private final int[][] DEATHS = new int[Policy.values().length][DeathCause.values().length];
+        private int total = 0;
+        private int errors = 0;
+        private volatile boolean isConverged = false;
+
+        private Tally() {
+            for (int i = 0; i < Policy.values().length; i++) {
+                WIN_FRAMES.add(new ArrayList<>());
+            }
+            System.out.printf("%8s %-7s %8s %16s %12s%n", "runs", "policy", "runs", "completion", "median win");
+        }
+
+        private synchronized void record(Policy policy, boolean isWon, int frames, DeathCause cause) {
+            int p = policy.ordinal();
+            RUNS[p]++;
+            if (isWon) {
+                WINS[p]++;
+                WIN_FRAMES.get(p).add(frames);
+            } else {
+                DEATHS[p][cause.ordinal()]++;
+            }
+            total++;
+
+            if (total % REPORT_INTERVAL == 0) {
+                for (Policy each : Policy.values()) {
+                    printProgress(each);
+                }
+                checkConvergence();
+            }
+        }
+
+        private synchronized void recordError() {
+            errors++;
+        }
+
+        private boolean isConverged() {
+            return isConverged;
+        }
+
+        /** Converged once every policy has enough runs and a narrow enough interval. */
+        private void checkConvergence() {
+            for (Policy policy : Policy.values()) {
+                int p = policy.ordinal();
+                if (RUNS[p] < MIN_RUNS || halfWidth(WINS[p], RUNS[p]) > TARGET_HALF_WIDTH) {
+                    return;
+                }
+            }
+            isConverged = true;
+            System.out.printf("converged after %d runs%n", total);
+        }
+
+        private void printProgress(Policy policy) {
+            int p = policy.ordinal();
+            ArrayList<Integer> frames = WIN_FRAMES.get(p);
+            String median = frames.isEmpty() ? "-" : String.format("%.1fs", sortedCopy(frames)[frames.size() / 2] / 60.0);
+            System.out.printf("%8d %-7s %8d %16s %12s%n", total, policy, RUNS[p], formatRate(p), median);
+        }
+
+        private synchronized void printSummary() {
+            for (Policy policy : Policy.values()) {
+                int p = policy.ordinal();
+                System.out.printf("-- %s: %d runs, completion %s%n", policy, RUNS[p], formatRate(p));
+
+                // Time to win
+                int[] frames = sortedCopy(WIN_FRAMES.get(p));
+                if (frames.length > 0) {
+                    System.out.printf("   time to win: min %.1fs, p10 %.1fs, p50 %.1fs, p90 %.1fs, max %.1fs%n",
+                            frames[0] / 60.0, percentile(frames, 10) / 60.0, percentile(frames, 50) / 60.0,
+                            percentile(frames, 90) / 60.0, frames[frames.length - 1] / 60.0);
+                }
+
+                // Causes of losing, most common first
+                ArrayList<DeathCause> causes = new ArrayList<>();
+                for (DeathCause cause : DeathCause.values()) {
+                    if (DEATHS[p][cause.ordinal()] > 0) {
+                        causes.add(cause);
+                    }
+                }
+                causes.sort((a, b) -> DEATHS[p][b.ordinal()] - DEATHS[p][a.ordinal()]);
+                for (DeathCause cause : causes) {
+                    int count = DEATHS[p][cause.ordinal()];
+                    System.out.printf("   %-8s %6d (%.1f%% of runs)%n", cause, count, 100.0 * count / RUNS[p]);
+                }
+            }
+            if (errors > 0) {
+                System.out.println("errors: " + errors);
+            }
+        }
+
+        private String formatRate(int p) {
+            if (RUNS[p] == 0) {
+                return "-";
+            }
+            return String.format("%.1f%% +/-%.1f", 100.0 * WINS[p] / RUNS[p], 100 * halfWidth(WINS[p], RUNS[p]));
+        }
+
+        private static int[] sortedCopy(ArrayList<Integer> values) {
+            ArrayList<Integer> copy = new ArrayList<>(values);
+            Collections.sort(copy);
+            int[] sorted = new int[copy.size()];
+            for (int i = 0; i < sorted.length; i++) {
+                sorted[i] = copy.get(i);
+            }
+            return sorted;
+        }
+
+        private static int percentile(int[] sorted, int percent) {
+            return sorted[Math.min(sorted.length - 1, sorted.length * percent / 100)];
+        }
+    }
+
+    /**
+     * Entry point for the analyzer.
+     *
+     * @param args Optional properties file, level (0 for all), most runs per level, threads and seed.
+     */
+    public static void main(String[] args) {
+        Properties gameProps = IOUtils.readPropertiesFile(args.length > 0 ? args[0] : "res/app.properties");
+        int levelNumber = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        int maxRuns = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+        int threadCount = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 42L;
+        new DifficultyAnalyzer(gameProps, levelNumber, maxRuns, threadCount, seed).run();
+    }
+}
@@ -2,11 +2,16 @@ import bagel.*;
 import bagel.util.Colour;
 import bagel.util.Rectangle;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 /**
  * Represents Donkey Kong in the game, affected by gravity and platform collisions.
- * The Donkey object moves downward due to gravity and lands on platforms when applicable.
+ * The Donkey object moves downward due to gravity and lands on platforms when applicable,
+ * through the level's {@link GravitySystem}.
  */
-public class Donkey {
+public class Donkey implements FallingBody {
     private final Image DONKEY_IMAGE;
     private final double X; // constant because x does not change, only relying on falling
     private double y;
@@ -27,49 +32,11 @@ public class Donkey {
         this.y = startY;
     }
 
-    /**
-     * Updates Donkey's position by applying gravity and checking for platform collisions.
-     * If Donkey lands on a platform, the velocity is reset to zero.
-     *
-     * @param platforms An array of platforms Donkey can land on.
-     */
-    public void update(Platform[] platforms) {
-        // Apply gravity
-        velocityY += Physics.DONKEY_GRAVITY;
-        y += velocityY;
-        if (velocityY > Physics.DONKEY_TERMINAL_VELOCITY) {
-            velocityY = Physics.DONKEY_TERMINAL_VELOCITY;
-        }
-
-        // Check for platform collisions
-        for (Platform platform : platforms) {
-            if (isTouchingPlatform(platform)) {
-                // Position Donkey on top of the platform
-                y = platform.getY() - (platform.getHeight() / 2) - (DONKEY_IMAGE.getHeight() / 2);
-                velocityY = 0; // Stop downward movement
-                break;
-            }
-        }
-
-        // Draw Donkey
-        draw();
-    }
-
-    /**
-     * Checks if Donkey is colliding with a given platform.
-     *
-     * @param platform The platform to check for collision.
-     * @return {@code true} if Donkey is touching the platform, {@code false} otherwise.
-     */
-    private boolean isTouchingPlatform(Platform platform) {
-        Rectangle donkeyBounds = getBoundingBox();
-        return donkeyBounds.intersects(platform.getBoundingBox());
-    }
-
     /**
      * Draws Donkey on the screen.
      */
     public void draw() {
+        if (ShadowDonkeyKong.isHeadless()) return;
         DONKEY_IMAGE.draw(X, y);
 //        drawBoundingBox(); // Uncomment for debugging
     }
@@ -90,13 +57,54 @@ public class Donkey {
 
     /**
      *  Reduces Donkey's health by 1.
+     *
+     * @param events The bus on which the hit is published.
      */
-    public void decreaseHealth() {
+    public void decreaseHealth(GameEventBus events) {
         if (health > 0) {
             health--;
+            events.publish(GameEventType.DONKEY_HIT, health);
         }
     }
 
+    /**
+     * Gets the x-coordinate of Donkey.
+     *
+     * @return The x-coordinate of Donkey.
+     */
+    public double getX() { return X; }
+
+    /**
+     * Gets the y-coordinate of Donkey.
+     *
+     * @return The current y-coordinate of Donkey.
+     */
+    public double getY() { return y; }
+
+    @Override
+    public boolean isFalling() { return true; }
+
+    @Override
+    public double getVelocityY() { return velocityY; }
+
+    @Override
+    public double getWidth() { return DONKEY_IMAGE.getWidth(); }
+
+    @Override
+    public double getHeight() { return DONKEY_IMAGE.getHeight(); }
+
+    @Override
+    public double getGravity() { return Physics.DONKEY_GRAVITY; }
+
+    @Override
+    public double getTerminalVelocity() { return Physics.DONKEY_TERMINAL_VELOCITY; }
+
+    @Override
+    public void applyFall(double y, double velocityY, Platform platform) {
+        this.y = y;
+        this.velocityY = velocityY;
+    }
+
     /**
      * Returns the current health of Donkey.
      */
@@ -111,5 +119,29 @@ public class Donkey {
         return health <= 0;
     }
 
+    /**
+     * Writes Donkey's dynamic state for a replay keyframe.
+     *
+     * @param out The stream to write to.
+     * @throws IOException If writing fails.
+     */
+    public void writeState(DataOutput out) throws IOException {
+        Physics.writeValue(out, y);
+        Physics.writeValue(out, velocityY);
+        out.writeInt(health);
+    }
+
+    /**
+     * Restores the state written by {@link #writeState(DataOutput)}.
+     *
+     * @param in The stream to read from.
+     * @throws IOException If reading fails.
+     */
+    public void readState(DataInput in) throws IOException {
+        y = Physics.readValue(in);
+        velocityY = Physics.readValue(in);
+        health = in.readInt();
+    }
+
 
 }
@@ -0,0 +1,49 @@
+/**
+ * Counts gameplay events by type, for diagnostics and tuning.
+ * Also tracks the largest number of events seen in a single tick.
+ */
+public class EventTelemetry implements GameEventListener {
+
+    private final long[] counts = new long[GameEventType.values().length];
+    private int eventsThisTick = 0;
+    private int peakEventsPerTick = 0;
+
+    /**
+     * Counts one event.
+     *
+     * @param type  The type of the event.
+     * @param value The event's value (unused).
+     */
+    @Override
+    public void onEvent(GameEventType type, int value) {
+        counts[type.ordinal()]++;
+        eventsThisTick++;
+    }
+
+    /**
+     * Closes the current tick's event count. Called by the level after dispatching.
+     */
+    public void endTick() {
+        peakEventsPerTick = Math.max(peakEventsPerTick, eventsThisTick);
+        eventsThisTick = 0;
+    }
+
+    /**
+     * Gets the number of events of a type seen so far.
+     *
+     * @param type The event type.
+     * @return Total count for the type.
+     */
+    public long getCount(GameEventType type) {
+        return counts[type.ordinal()];
+    }
+
+    /**
+     * Gets the largest number of events dispatched in a single tick.
+     *
+     * @return Peak events per tick.
+     */
+    public int getPeakEventsPerTick() {
+        return peakEventsPerTick;
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ * An entity that falls under gravity and rests on platforms, moved by a {@link GravitySystem}.
+ * The system reads the body's position each tick and hands back where it ended up.
+ */
+public interface FallingBody {
+
+    /**
+     * Checks whether the body takes part in this tick's fall, e.g. it is not destroyed or climbing.
+     *
+     * @return {@code true} if gravity applies to the body.
+     */
+    boolean isFalling();
+
+    /**
+     * Gets the body's centre x-coordinate.
+     *
+     * @return The x-coordinate.
+     */
+    double getX();
+
+    /**
+     * Gets the body's centre y-coordinate.
+     *
+     * @return The y-coordinate.
+     */
+    double getY();
+
+    /**
+     * Gets the body's vertical velocity, positive downwards.
+     *
+     * @return The velocity in pixels per frame.
+     */
+    double getVelocityY();
+
+    /**
+     * Gets the width of the body's bounding box.
+     *
+     * @return The width.
+     */
+    double getWidth();
+
+    /**
+     * Gets the height of the body's bounding box.
+     *
+     * @return The height.
+     */
+    double getHeight();
+
+    /**
+     * Gets the acceleration the body falls with, one of the constants in {@link Physics}.
+     *
+     * @return The gravity in pixels per frame squared.
+     */
+    double getGravity();
+
+    /**
+     * Gets the fastest the body can fall, one of the constants in {@link Physics}.
+     *
+     * @return The terminal velocity in pixels per frame.
+     */
+    double getTerminalVelocity();
+
+    /**
+     * Receives the result of this tick's fall.
+     *
+     * @param y         The new y-coordinate.
+     * @param velocityY The new vertical velocity.
+     * @param platform  The platform the body landed on, or null if it is in the air.
+     */
+    void applyFall(double y, double velocityY, Platform platform);
+}
@@ -0,0 +1,36 @@
+/**
+ * Conversions for 16.16 fixed-point numbers, used by the deterministic physics mode.
+ * A value is stored in an {@code int} as a whole number of 1/65536ths of a pixel, which covers
+ * positions and velocities of about ±32768 pixels.
+ */
+public final class FixedPoint {
+
+    /** Number of bits after the binary point */
+    public static final int FRACTION_BITS = 16;
+
+    /** The fixed-point representation of 1 */
+    public static final int ONE = 1 << FRACTION_BITS;
+
+    private FixedPoint() {
+    }
+
+    /**
+     * Converts a value to fixed point, rounding to the nearest representable value.
+     *
+     * @param value The value to convert.
+     * @return The value in 1/65536ths.
+     */
+    public static int toFixed(double value) {
+        return (int) Math.round(value * ONE);
+    }
+
+    /**
+     * Converts a fixed-point value back to a double. The conversion is exact.
+     *
+     * @param fixed The value in 1/65536ths.
+     * @return The same value as a double.
+     */
+    public static double toDouble(int fixed) {
+        return (double) fixed / ONE;
+    }
+}
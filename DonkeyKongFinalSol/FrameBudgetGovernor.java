@@ -0,0 +1,104 @@
+/**
+ * Keeps a level's update within its frame budget by deferring cosmetic work once frames run long.
+ *
+ * Each update is timed against the budget. After an update overruns it, the governor degrades:
+ * cosmetic tasks, such as rebuilding the HUD's text, only run every few frames, and are skipped outright
+ * in a frame that has already used up its budget. It recovers once an update finishes comfortably
+ * within the budget, so it does not flip back and forth on the frame it saved.
+ *
+ * Only work that changes nothing but the screen may be deferred: skipping anything that changes
+ * the level's state would make a replay diverge from the game it recorded. Costly simulation work,
+ * like chase replanning, is bounded by its own fixed per-tick budget instead. Drawing is never
+ * deferred either: the screen is cleared every frame, so anything not drawn would blink.
+ */
+public class FrameBudgetGovernor {
+
+    /** How much of the budget a frame may use for the governor to stop degrading */
+    private static final double RECOVERY_FRACTION = 0.75;
+
+    /**
+     * How important a task is to a frame.
+     */
+    public enum Priority {
+        ESSENTIAL,  // Always runs
+        COSMETIC    // Only changes what is drawn; may be deferred while degraded
+    }
+
+    private final long BUDGET_NANOS;
+    private final int DEGRADED_INTERVAL;
+
+    private long frameStart = 0;
+    private boolean isDegraded = false;
+    private int degradedFrameCount = 0; // Frames since degrading started
+
+    /** Counters */
+    private long frames = 0;
+    private long overrunFrames = 0;
+    private long degradedFrames = 0;
+    private long skippedTasks = 0;
+
+    /**
+     * Creates a governor.
+     *
+     * @param budgetMillis     The longest an update should take, in milliseconds.
+     * @param degradedInterval While degraded, cosmetic tasks run once every this many frames.
+     */
+    public FrameBudgetGovernor(double budgetMillis, int degradedInterval) {
+        this.BUDGET_NANOS = (long) (budgetMillis * 1_000_000);
+        this.DEGRADED_INTERVAL = Math.max(1, degradedInterval);
+    }
+
+    /**
+     * Starts timing an update. Called first thing in every update.
+     */
+    public void startFrame() {
+        frameStart = System.nanoTime();
+        frames++;
+        if (isDegraded) {
+            degradedFrames++;
+            degradedFrameCount++;
+        }
+    }
+
+    /**
+     * Decides whether a task runs in this frame, counting it if it is skipped.
+     *
+     * @param priority The task's priority.
+     * @return {@code true} if the task should run.
+     */
+    public boolean shouldRun(Priority priority) {
+        if (priority == Priority.ESSENTIAL) {
+            return true;
+        }
+        boolean isDue = !isDegraded
+                || (degradedFrameCount % DEGRADED_INTERVAL == 0 && System.nanoTime() - frameStart <= BUDGET_NANOS);
+        if (!isDue) {
+            skippedTasks++;
+        }
+        return isDue;
+    }
+
+    /**
+     * Stops timing an update and decides whether the next one runs degraded. Called last thing in every update.
+     */
+    public void endFrame() {
+        long elapsed = System.nanoTime() - frameStart;
+        if (elapsed > BUDGET_NANOS) {
+            overrunFrames++;
+            if (!isDegraded) {
+                isDegraded = true;
+                degradedFrameCount = 0;
+            }
+        } else if (elapsed <= BUDGET_NANOS * RECOVERY_FRACTION) {
+            isDegraded = false;
+        }
+    }
+
+    /** Getters */
+    public long getBudgetNanos() { return BUDGET_NANOS; }
+    public boolean isDegraded() { return isDegraded; }
+    public long getFrames() { return frames; }
+    public long getOverrunFrames() { return overrunFrames; }
+    public long getDegradedFrames() { return degradedFrames; }
+    public long getSkippedTasks() { return skippedTasks; }
+}
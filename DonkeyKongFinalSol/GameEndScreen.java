@@ -23,12 +23,6 @@ public class GameEndScreen {
     private final int MESSAGE_DIFF_Y_1 = 60;
     private final int MESSAGE_DIFF_Y_2 = 100;
 
-    // Weight of the scores
-    private final double TIME_WEIGHT = 3.0;
-    private double POINTS_WEIGHT = 1.0;
-
-
-
     // The final score from this playthrough
     private double finalScore = 0.0;
 
@@ -76,15 +70,18 @@ public class GameEndScreen {
      */
     public void setFinalScore(int barrelsDestroyed, int barrelsJumped, 
                         int monkeysDestroyed, int timeRemaining, boolean isWon) {
-        if (isWon) {
-            this.finalScore = (100 * barrelsDestroyed) + 
-                            (30 * barrelsJumped) + 
-                            (3 * timeRemaining) + 
-                            (100 * monkeysDestroyed);
-            
-        } else {
-            this.finalScore = 0; // Score = 0 if player lost
-        }
+        // Score = 0 if player lost
+        this.finalScore = ScoreKeeper.computeFinalScore(barrelsDestroyed, barrelsJumped,
+                monkeysDestroyed, timeRemaining, isWon);
+    }
+
+    /**
+     * Gets the final score computed for this playthrough.
+     *
+     * @return The final score.
+     */
+    public int getFinalScore() {
+        return (int) finalScore;
     }
 
     /**
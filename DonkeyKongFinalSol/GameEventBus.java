@@ -0,0 +1,74 @@
+import java.util.ArrayList;
+
+/**
+ * Collects gameplay events during a tick and hands them to subscribers in one batch.
+ * Events are stored as primitive pairs in a preallocated ring, so publishing never allocates.
+ * The bus is owned by a single level and used by one thread at a time: the one updating the
+ * level, or the one running whichever system holds {@link SystemResource#EVENTS}.
+ */
+public class GameEventBus {
+
+    /** Ring capacity; must be a power of two */
+    private static final int CAPACITY = 256;
+    private static final int MASK = CAPACITY - 1;
+
+    private static final GameEventType[] TYPES = GameEventType.values();
+
+    private final int[] eventTypes = new int[CAPACITY];
+    private final int[] eventValues = new int[CAPACITY];
+    private int head = 0;
+    private int tail = 0;
+
+    private final ArrayList<GameEventListener> listeners = new ArrayList<>();
+
+    /**
+     * Registers a listener. Listeners are called in the order they subscribed.
+     *
+     * @param listener The listener to add.
+     */
+    public void subscribe(GameEventListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Publishes an event with no value.
+     *
+     * @param type The type of the event.
+     */
+    public void publish(GameEventType type) {
+        publish(type, 0);
+    }
+
+    /**
+     * Publishes an event. It is delivered on the next call to {@link #dispatch()}.
+     * If the ring is full, the pending events are dispatched first so nothing is lost.
+     *
+     * @param type  The type of the event.
+     * @param value The event's value.
+     */
+    public void publish(GameEventType type, int value) {
+        if (tail - head == CAPACITY) {
+            dispatch();
+        }
+        int slot = tail & MASK;
+        eventTypes[slot] = type.ordinal();
+        eventValues[slot] = value;
+        tail++;
+    }
+
+    /**
+     * Delivers every pending event to every listener, in publishing order, and empties the ring.
+     * Called once at the end of each tick.
+     */
+    public void dispatch() {
+        while (head != tail) {
+            int slot = head & MASK;
+            GameEventType type = TYPES[eventTypes[slot]];
+            int value = eventValues[slot];
+            head++;
+            for (int i = 0; i < listeners.size(); i++) {
+                listeners.get(i).onEvent(type, value);
+            }
+        }
+    }
+}
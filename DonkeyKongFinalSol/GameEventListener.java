@@ -0,0 +1,13 @@
+/**
+ * Receives gameplay events dispatched by a {@link GameEventBus}.
+ */
+public interface GameEventListener {
+
+    /**
+     * Handles a single event. Called on the game thread when the bus is dispatched.
+     *
+     * @param type  The type of the event.
+     * @param value The event's value; see {@link GameEventType} for its meaning.
+     */
+    void onEvent(GameEventType type, int value);
+}
@@ -0,0 +1,20 @@
+/**
+ * The kinds of gameplay events published on the {@link GameEventBus}.
+ * Each event carries one integer value whose meaning depends on the type.
+ */
+public enum GameEventType {
+    /** Mario jumped over a barrel; value is unused */
+    BARREL_JUMPED,
+
+    /** A barrel was destroyed with the hammer; value is unused */
+    BARREL_DESTROYED,
+
+    /** A monkey was destroyed by the hammer or a bullet; value is unused */
+    MONKEY_DESTROYED,
+
+    /** Donkey Kong was hit by a bullet; value is his remaining health */
+    DONKEY_HIT,
+
+    /** Mario collected an item; value is the number of bullets gained (0 for the hammer) */
+    ITEM_COLLECTED
+}
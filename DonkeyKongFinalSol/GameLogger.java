@@ -0,0 +1,243 @@
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous logger for typed game events.
+ * Callers on the game thread only write the event type and a numeric value into a preallocated
+ * lock-free ring buffer; a background thread formats the messages and writes them to the console or a file.
+ * The game thread never blocks: if the ring is full or an event type is over its rate limit,
+ * the event is dropped and counted instead.
+ */
+public final class GameLogger {
+
+    /** Severity of a log event; events below the current level are discarded immediately */
+    public enum LogLevel { DEBUG, INFO, WARN, OFF }
+
+    /** The events the game can log, with their severity and message prefix */
+    public enum Event {
+        JUMP(LogLevel.DEBUG, "Jumping!", false),
+        HAMMER_COLLECTED(LogLevel.INFO, "Hammer collected!", false),
+        BLASTER_COLLECTED(LogLevel.INFO, "Blaster collected! Total bullets: ", true),
+        BARREL_DESTROYED(LogLevel.INFO, "Barrel destroyed!", false),
+        NORMAL_MONKEY_DESTROYED(LogLevel.INFO, "NormalMonkey destroyed!", false),
+        INTELLIGENT_MONKEY_DESTROYED(LogLevel.INFO, "IntelligentMonkey destroyed!", false);
+
+        private final LogLevel level;
+        private final String message;
+        private final boolean hasValue;
+
+        Event(LogLevel level, String message, boolean hasValue) {
+            this.level = level;
+            this.message = message;
+            this.hasValue = hasValue;
+        }
+    }
+
+    /** Ring capacity; must be a power of two */
+    private static final int CAPACITY = 1024;
+    private static final int MASK = CAPACITY - 1;
+
+    /** Default maximum number of events of one type written per second */
+    private static final int DEFAULT_RATE_LIMIT = 20;
+
+    /** How long the drain thread sleeps when the ring is empty */
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private static final long ONE_SECOND_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final Event[] EVENTS = Event.values();
+
+    /** Ring slots: a slot is free for position p when its sequence is p, and readable when it is p + 1 */
+    private static final AtomicLongArray SEQUENCES = new AtomicLongArray(CAPACITY);
+    private static final int[] TYPES = new int[CAPACITY];
+    private static final long[] VALUES = new long[CAPACITY];
+    private static final AtomicLong TAIL = new AtomicLong();
+    private static long head = 0; // Only touched while holding the drain lock
+
+    /** Rate limiting state per event type */
+    private static final AtomicLongArray WINDOW_START = new AtomicLongArray(EVENTS.length);
+    private static final AtomicIntegerArray WINDOW_COUNT = new AtomicIntegerArray(EVENTS.length);
+    private static final AtomicLong DROPPED = new AtomicLong();
+
+    private static volatile LogLevel level = LogLevel.INFO;
+    private static volatile int rateLimit = DEFAULT_RATE_LIMIT;
+    private static volatile PrintStream output = System.out;
+    private static volatile Thread drainThread;
+
+    static {
+        for (int i = 0; i < CAPACITY; i++) {
+            SEQUENCES.set(i, i);
+        }
+        long start = System.nanoTime() - ONE_SECOND_NANOS;
+        for (int i = 0; i < EVENTS.length; i++) {
+            WINDOW_START.set(i, start);
+        }
+    }
+
+    private GameLogger() {
+    }
+
+    /**
+     * Configures the logger from game properties. Recognised keys are
+     * {@code log.level} (DEBUG, INFO, WARN or OFF), {@code log.rateLimit} (events per type per second)
+     * and {@code log.file} (write to this file instead of the console). Missing keys keep their defaults;
+     * the default level is INFO, so per-jump events are only written with {@code log.level=DEBUG}.
+     *
+     * @param gameProps Game configuration properties.
+     */
+    public static void configure(Properties gameProps) {
+        String levelName = gameProps.getProperty("log.level");
+        if (levelName != null) {
+            setLevel(LogLevel.valueOf(levelName.trim().toUpperCase()));
+        }
+        String limit = gameProps.getProperty("log.rateLimit");
+        if (limit != null) {
+            rateLimit = Integer.parseInt(limit.trim());
+        }
+        String file = gameProps.getProperty("log.file");
+        if (file != null && !file.trim().isEmpty()) {
+            try {
+                output = new PrintStream(new FileOutputStream(file.trim(), true), false);
+            } catch (FileNotFoundException ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Changes the log level at runtime.
+     *
+     * @param newLevel Events below this level are discarded.
+     */
+    public static void setLevel(LogLevel newLevel) {
+        level = newLevel;
+    }
+
+    /**
+     * Checks whether an event would currently be logged. Callers can use this to skip
+     * computing an event value when it would be discarded anyway.
+     *
+     * @param event The event to check.
+     * @return {@code true} if the event's level is enabled.
+     */
+    public static boolean isEnabled(Event event) {
+        return event.level.compareTo(level) >= 0;
+    }
+
+    /**
+     * Logs an event without a value.
+     *
+     * @param event The event to log.
+     */
+    public static void log(Event event) {
+        log(event, 0);
+    }
+
+    /**
+     * Logs an event with a numeric value. Never blocks and never allocates.
+     *
+     * @param event The event to log.
+     * @param value A value appended to the event's message, if the event has one.
+     */
+    public static void log(Event event, long value) {
+        if (!isEnabled(event) || !acquireRate(event.ordinal())) {
+            return;
+        }
+        if (drainThread == null) {
+            startDrainThread();
+        }
+
+        long position;
+        do {
+            position = TAIL.get();
+            if (SEQUENCES.get((int) (position & MASK)) != position) {
+                DROPPED.incrementAndGet(); // Ring is full; drop rather than wait
+                return;
+            }
+        } while (!TAIL.compareAndSet(position, position + 1));
+
+        int slot = (int) (position & MASK);
+        TYPES[slot] = event.ordinal();
+        VALUES[slot] = value;
+        SEQUENCES.set(slot, position + 1); // Publish to the drain thread
+    }
+
+    /**
+     * Gets the number of events dropped because the ring was full or a rate limit was exceeded.
+     *
+     * @return Total number of dropped events.
+     */
+    public static long getDroppedCount() {
+        return DROPPED.get();
+    }
+
+    /** Counts an event against its type's one-second window. */
+    private static boolean acquireRate(int type) {
+        long now = System.nanoTime();
+        long windowStart = WINDOW_START.get(type);
+        if (now - windowStart >= ONE_SECOND_NANOS && WINDOW_START.compareAndSet(type, windowStart, now)) {
+            WINDOW_COUNT.set(type, 0);
+        }
+        if (WINDOW_COUNT.incrementAndGet(type) > rateLimit) {
+            DROPPED.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /** Starts the drain thread on first use. */
+    private static synchronized void startDrainThread() {
+        if (drainThread != null) {
+            return;
+        }
+        drainThread = new Thread(GameLogger::drainLoop, "game-logger");
+        drainThread.setDaemon(true);
+        drainThread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(GameLogger::drain, "game-logger-flush"));
+    }
+
+    /** Body of the drain thread. */
+    private static void drainLoop() {
+        while (true) {
+            if (drain() == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Writes every published event to the output.
+     *
+     * @return Number of events written.
+     */
+    private static synchronized int drain() {
+        int written = 0;
+        PrintStream out = output;
+        while (true) {
+            int slot = (int) (head & MASK);
+            if (SEQUENCES.get(slot) != head + 1) {
+                break;
+            }
+            Event event = EVENTS[TYPES[slot]];
+            if (event.hasValue) {
+                out.println(event.message + VALUES[slot]);
+            } else {
+                out.println(event.message);
+            }
+            SEQUENCES.set(slot, head + CAPACITY); // Hand the slot back to producers
+            head++;
+            written++;
+        }
+        if (written > 0) {
+            out.flush();
+        }
+        return written;
+    }
+}
@@ -0,0 +1,337 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hosts many independent headless games in one JVM for clients connecting over TCP.
+ *
+ * The server has a fixed number of {@link GameSession} slots, all playing the same level, created
+ * up front since levels must be created on the graphics thread. One I/O thread accepts clients,
+ * hands each a free slot and reads their input, all on one selector. A few ticker threads, one per
+ * core by default, play the slots at a fixed tick rate: each owns every n-th slot and ticks all of
+ * them against one shared deadline per tick, so a session's lag is how long after the deadline its
+ * tick started. The tickers' deadlines are staggered across the period so they do not all wake at
+ * once. A ticker that falls more than {@link #MAX_CATCH_UP_TICKS} behind skips the missed ticks
+ * instead of playing them in a burst.
+ *
+ * Protocol and per-session metrics are described in {@link GameSession}.
+ *
+ * Settings, from the game properties: {@code server.host} and {@code server.port}, the address
+ * listened on (loopback, port 7777 by default; port 0 picks a free one), {@code server.tickRate},
+ * ticks per second (60), and {@code server.threads}, the number of ticker threads (one per core).
+ */
+public class GameServer {
+
+    static final int MAGIC = 0x444B5356; // "DKSV"
+    static final int VERSION = 1;
+
+    /** Most ticks a ticker plays late to catch up before it skips them */
+    private static final int MAX_CATCH_UP_TICKS = 3;
+
+    /** Sessions listed individually in a metrics report, worst first */
+    private static final int WORST_SESSIONS_REPORTED = 5;
+
+    private final GameSession[] SESSIONS;
+    private final int LEVEL_NUMBER;
+    private final String HOST;
+    private final int TICK_RATE;
+    private final long PERIOD_NANOS;
+    private final long LATE_NANOS;
+    private final int THREAD_COUNT;
+
+    private ServerSocketChannel serverChannel;
+    private Selector selector;
+    private Thread ioThread;
+    private Thread[] tickers = new Thread[0];
+    private volatile boolean isRunning = false;
+    private int nextSlot = 0; // Where the I/O thread starts looking for a free slot
+
+    /** Counters */
+    private final AtomicLong skippedTicks = new AtomicLong();
+    private final AtomicLong rejectedClients = new AtomicLong();
+
+    /**
+     * Creates the server's slots. Must run on the thread that owns the graphics context.
+     *
+     * @param gameProps    Game configuration the levels and the server settings come from.
+     * @param levelNumber  The level played, 1 or 2.
+     * @param sessionCount The most clients served at once.
+     */
+    public GameServer(Properties gameProps, int levelNumber, int sessionCount) {
+        this.LEVEL_NUMBER = levelNumber;
+        this.HOST = gameProps.getProperty("server.host", "127.0.0.1");
+        this.TICK_RATE = Integer.parseInt(gameProps.getProperty("server.tickRate", "60"));
+        this.PERIOD_NANOS = 1_000_000_000L / TICK_RATE;
+        this.LATE_NANOS = PERIOD_NANOS / 2;
+        int threads = Integer.parseInt(gameProps.getProperty("server.threads",
+                Integer.toString(Runtime.getRuntime().availableProcessors())));
+        this.THREAD_COUNT = Math.max(1, Math.min(threads, sessionCount));
+        ShadowDonkeyKong.setHeadless(true);
+
+        // 1) Load every image the levels may create mid-game while still on the graphics thread
+        Monkey.preloadImages();
+        new Bullet(0, 0, "right");
+        new Banana(0, 0, "right");
+
+        // 2) Create the levels and remember the starting state each game starts from
+        this.SESSIONS = new GameSession[sessionCount];
+        byte[] startState = null;
+        for (int i = 0; i < sessionCount; i++) {
+            Level level = levelNumber == 1 ? new Level1(gameProps) : new Level2(gameProps);
+            if (startState == null) {
+                startState = captureState(level);
+            }
+            SESSIONS[i] = new GameSession(i, levelNumber, TICK_RATE, level, startState);
+        }
+    }
+
+    /**
+     * Starts listening and ticking.
+     *
+     * @param port The port to listen on, or 0 for any free port.
+     * @throws IOException If the port cannot be opened.
+     */
+    public void start(int port) throws IOException {
+        if (isRunning) {
+            throw new IllegalStateException("Server already started");
+        }
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(HOST, port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        isRunning = true;
+
+        ioThread = new Thread(this::ioLoop, "game-server-io");
+        ioThread.setDaemon(true);
+        ioThread.start();
+
+        long epoch = System.nanoTime() + PERIOD_NANOS;
+        tickers = new Thread[THREAD_COUNT];
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            int ticker = i;
+            long firstDeadline = epoch + PERIOD_NANOS * i / THREAD_COUNT;
+            tickers[i] = new Thread(() -> tickLoop(ticker, firstDeadline), "game-server-ticker-" + i);
+            tickers[i].setDaemon(true);
+            tickers[i].start();
+        }
+    }
+
+    /**
+     * Stops the threads and disconnects every client.
+     */
+    public void close() {
+        if (!isRunning) {
+            return;
+        }
+        isRunning = false;
+        selector.wakeup();
+        try {
+            ioThread.join();
+            for (Thread ticker : tickers) {
+                ticker.join();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        for (GameSession session : SESSIONS) {
+            session.close();
+        }
+        try {
+            serverChannel.close();
+            selector.close();
+        } catch (IOException ex) {
+            System.err.println("Error closing the server: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Gets the port the server listens on, e.g. after starting it on port 0.
+     *
+     * @return The port, or -1 before the server started.
+     */
+    public int getPort() {
+        return serverChannel == null ? -1 : serverChannel.socket().getLocalPort();
+    }
+
+    /** Getters */
+    public GameSession[] getSessions() { return SESSIONS; }
+    public int getLevelNumber() { return LEVEL_NUMBER; }
+    public int getTickRate() { return TICK_RATE; }
+    public int getThreadCount() { return THREAD_COUNT; }
+    public long getSkippedTicks() { return skippedTicks.get(); }
+    public long getRejectedClients() { return rejectedClients.get(); }
+
+    /**
+     * Prints the sessions' tick-lag metrics: totals over the connected sessions, then the sessions
+     * with the largest lag.
+     *
+     * @param out The stream to print to.
+     */
+    public void printMetrics(PrintStream out) {
+        int connected = 0;
+        long ticks = 0;
+        long lateTicks = 0;
+        long dropped = 0;
+        double totalLag = 0;
+        long maxLag = 0;
+        for (GameSession session : SESSIONS) {
+            if (session.isTaken()) {
+                connected++;
+            }
+            ticks += session.getTicks();
+            lateTicks += session.getLateTicks();
+            dropped += session.getDroppedFrames();
+            totalLag += session.getMeanLagNanos() * session.getTicks();
+            maxLag = Math.max(maxLag, session.getMaxLagNanos());
+        }
+        out.printf("sessions %d/%d  ticks %d  mean lag %.3f ms  max lag %.3f ms  late %.2f%%  dropped %d  skipped %d  rejected %d%n",
+                connected, SESSIONS.length, ticks, ticks == 0 ? 0 : totalLag / ticks / 1e6, maxLag / 1e6,
+                ticks == 0 ? 0 : 100.0 * lateTicks / ticks, dropped, skippedTicks.get(), rejectedClients.get());
+
+        GameSession[] worst = SESSIONS.clone();
+        Arrays.sort(worst, Comparator.comparingLong(GameSession::getMaxLagNanos).reversed());
+        for (int i = 0; i < Math.min(WORST_SESSIONS_REPORTED, worst.length); i++) {
+            GameSession session = worst[i];
+            if (session.getTicks() == 0) {
+                break;
+            }
+            out.printf("    session %-5d %8d ticks  mean lag %.3f ms  max lag %.3f ms  late %d  dropped %d  games %d%n",
+                    session.getId(), session.getTicks(), session.getMeanLagNanos() / 1e6,
+                    session.getMaxLagNanos() / 1e6, session.getLateTicks(), session.getDroppedFrames(),
+                    session.getGames());
+        }
+    }
+
+    /** Body of a ticker: plays its slots once per period, measuring how late each tick starts. */
+    private void tickLoop(int ticker, long firstDeadline) {
+        long deadline = firstDeadline;
+        while (isRunning) {
+            long now = System.nanoTime();
+            if (now < deadline) {
+                LockSupport.parkNanos(deadline - now);
+                continue;
+            }
+
+            // Too far behind to catch up: skip the missed ticks rather than play a burst
+            long behind = (now - deadline) / PERIOD_NANOS;
+            if (behind > MAX_CATCH_UP_TICKS) {
+                deadline += behind * PERIOD_NANOS;
+                skippedTicks.addAndGet(behind);
+            }
+
+            for (int i = ticker; i < SESSIONS.length; i += THREAD_COUNT) {
+                GameSession session = SESSIONS[i];
+                try {
+                    session.tick(System.nanoTime() - deadline, LATE_NANOS);
+                } catch (RuntimeException ex) {
+                    // One broken game must not stop the others; its client is dropped
+                    System.err.println("Session " + session.getId() + " failed: " + ex);
+                    session.close();
+                }
+            }
+            deadline += PERIOD_NANOS;
+        }
+    }
+
+    /** Body of the I/O thread: accepts clients and reads their input until the server stops. */
+    private void ioLoop() {
+        ByteBuffer rejection = ByteBuffer.allocate(GameSession.HELLO_SIZE);
+        while (isRunning) {
+            try {
+                selector.select();
+            } catch (IOException ex) {
+                System.err.println("Server selector failed: " + ex.getMessage());
+                return;
+            }
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                if (!key.isValid()) {
+                    continue;
+                }
+                if (key.isAcceptable()) {
+                    acceptClients(rejection);
+                } else if (key.isReadable()) {
+                    readClient(key);
+                }
+            }
+        }
+    }
+
+    /** Accepts every pending client, giving each a free slot or turning it away. */
+    private void acceptClients(ByteBuffer rejection) {
+        try {
+            SocketChannel client;
+            while ((client = serverChannel.accept()) != null) {
+                client.configureBlocking(false);
+                client.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                GameSession session = claimSlot(client);
+                if (session == null) {
+                    // A hello always fits a new socket's send buffer
+                    GameSession.writeHello(rejection, -1, LEVEL_NUMBER, TICK_RATE);
+                    client.write(rejection);
+                    client.close();
+                    rejectedClients.incrementAndGet();
+                } else {
+                    client.register(selector, SelectionKey.OP_READ, session);
+                }
+            }
+        } catch (IOException ex) {
+            System.err.println("Error accepting a client: " + ex.getMessage());
+        }
+    }
+
+    /** Reads a client's input, asking for its slot to be closed once it disconnects. */
+    private void readClient(SelectionKey key) {
+        GameSession session = (GameSession) key.attachment();
+        boolean isConnected;
+        try {
+            isConnected = session.readInput((SocketChannel) key.channel());
+        } catch (IOException ex) {
+            isConnected = false;
+        }
+        if (!isConnected) {
+            key.cancel();
+            session.requestClose();
+        }
+    }
+
+    /** Claims the first free slot after the last one handed out, or returns null if all are taken. */
+    private GameSession claimSlot(SocketChannel client) {
+        for (int i = 0; i < SESSIONS.length; i++) {
+            int slot = (nextSlot + i) % SESSIONS.length;
+            if (SESSIONS[slot].claim(client)) {
+                nextSlot = slot + 1;
+                return SESSIONS[slot];
+            }
+        }
+        return null;
+    }
+
+    /** Writes a level's state to a byte array. */
+    private static byte[] captureState(Level level) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            level.writeState(out);
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        return bytes.toByteArray();
+    }
+}
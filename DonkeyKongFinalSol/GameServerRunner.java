@@ -0,0 +1,103 @@
+import bagel.*;
+
+import java.io.IOException;
+import java.util.Properties;
+
+/**
+ * Runs a {@link GameServer} until stopped or for a fixed time, printing its tick-lag metrics
+ * every few seconds.
+ *
+ * The levels need a graphics context to load, so, like {@link VectorEnvBenchmark}, the server is
+ * created and run inside the first frame of a bagel window; the games themselves are headless.
+ *
+ * Usage: {@code java GameServerRunner [level] [sessions] [seconds]}, where 0 seconds serves until
+ * the process is stopped. The address and tick rate come from {@code res/app.properties}.
+ */
+public class GameServerRunner extends AbstractGame {
+
+    private static final long REPORT_INTERVAL_MILLIS = 5000;
+
+    private final Properties GAME_PROPS;
+    private final int LEVEL_NUMBER;
+    private final int SESSION_COUNT;
+    private final int SECONDS;
+    private boolean hasRun = false;
+    private boolean hasFailed = false;
+
+    /**
+     * Constructs the server window using the window size from the game properties.
+     *
+     * @param gameProps    Game configuration properties.
+     * @param levelNumber  The level played, 1 or 2.
+     * @param sessionCount The most clients served at once.
+     * @param seconds      How long to serve, or 0 to serve until stopped.
+     */
+    public GameServerRunner(Properties gameProps, int levelNumber, int sessionCount, int seconds) {
+        super(Integer.parseInt(gameProps.getProperty("window.width")),
+                Integer.parseInt(gameProps.getProperty("window.height")),
+                "Game server");
+        this.GAME_PROPS = gameProps;
+        this.LEVEL_NUMBER = levelNumber;
+        this.SESSION_COUNT = sessionCount;
+        this.SECONDS = seconds;
+        ShadowDonkeyKong.screenWidth = Integer.parseInt(gameProps.getProperty("window.width"));
+        ShadowDonkeyKong.screenHeight = Integer.parseInt(gameProps.getProperty("window.height"));
+        ShadowDonkeyKong.setHeadless(true);
+        GameLogger.setLevel(GameLogger.LogLevel.OFF);
+    }
+
+    /**
+     * Serves on the first frame, then closes the window.
+     *
+     * @param input The current mouse/keyboard input (unused).
+     */
+    @Override
+    protected void update(Input input) {
+        if (hasRun) {
+            return;
+        }
+        hasRun = true;
+
+        GameServer server = new GameServer(GAME_PROPS, LEVEL_NUMBER, SESSION_COUNT);
+        try {
+            server.start(Integer.parseInt(GAME_PROPS.getProperty("server.port", "7777")));
+        } catch (IOException ex) {
+            System.out.println("Cannot start the server: " + ex.getMessage());
+            hasFailed = true;
+            Window.close();
+            return;
+        }
+        System.out.printf("level %d, %d sessions on %d tickers at %d ticks/s, port %d%n", LEVEL_NUMBER,
+                SESSION_COUNT, server.getThreadCount(), server.getTickRate(), server.getPort());
+
+        long end = System.currentTimeMillis() + SECONDS * 1000L;
+        try {
+            while (SECONDS == 0 || System.currentTimeMillis() < end) {
+                long wait = SECONDS == 0 ? REPORT_INTERVAL_MILLIS
+                        : Math.min(REPORT_INTERVAL_MILLIS, end - System.currentTimeMillis());
+                Thread.sleep(Math.max(1, wait));
+                server.printMetrics(System.out);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        server.close();
+
+        Window.close();
+    }
+
+    /**
+     * Entry point for the server.
+     *
+     * @param args Optional level, session count and seconds to serve.
+     */
+    public static void main(String[] args) {
+        Properties gameProps = IOUtils.readPropertiesFile("res/app.properties");
+        int levelNumber = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        int sessionCount = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+        GameServerRunner runner = new GameServerRunner(gameProps, levelNumber, sessionCount, seconds);
+        runner.run();
+        System.exit(runner.hasFailed ? 1 : 0);
+    }
+}
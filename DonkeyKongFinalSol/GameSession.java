@@ -0,0 +1,385 @@
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One slot of a {@link GameServer}: a headless level, the client playing it, and the slot's
+ * tick-lag metrics.
+ *
+ * Levels load images, so every slot's level is created up front on the graphics thread; a client
+ * that connects takes a free slot and plays from the level's starting state. When a game ends the
+ * level starts again, and the client keeps playing until it disconnects.
+ *
+ * Two threads share a slot. The server's I/O thread claims it, feeds it input and, once the client
+ * disconnects, asks for it to be closed; only the ticker thread that owns the slot touches the
+ * level, writes to the client and frees the slot, so a slot is never reused before its ticker let
+ * go of the last client.
+ * Writes never block: while the client has not read the last frame, newer frames are dropped, and
+ * dropped frames are never sent later.
+ *
+ * Every message from the client is one big-endian short, a {@link RecordedControls} mask. Held
+ * keys take effect until the next message; keys pressed are kept until the next tick reads them,
+ * so a press is neither lost nor repeated however messages and ticks interleave. To the client the
+ * server sends one hello, then one state frame per tick:
+ * <pre>
+ * hello: int magic, byte version, int session id (-1 if the server is full), byte level, short tick rate
+ * frame: short length of the rest, int tick, int score, short seconds left, byte flags,
+ *        short Mario x, short Mario y, byte Donkey health, then for barrels, monkeys and projectiles
+ *        in turn a short count followed by a short x and y each
+ * </pre>
+ * Positions are in quarter pixels. The flags are {@link #FLAG_OVER}, {@link #FLAG_WON} and
+ * {@link #FLAG_HAMMER}; a frame with {@link #FLAG_OVER} set is followed by the first frame of the next game.
+ */
+public class GameSession {
+
+    /** State frame flags */
+    public static final int FLAG_OVER = 1;   // The game ended this tick
+    public static final int FLAG_WON = 2;    // ... and Mario won it
+    public static final int FLAG_HAMMER = 4; // Mario holds the hammer
+
+    /** Positions are sent as shorts in units of this fraction of a pixel */
+    public static final int POSITION_SCALE = 4;
+
+    public static final int HELLO_SIZE = 12;
+    private static final int FRAME_HEADER_SIZE = 2 + 4 + 4 + 2 + 1 + 4 + 1;
+    private static final int INPUT_MESSAGE_SIZE = 2;
+    private static final int PRESSED_BITS = 0xFF00; // The "pressed this frame" half of a controls mask
+
+    private final int ID;
+    private final int LEVEL_NUMBER;
+    private final int TICK_RATE;
+    private final Level LEVEL;
+    private final RecordedControls CONTROLS = new RecordedControls();
+
+    // Rewinding this stream restores the starting state without allocating a new one
+    private final ByteArrayInputStream START_BYTES;
+    private final DataInputStream START_STATE;
+
+    /** Claimed by the I/O thread when a client connects, released by the ticker once it closed the client */
+    private final AtomicBoolean isTaken = new AtomicBoolean(false);
+    private volatile SocketChannel pendingChannel; // Handed from the I/O thread to the ticker
+    private volatile boolean isClosing = false;
+    private SocketChannel channel;                 // The connected client; ticker thread only
+    private boolean isWritable = false;            // Cleared once a write fails; ticker thread only
+
+    /** Input, written by the I/O thread */
+    private volatile int heldMask = 0;
+    private final AtomicInteger pressedMask = new AtomicInteger();
+    private final ByteBuffer INPUT = ByteBuffer.allocate(64);
+
+    private ByteBuffer output; // The frame being sent; ticker thread only, grown if a frame outgrows it
+    private int frame = 0;     // Ticks played in the current game
+
+    /** Tick-lag metrics; written by the ticker, readable from any thread */
+    private volatile long ticks = 0;
+    private volatile long lateTicks = 0;
+    private volatile long totalLagNanos = 0;
+    private volatile long maxLagNanos = 0;
+    private volatile long droppedFrames = 0;
+    private volatile long games = 0;
+
+    /**
+     * Creates a slot around a level that has just been created.
+     *
+     * @param id          The slot's number, sent to its clients.
+     * @param levelNumber The level played, 1 or 2.
+     * @param tickRate    Ticks per second, sent to its clients.
+     * @param level       The level, in its starting state.
+     * @param startState  The level's starting state, as written by {@link Level#writeState}.
+     */
+    public GameSession(int id, int levelNumber, int tickRate, Level level, byte[] startState) {
+        this.ID = id;
+        this.LEVEL_NUMBER = levelNumber;
+        this.TICK_RATE = tickRate;
+        this.LEVEL = level;
+        this.START_BYTES = new ByteArrayInputStream(startState);
+        this.START_STATE = new DataInputStream(START_BYTES);
+        this.output = ByteBuffer.allocate(frameCapacity());
+        output.flip(); // Nothing to send yet
+    }
+
+    /**
+     * Claims the slot for a newly connected client. Called on the I/O thread; the client is
+     * greeted on the slot's next tick.
+     *
+     * @param client The client's channel, already non-blocking.
+     * @return {@code true} if the slot was free and is now the client's.
+     */
+    public boolean claim(SocketChannel client) {
+        if (!isTaken.compareAndSet(false, true)) {
+            return false;
+        }
+        heldMask = 0;
+        pressedMask.set(0);
+        INPUT.clear();
+        isClosing = false;
+        pendingChannel = client;
+        return true;
+    }
+
+    /**
+     * Reads whatever input the client sent. Called on the I/O thread when the channel is readable.
+     *
+     * @param client The client's channel.
+     * @return {@code false} if the client disconnected.
+     * @throws IOException If reading fails.
+     */
+    public boolean readInput(SocketChannel client) throws IOException {
+        if (client.read(INPUT) < 0) {
+            return false;
+        }
+        INPUT.flip();
+        while (INPUT.remaining() >= INPUT_MESSAGE_SIZE) {
+            int mask = INPUT.getShort() & 0xFFFF;
+            heldMask = mask & ~PRESSED_BITS;
+            int pressed = mask & PRESSED_BITS;
+            if (pressed != 0) {
+                pressedMask.getAndAccumulate(pressed, (a, b) -> a | b);
+            }
+        }
+        INPUT.compact();
+        return true;
+    }
+
+    /**
+     * Asks the ticker to close the client and free the slot. Called on the I/O thread, once per
+     * client, when the client disconnects.
+     */
+    public void requestClose() {
+        isClosing = true;
+    }
+
+    /**
+     * Plays one tick: greets a newly connected client, advances the level with the latest input
+     * and sends the client a state frame. Called only by the slot's ticker thread.
+     *
+     * @param lagNanos  How long after its deadline this tick started.
+     * @param lateNanos Lag beyond which the tick counts as late.
+     */
+    public void tick(long lagNanos, long lateNanos) {
+        if (isClosing) {
+            close();
+            return;
+        }
+        SocketChannel pending = pendingChannel;
+        if (pending != null) {
+            pendingChannel = null;
+            channel = pending;
+            isWritable = true;
+            restartGame();
+            writeHello(output, ID, LEVEL_NUMBER, TICK_RATE);
+            send();
+        }
+        if (channel == null) {
+            return;
+        }
+
+        // 1) Advance the level with the held keys and the keys pressed since the last tick
+        CONTROLS.setMask(heldMask | pressedMask.getAndSet(0));
+        boolean isOver = LEVEL.update(CONTROLS);
+        frame++;
+
+        // 2) Send the frame, unless the client is still reading the last one
+        if (output.hasRemaining()) {
+            send();
+        }
+        if (output.hasRemaining() || !isWritable) {
+            droppedFrames++;
+        } else {
+            writeFrame(isOver);
+            send();
+        }
+
+        // 3) Start the next game straight away
+        if (isOver) {
+            restartGame();
+        }
+
+        ticks++;
+        totalLagNanos += lagNanos;
+        if (lagNanos > maxLagNanos) {
+            maxLagNanos = lagNanos;
+        }
+        if (lagNanos > lateNanos) {
+            lateTicks++;
+        }
+    }
+
+    /**
+     * Closes the client, if any, and frees the slot. Called only by the slot's ticker thread,
+     * or once the server has stopped.
+     */
+    public void close() {
+        SocketChannel pending = pendingChannel;
+        pendingChannel = null;
+        closeQuietly(pending);
+        closeQuietly(channel);
+        channel = null;
+        isWritable = false;
+        output.clear().flip();
+        isClosing = false;
+        isTaken.set(false);
+    }
+
+    /** Getters */
+    public int getId() { return ID; }
+    public boolean isTaken() { return isTaken.get(); }
+    public long getTicks() { return ticks; }
+    public long getLateTicks() { return lateTicks; }
+    public long getMaxLagNanos() { return maxLagNanos; }
+    public long getDroppedFrames() { return droppedFrames; }
+    public long getGames() { return games; }
+
+    /**
+     * Gets how long after their deadlines this slot's ticks started, on average.
+     *
+     * @return The mean lag in nanoseconds, or 0 before the first tick.
+     */
+    public double getMeanLagNanos() {
+        long count = ticks;
+        return count == 0 ? 0 : (double) totalLagNanos / count;
+    }
+
+    /**
+     * Writes the hello a client receives on connecting.
+     *
+     * @param out         The buffer to write to; flipped, ready to send.
+     * @param sessionId   The client's slot, or -1 if the server is full.
+     * @param levelNumber The level the slot plays.
+     * @param tickRate    Ticks per second.
+     */
+    public static void writeHello(ByteBuffer out, int sessionId, int levelNumber, int tickRate) {
+        out.clear();
+        out.putInt(GameServer.MAGIC);
+        out.put((byte) GameServer.VERSION);
+        out.putInt(sessionId);
+        out.put((byte) levelNumber);
+        out.putShort((short) tickRate);
+        out.flip();
+    }
+
+    /** Restores the level's starting state for a new game. */
+    private void restartGame() {
+        START_BYTES.reset();
+        try {
+            LEVEL.readState(START_STATE);
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        frame = 0;
+        games++;
+    }
+
+    /** Writes this tick's state frame into the output buffer, ready to send. */
+    private void writeFrame(boolean isOver) {
+        int capacity = frameCapacity();
+        if (output.capacity() < capacity) {
+            output = ByteBuffer.allocate(capacity);
+        }
+        Mario mario = LEVEL.getMario();
+        int flags = (isOver ? FLAG_OVER : 0)
+                | (isOver && LEVEL.isLevelCompleted() ? FLAG_WON : 0)
+                | (mario.holdHammer() ? FLAG_HAMMER : 0);
+
+        ByteBuffer out = output;
+        out.clear();
+        out.putShort((short) 0); // The length, filled in once the frame is complete
+        out.putInt(frame);
+        out.putInt(LEVEL.getScore());
+        out.putShort((short) LEVEL.getSecondsLeft());
+        out.put((byte) flags);
+        putPosition(out, mario.getX(), mario.getY());
+        out.put((byte) LEVEL.getDonkey().getHealth());
+
+        // 1) Barrels still in play
+        int countAt = out.position();
+        int count = 0;
+        out.putShort((short) 0);
+        for (Barrel barrel : LEVEL.getBarrels()) {
+            if (barrel != null && !barrel.isDestroyed()) {
+                putPosition(out, barrel.getX(), barrel.getY());
+                count++;
+            }
+        }
+        out.putShort(countAt, (short) count);
+
+        // 2) Monkeys, then bananas and bullets; level 1 has neither
+        countAt = out.position();
+        count = 0;
+        out.putShort((short) 0);
+        if (LEVEL instanceof Level2) {
+            for (Monkey monkey : ((Level2) LEVEL).getMonkeys()) {
+                if (!monkey.isDestroyed()) {
+                    putPosition(out, monkey.getX(), monkey.getY());
+                    count++;
+                }
+            }
+        }
+        out.putShort(countAt, (short) count);
+
+        countAt = out.position();
+        count = 0;
+        out.putShort((short) 0);
+        if (LEVEL instanceof Level2) {
+            ProjectileStore<Banana> bananas = ((Level2) LEVEL).getBananas();
+            for (int i = 0; i < bananas.size(); i++) {
+                putPosition(out, bananas.get(i).getX(), bananas.get(i).getY());
+                count++;
+            }
+            ProjectileStore<Bullet> bullets = ((Level2) LEVEL).getBullets();
+            for (int i = 0; i < bullets.size(); i++) {
+                putPosition(out, bullets.get(i).getX(), bullets.get(i).getY());
+                count++;
+            }
+        }
+        out.putShort(countAt, (short) count);
+
+        out.putShort(0, (short) (out.position() - 2));
+        out.flip();
+    }
+
+    /** Writes as much of the output buffer as the client takes without blocking. */
+    private void send() {
+        if (!isWritable) {
+            return;
+        }
+        try {
+            channel.write(output);
+        } catch (IOException ex) {
+            // The client went away; the I/O thread sees it too and asks for the slot to be closed
+            isWritable = false;
+            output.position(output.limit());
+        }
+    }
+
+    /** Gets the largest frame the level can produce, from its entity counts. */
+    private int frameCapacity() {
+        int entities = LEVEL.getBarrels().length;
+        if (LEVEL instanceof Level2) {
+            Level2 level2 = (Level2) LEVEL;
+            entities += level2.getMonkeys().length + level2.getBananas().size() + level2.getBullets().size();
+        }
+        return Math.max(HELLO_SIZE, FRAME_HEADER_SIZE + 3 * 2 + entities * 4);
+    }
+
+    /** Writes a position in quarter pixels. */
+    private static void putPosition(ByteBuffer out, double x, double y) {
+        out.putShort((short) Math.round(x * POSITION_SCALE));
+        out.putShort((short) Math.round(y * POSITION_SCALE));
+    }
+
+    private static void closeQuietly(SocketChannel client) {
+        if (client == null) {
+            return;
+        }
+        try {
+            client.close();
+        } catch (IOException ignored) {
+            // Already gone
+        }
+    }
+}
@@ -0,0 +1,83 @@
+import java.util.EnumSet;
+import java.util.function.BooleanSupplier;
+
+/**
+ * One phase of a level's update, e.g. moving the bananas, declared with the state it reads and writes
+ * so a {@link SystemScheduler} can tell which phases may run at the same time.
+ *
+ * The declaration must cover everything the phase touches, including what the entities it calls
+ * touch; a phase that reads state it does not declare may see it half-updated.
+ */
+public class GameSystem {
+
+    private final String NAME;
+    private final long READS;
+    private final long WRITES;
+    private final Runnable BODY;
+    private BooleanSupplier isActive = () -> true;
+    private FrameBudgetGovernor.Priority priority = FrameBudgetGovernor.Priority.ESSENTIAL;
+
+    /**
+     * Declares a system.
+     *
+     * @param name   The name shown in critical path reports.
+     * @param reads  The resources the system only reads.
+     * @param writes The resources the system changes.
+     * @param body   The work done each tick.
+     */
+    public GameSystem(String name, EnumSet<SystemResource> reads, EnumSet<SystemResource> writes, Runnable body) {
+        this.NAME = name;
+        this.READS = SystemResource.maskOf(reads);
+        this.WRITES = SystemResource.maskOf(writes);
+        this.BODY = body;
+    }
+
+    /**
+     * Makes the system run only on ticks where a condition holds, e.g. while there are bullets.
+     * The condition is checked before the tick starts, so it must not depend on this tick's work.
+     *
+     * @param condition The condition.
+     * @return This system.
+     */
+    public GameSystem onlyWhen(BooleanSupplier condition) {
+        this.isActive = condition;
+        return this;
+    }
+
+    /**
+     * Sets how important the system is to a frame; cosmetic systems may be deferred under load.
+     *
+     * @param priority The priority.
+     * @return This system.
+     */
+    public GameSystem withPriority(FrameBudgetGovernor.Priority priority) {
+        this.priority = priority;
+        return this;
+    }
+
+    /**
+     * Checks whether this system must finish before another one starts, or the other way round:
+     * one of them writes a resource the other reads or writes.
+     *
+     * @param other   The other system.
+     * @param ignored Resources left out of the check.
+     * @return {@code true} if the two systems conflict.
+     */
+    public boolean conflictsWith(GameSystem other, long ignored) {
+        long writes = WRITES & ~ignored;
+        long otherWrites = other.WRITES & ~ignored;
+        return (writes & (other.READS | otherWrites)) != 0 || (READS & otherWrites) != 0;
+    }
+
+    /**
+     * Runs the system's work for this tick.
+     */
+    public void run() {
+        BODY.run();
+    }
+
+    /** Getters */
+    public String getName() { return NAME; }
+    public boolean isActive() { return isActive.getAsBoolean(); }
+    public FrameBudgetGovernor.Priority getPriority() { return priority; }
+}
@@ -0,0 +1,122 @@
+import bagel.DrawOptions;
+import bagel.Image;
+import bagel.util.Colour;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Draws a translucent "ghost" Mario following a track recorded by {@link GhostRecorder}.
+ * The track is streamed from disk in small chunks while the level plays, so only a few hundred
+ * bytes of it are in memory at a time, and each frame costs two variable-length integer reads.
+ */
+public class GhostPlayer {
+
+    /** Bytes read from disk at a time */
+    private static final int CHUNK_SIZE = 512;
+
+    /** Opacity of the ghost sprite */
+    private static final double GHOST_ALPHA = 0.4;
+
+    private final InputStream IN;
+    private final Image GHOST_RIGHT_IMAGE;
+    private final Image GHOST_LEFT_IMAGE;
+    private final DrawOptions GHOST_OPTIONS = new DrawOptions().setBlendColour(new Colour(1, 1, 1, GHOST_ALPHA));
+
+    private boolean hasFirstFrame = false;
+    private boolean isFinished = false;
+    private boolean isFacingRight = true;
+    private long x;
+    private long y;
+
+    private GhostPlayer(InputStream in) {
+        this.IN = in;
+        this.GHOST_RIGHT_IMAGE = new Image("res/mario_right.png");
+        this.GHOST_LEFT_IMAGE = new Image("res/mario_left.png");
+    }
+
+    /**
+     * Opens a ghost track.
+     *
+     * @param fileName Path of the ghost file.
+     * @return A player for the track, or {@code null} if there is no valid ghost at that path.
+     */
+    public static GhostPlayer open(String fileName) {
+        try {
+            InputStream in = new BufferedInputStream(new FileInputStream(fileName), CHUNK_SIZE);
+            if (new DataInputStream(in).readInt() != GhostRecorder.MAGIC) {
+                in.close();
+                return null;
+            }
+            return new GhostPlayer(in);
+        } catch (IOException ex) {
+            return null; // No ghost recorded for this level yet
+        }
+    }
+
+    /**
+     * Advances the ghost by one frame and draws it. Once the track ends, the ghost stops being drawn.
+     */
+    public void update() {
+        if (isFinished) {
+            return;
+        }
+        try {
+            long dx = readVarLong();
+            long dy = readVarLong();
+            if (hasFirstFrame) {
+                if (dx != 0) {
+                    isFacingRight = dx > 0;
+                }
+                x += dx;
+                y += dy;
+            } else {
+                x = dx;
+                y = dy;
+                hasFirstFrame = true;
+            }
+        } catch (IOException ex) {
+            close();
+            return;
+        }
+
+        if (!ShadowDonkeyKong.isHeadless()) {
+            Image image = isFacingRight ? GHOST_RIGHT_IMAGE : GHOST_LEFT_IMAGE;
+            image.draw((double) x / GhostRecorder.SCALE, (double) y / GhostRecorder.SCALE, GHOST_OPTIONS);
+        }
+    }
+
+    /**
+     * Stops the ghost and closes its file.
+     */
+    public void close() {
+        isFinished = true;
+        try {
+            IN.close();
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    /** Reads one zig-zag encoded variable-length integer from the track. */
+    private long readVarLong() throws IOException {
+        long zigZag = 0;
+        int shift = 0;
+        while (true) {
+            int b = IN.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            zigZag |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+            shift += 7;
+        }
+        return (zigZag >>> 1) ^ -(zigZag & 1);
+    }
+}
@@ -0,0 +1,89 @@
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Records Mario's position every frame as a compact ghost track.
+ *
+ * Positions are quantized to 1/{@value #SCALE} of a pixel. The first frame is stored as absolute
+ * coordinates and every later frame as the change from the previous one. Each value is
+ * zig-zag encoded into a variable-length integer, so a frame where Mario barely moves costs two bytes.
+ */
+public class GhostRecorder {
+
+    /** Quantization steps per pixel */
+    static final int SCALE = 16;
+
+    static final int MAGIC = 0x444B4754; // "DKGT"
+
+    private final ByteArrayOutputStream TRACK = new ByteArrayOutputStream(4096);
+    private boolean hasFirstFrame = false;
+    private long lastX;
+    private long lastY;
+
+    /**
+     * Records Mario's position for the current frame.
+     *
+     * @param x Mario's x-coordinate.
+     * @param y Mario's y-coordinate.
+     */
+    public void record(double x, double y) {
+        long qx = Math.round(x * SCALE);
+        long qy = Math.round(y * SCALE);
+        if (hasFirstFrame) {
+            writeVarLong(qx - lastX);
+            writeVarLong(qy - lastY);
+        } else {
+            writeVarLong(qx);
+            writeVarLong(qy);
+            hasFirstFrame = true;
+        }
+        lastX = qx;
+        lastY = qy;
+    }
+
+    /**
+     * Writes the track to a file on a background thread, replacing any existing ghost.
+     * The track is written to a temporary file first so a reader never sees a partial ghost.
+     *
+     * @param fileName Path of the ghost file.
+     */
+    public void saveAsync(String fileName) {
+        byte[] track = TRACK.toByteArray();
+        Thread writer = new Thread(() -> {
+            Path path = Paths.get(fileName);
+            Path temp = Paths.get(fileName + ".tmp");
+            try {
+                if (path.getParent() != null) {
+                    Files.createDirectories(path.getParent());
+                }
+                try (OutputStream out = new FileOutputStream(temp.toFile())) {
+                    out.write(MAGIC >>> 24);
+                    out.write(MAGIC >>> 16);
+                    out.write(MAGIC >>> 8);
+                    out.write(MAGIC);
+                    out.write(track);
+                }
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException ex) {
+                ex.printStackTrace();
+            }
+        }, "ghost-writer");
+        writer.start();
+    }
+
+    /** Appends a zig-zag encoded variable-length integer to the track. */
+    private void writeVarLong(long value) {
+        long zigZag = (value << 1) ^ (value >> 63);
+        while ((zigZag & ~0x7FL) != 0) {
+            TRACK.write((int) ((zigZag & 0x7F) | 0x80));
+            zigZag >>>= 7;
+        }
+        TRACK.write((int) zigZag);
+    }
+}
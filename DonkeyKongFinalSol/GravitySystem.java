@@ -0,0 +1,204 @@
+import java.util.Arrays;
+
+/**
+ * Moves every falling body of a level under gravity and lands it on platforms, in one pass.
+ *
+ * Each tick the bodies that are falling are gathered into primitive arrays, integrated together
+ * and then landed on the first platform they overlap, which snaps them onto its top and stops
+ * their fall. Every kind of body follows the same order: accelerate, clamp to terminal velocity,
+ * move, land. The integration loop is free of branches and calls so the JIT can vectorize it.
+ *
+ * Platforms never move, so their edges are computed once. Bodies keep their own state between
+ * ticks, which means replay keyframes need nothing from the system.
+ *
+ * No body's fall depends on another's, so with many bodies the registered range is split into
+ * slices that run in parallel through {@link ParallelFor}. Each slice packs its falling bodies
+ * into its own part of the arrays, so the results do not depend on the split.
+ */
+public class GravitySystem {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int PARALLEL_THRESHOLD; // Fewest bodies worth splitting across threads
+
+    /** Platform edges, computed as their bounding boxes are */
+    private final Platform[] PLATFORMS;
+    private final double[] PLATFORM_LEFT;
+    private final double[] PLATFORM_RIGHT;
+    private final double[] PLATFORM_TOP;
+    private final double[] PLATFORM_BOTTOM;
+
+    /** Registered bodies and their per-kind constants */
+    private FallingBody[] bodies = new FallingBody[INITIAL_CAPACITY];
+    private double[] gravity = new double[INITIAL_CAPACITY];
+    private double[] terminalVelocity = new double[INITIAL_CAPACITY];
+    private int bodyCount = 0;
+
+    /** This tick's falling bodies, packed to the front of the arrays */
+    private int[] active = new int[INITIAL_CAPACITY];
+    private double[] x = new double[INITIAL_CAPACITY];
+    private double[] y = new double[INITIAL_CAPACITY];
+    private double[] velocityY = new double[INITIAL_CAPACITY];
+    private double[] width = new double[INITIAL_CAPACITY];
+    private double[] height = new double[INITIAL_CAPACITY];
+    private double[] activeGravity = new double[INITIAL_CAPACITY];
+    private double[] activeTerminalVelocity = new double[INITIAL_CAPACITY];
+
+    /**
+     * Creates an empty system for a level's platforms that always runs on the calling thread.
+     *
+     * @param platforms The platforms bodies land on, in the order they are checked.
+     */
+    public GravitySystem(Platform[] platforms) {
+        this(platforms, 0);
+    }
+
+    /**
+     * Creates an empty system for a level's platforms.
+     *
+     * @param platforms         The platforms bodies land on, in the order they are checked.
+     * @param parallelThreshold The fewest bodies worth splitting across threads; zero or less never splits.
+     */
+    public GravitySystem(Platform[] platforms, int parallelThreshold) {
+        this.PARALLEL_THRESHOLD = parallelThreshold;
+        int count = 0;
+        for (Platform platform : platforms) {
+            if (platform != null) {
+                count++;
+            }
+        }
+        this.PLATFORMS = new Platform[count];
+        this.PLATFORM_LEFT = new double[count];
+        this.PLATFORM_RIGHT = new double[count];
+        this.PLATFORM_TOP = new double[count];
+        this.PLATFORM_BOTTOM = new double[count];
+        int p = 0;
+        for (Platform platform : platforms) {
+            if (platform != null) {
+                PLATFORMS[p] = platform;
+                PLATFORM_LEFT[p] = platform.getX() - (platform.getWidth() / 2);
+                PLATFORM_RIGHT[p] = PLATFORM_LEFT[p] + platform.getWidth();
+                PLATFORM_TOP[p] = platform.getY() - (platform.getHeight() / 2);
+                PLATFORM_BOTTOM[p] = PLATFORM_TOP[p] + platform.getHeight();
+                p++;
+            }
+        }
+    }
+
+    /**
+     * Registers a body, reading its gravity and terminal velocity once.
+     *
+     * @param body The body to move from now on.
+     */
+    public void add(FallingBody body) {
+        if (bodyCount == bodies.length) {
+            grow(bodyCount * 2);
+        }
+        bodies[bodyCount] = body;
+        gravity[bodyCount] = body.getGravity();
+        terminalVelocity[bodyCount] = body.getTerminalVelocity();
+        bodyCount++;
+    }
+
+    /**
+     * Moves every falling body by one tick and lands it on platforms.
+     */
+    public void update() {
+        ParallelFor.run(bodyCount, PARALLEL_THRESHOLD, this::updateSlice);
+    }
+
+    /**
+     * Moves the registered bodies {@code from} up to {@code to}, packing the falling ones into the
+     * same range of the gathered arrays so slices never share a slot.
+     */
+    private void updateSlice(int from, int to) {
+        // 1) Gather the bodies that fall this tick
+        int end = from;
+        for (int i = from; i < to; i++) {
+            FallingBody body = bodies[i];
+            if (body.isFalling()) {
+                active[end] = i;
+                x[end] = body.getX();
+                y[end] = body.getY();
+                velocityY[end] = body.getVelocityY();
+                width[end] = body.getWidth();
+                height[end] = body.getHeight();
+                activeGravity[end] = gravity[i];
+                activeTerminalVelocity[end] = terminalVelocity[i];
+                end++;
+            }
+        }
+
+        // 2) Integrate them all at once
+        if (Physics.isFixedPoint()) {
+            integrateFixedPoint(from, end);
+        } else {
+            integrate(from, end);
+        }
+
+        // 3) Land each body on the first platform it overlaps and hand back the result
+        for (int k = from; k < end; k++) {
+            int platform = findOverlappingPlatform(k);
+            if (platform >= 0) {
+                y[k] = PLATFORM_TOP[platform] - (height[k] / 2);
+                velocityY[k] = 0;
+            }
+            bodies[active[k]].applyFall(y[k], velocityY[k], platform >= 0 ? PLATFORMS[platform] : null);
+        }
+    }
+
+    /** Getters */
+    public int getBodyCount() { return bodyCount; }
+
+    /** Accelerates, clamps and moves the gathered bodies {@code from} up to {@code to}. */
+    private void integrate(int from, int to) {
+        for (int k = from; k < to; k++) {
+            double velocity = Math.min(velocityY[k] + activeGravity[k], activeTerminalVelocity[k]);
+            velocityY[k] = velocity;
+            y[k] += velocity;
+        }
+    }
+
+    /** The same steps in 16.16 fixed point; see {@link Physics#add(double, double)}. */
+    private void integrateFixedPoint(int from, int to) {
+        for (int k = from; k < to; k++) {
+            double velocity = Math.min(Physics.add(velocityY[k], activeGravity[k]), activeTerminalVelocity[k]);
+            velocityY[k] = velocity;
+            y[k] = Physics.add(y[k], velocity);
+        }
+    }
+
+    /**
+     * Finds the first platform a gathered body overlaps, testing the edges as
+     * {@link bagel.util.Rectangle#intersects} does: boxes that only touch do not overlap.
+     *
+     * @return The platform's index, or -1 if there is none.
+     */
+    private int findOverlappingPlatform(int k) {
+        double left = x[k] - (width[k] / 2);
+        double right = left + width[k];
+        double top = y[k] - (height[k] / 2);
+        double bottom = top + height[k];
+        for (int p = 0; p < PLATFORMS.length; p++) {
+            if (left < PLATFORM_RIGHT[p] && right > PLATFORM_LEFT[p]
+                    && top < PLATFORM_BOTTOM[p] && bottom > PLATFORM_TOP[p]) {
+                return p;
+            }
+        }
+        return -1;
+    }
+
+    private void grow(int capacity) {
+        bodies = Arrays.copyOf(bodies, capacity);
+        gravity = Arrays.copyOf(gravity, capacity);
+        terminalVelocity = Arrays.copyOf(terminalVelocity, capacity);
+        active = Arrays.copyOf(active, capacity);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        velocityY = Arrays.copyOf(velocityY, capacity);
+        width = Arrays.copyOf(width, capacity);
+        height = Arrays.copyOf(height, capacity);
+        activeGravity = Arrays.copyOf(activeGravity, capacity);
+        activeTerminalVelocity = Arrays.copyOf(activeTerminalVelocity, capacity);
+    }
+}
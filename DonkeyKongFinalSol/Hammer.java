@@ -4,6 +4,10 @@ import bagel.Image;
 import bagel.util.Colour;
 import bagel.util.Rectangle;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 /**
  * Represents a Hammer collectible in the game.
  * The hammer can be collected by the player, at which point it disappears from the screen.
@@ -50,7 +54,7 @@ public class Hammer {
      * Draws the hammer on the screen if it has not been collected.
      */
     public void draw() {
-        if (!isCollected) {
+        if (!isCollected && !ShadowDonkeyKong.isHeadless()) {
             HAMMER_IMAGE.draw(X, Y); // Bagel centers images automatically
 //            drawBoundingBox(); // Uncomment for debugging
         }
@@ -72,4 +76,38 @@ public class Hammer {
         return isCollected;
     }
 
+    /**
+     * Gets the x-coordinate of the hammer.
+     *
+     * @return The x-coordinate of the hammer.
+     */
+    public double getX() { return X; }
+
+    /**
+     * Gets the y-coordinate of the hammer.
+     *
+     * @return The y-coordinate of the hammer.
+     */
+    public double getY() { return Y; }
+
+    /**
+     * Writes the hammer's dynamic state for a replay keyframe.
+     *
+     * @param out The stream to write to.
+     * @throws IOException If writing fails.
+     */
+    public void writeState(DataOutput out) throws IOException {
+        out.writeBoolean(isCollected);
+    }
+
+    /**
+     * Restores the state written by {@link #writeState(DataOutput)}.
+     *
+     * @param in The stream to read from.
+     * @throws IOException If reading fails.
+     */
+    public void readState(DataInput in) throws IOException {
+        isCollected = in.readBoolean();
+    }
+
 }
@@ -19,13 +19,24 @@ public class HomeScreen {
 
     private int selectedLevel = 0;         // Variable to track the selected level
 
+    // Leaderboard of past runs, drawn below the prompt
+    private static final String LEADERBOARD_MESSAGE = "BEST LEVEL ";
+    private static final int LEADERBOARD_DIFF_Y = 60;
+    private static final int LEADERBOARD_LINE_DIFF_Y = 30;
+    private final RunHistoryStore RUN_HISTORY;
+    private String[] leaderboardLines = new String[0]; // Rebuilt only when the leaderboard changes
+    private int leaderboardVersion = -1;
+
     /**
      * Constructs the HomeScreen, loading images, fonts, and text properties.
      *
      * @param gameProps Properties file containing image paths and font details.
      * @param msgProps  Properties file containing title and prompt text.
+     * @param runHistory Store of past runs whose best scores are shown on the screen.
      */
-    public HomeScreen(Properties gameProps, Properties msgProps) {
+    public HomeScreen(Properties gameProps, Properties msgProps, RunHistoryStore runHistory) {
+        RUN_HISTORY = runHistory;
+
         // Load the background image from properties
         BACKGROUND_IMAGE = new Image(gameProps.getProperty("backgroundImage"));
 
@@ -68,21 +79,58 @@ public class HomeScreen {
         double promptX = Window.getWidth() / 2 - PROMPT_FONT.getWidth(PROMPT) / 2;
         PROMPT_FONT.drawString(PROMPT, promptX, PROMPT_Y);
 
-        // 4) If ENTER is pressed, transition from the home screen to level 1
+        // 4) Draw the best scores for each level, centered horizontally
+        drawLeaderboard();
+
+        // 5) If ENTER is pressed, transition from the home screen to level 1
         if (input.wasPressed(Keys.ENTER)) {
             selectedLevel=1;
             return true;
         }
-        // 5) If 2 is pressed, transition from the home screen to level 2
+        // 6) If 2 is pressed, transition from the home screen to level 2
         if(input.wasPressed(Keys.NUM_2)) {
             selectedLevel=2;
             return true;
         }
 
-        // 6) Otherwise, remain on the home screen
+        // 7) Otherwise, remain on the home screen
         return false;
     }
 
+    /**
+     * Draws one line per level listing its best scores.
+     * The lines are rebuilt only when the run history reports a new leaderboard version.
+     */
+    private void drawLeaderboard() {
+        int version = RUN_HISTORY.getVersion();
+        if (version != leaderboardVersion) {
+            leaderboardVersion = version;
+            leaderboardLines = new String[] {
+                    formatLeaderboardLine(1),
+                    formatLeaderboardLine(2)
+            };
+        }
+        double lineY = PROMPT_Y + LEADERBOARD_DIFF_Y;
+        for (String line : leaderboardLines) {
+            double lineX = Window.getWidth() / 2 - PROMPT_FONT.getWidth(line) / 2;
+            PROMPT_FONT.drawString(line, lineX, lineY);
+            lineY += LEADERBOARD_LINE_DIFF_Y;
+        }
+    }
+
+    /** Formats the best scores of one level as a single line. */
+    private String formatLeaderboardLine(int level) {
+        StringBuilder line = new StringBuilder(LEADERBOARD_MESSAGE).append(level).append(':');
+        int[] scores = RUN_HISTORY.getTopScores(level);
+        if (scores.length == 0) {
+            line.append(" -");
+        }
+        for (int score : scores) {
+            line.append(' ').append(score);
+        }
+        return line.toString();
+    }
+
     /**
      *
      *  Getter method to return the selected level
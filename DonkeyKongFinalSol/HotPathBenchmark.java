@@ -0,0 +1,386 @@
+import bagel.*;
+import bagel.util.Rectangle;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+/**
+ * Micro-benchmark harness for the per-frame simulation hot paths.
+ * Runs every workload headless (no draw calls) inside the first frame of a bagel window,
+ * since images need a graphics context to load, then prints the results and closes the window.
+ *
+ * Each workload is warmed up before it is measured. Results report the average time per
+ * operation and, where the JVM supports it, the bytes allocated per operation on the game thread.
+ *
+ * Usage: {@code java HotPathBenchmark [measurementIterations]}
+ */
+public class HotPathBenchmark extends AbstractGame {
+
+    /** Sizes of the dense scenes used by the entity workloads */
+    private static final int PLATFORM_COUNT = 2000;
+    private static final int LADDER_COUNT = 400;
+    private static final int BARREL_COUNT = 2000;
+    private static final int MONKEY_COUNT = 1000;
+    private static final int BULLET_COUNT = 200;
+
+    /** Vertical distance between rows of platforms in the dense scenes */
+    private static final int ROW_SPACING = 100;
+
+    /** Size of the generated arena used for the full Level2 tick */
+    private static final int STRESS_BARRELS = 10000;
+    private static final int STRESS_MONKEYS = 2000;
+    private static final int STRESS_PLATFORM_TILES = 5000;
+    private static final long STRESS_SEED = 42L;
+    private static final int STRESS_ITERATIONS = 50;
+
+    private static final int WARMUP_ITERATIONS = 2000;
+    private static final int DEFAULT_ITERATIONS = 5000;
+
+    private final Properties GAME_PROPS;
+    private final int ITERATIONS;
+    private boolean hasRun = false;
+
+    /**
+     * Constructs the benchmark window using the window size from the game properties.
+     *
+     * @param gameProps  Game configuration properties.
+     * @param iterations Number of measured iterations per workload.
+     */
+    public HotPathBenchmark(Properties gameProps, int iterations) {
+        super(Integer.parseInt(gameProps.getProperty("window.width")),
+                Integer.parseInt(gameProps.getProperty("window.height")),
+                "Hot path benchmark");
+        this.GAME_PROPS = gameProps;
+        this.ITERATIONS = iterations;
+        ShadowDonkeyKong.screenWidth = Integer.parseInt(gameProps.getProperty("window.width"));
+        ShadowDonkeyKong.screenHeight = Integer.parseInt(gameProps.getProperty("window.height"));
+        ShadowDonkeyKong.setHeadless(true);
+    }
+
+    /**
+     * Runs all workloads on the first frame, then closes the window.
+     *
+     * @param input The current mouse/keyboard input (unused; workloads run with no keys held).
+     */
+    @Override
+    protected void update(Input input) {
+        if (hasRun) {
+            return;
+        }
+        hasRun = true;
+        Controls controls = new RecordedControls(); // No keys held
+
+        System.out.printf("%-28s %14s %14s%n", "benchmark", "ns/op", "bytes/op");
+        benchmarkMario(controls);
+        benchmarkBarrels();
+        benchmarkMonkeys();
+        benchmarkBulletsVsMonkeys();
+        benchmarkBulletsVsMonkeysKernel();
+        benchmarkBulletsVsMonkeysSweep();
+        benchmarkPlatformQueries();
+        benchmarkLevel2Tick(controls);
+
+        Window.close();
+    }
+
+    /** Mario.update against a dense set of platforms and ladders. */
+    private void benchmarkMario(Controls controls) {
+        Platform[] platforms = createPlatforms(PLATFORM_COUNT);
+        Ladder[] ladders = createLadders(LADDER_COUNT);
+        Hammer hammer = new Hammer(-1000, -1000);
+        Blaster[] blasters = new Blaster[0];
+        Mario mario = new Mario(ShadowDonkeyKong.getScreenWidth() / 2, 0);
+        measure("Mario.update", () -> mario.update(controls, ladders, platforms, hammer, blasters));
+    }
+
+    /** GravitySystem.update falling and landing every barrel. */
+    private void benchmarkBarrels() {
+        Platform[] platforms = createPlatforms(PLATFORM_COUNT);
+        GravitySystem gravitySystem = new GravitySystem(platforms);
+        for (int i = 0; i < BARREL_COUNT; i++) {
+            gravitySystem.add(new Barrel(columnX(i), 0));
+        }
+        measure("Barrel gravity x" + BARREL_COUNT, gravitySystem::update);
+    }
+
+    /** GravitySystem.update plus the Monkey.update route walking loop over every monkey. */
+    private void benchmarkMonkeys() {
+        Platform[] platforms = createPlatforms(PLATFORM_COUNT);
+        Monkey[] monkeys = createMonkeys(MONKEY_COUNT);
+        GravitySystem gravitySystem = new GravitySystem(platforms);
+        for (Monkey monkey : monkeys) {
+            gravitySystem.add(monkey);
+        }
+        measure("Monkey.update x" + MONKEY_COUNT, () -> {
+            gravitySystem.update();
+            for (Monkey monkey : monkeys) {
+                monkey.update(platforms);
+            }
+        });
+    }
+
+    /**
+     * The bullet-vs-monkey collision loop from {@link Level2#update(Controls)}.
+     * Bullets are not removed on a hit so every iteration does the same amount of work.
+     */
+    private void benchmarkBulletsVsMonkeys() {
+        Monkey[] monkeys = createMonkeys(MONKEY_COUNT);
+        Bullet[] bullets = new Bullet[BULLET_COUNT];
+        for (int i = 0; i < bullets.length; i++) {
+            bullets[i] = new Bullet(columnX(i * 7), rowY(i), i % 2 == 0 ? "right" : "left");
+        }
+        int[] hits = new int[1];
+        measure("Bullets vs monkeys", () -> {
+            for (Bullet bullet : bullets) {
+                for (Monkey monkey : monkeys) {
+                    if (!monkey.isDestroyed() && bullet.getBoundingBox().intersects(monkey.getBoundingBox())) {
+                        hits[0]++;
+                        break;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * The same bullet-vs-monkey test through an {@link AabbKernel}: the monkeys are packed once
+     * per iteration and each bullet queries them all at once.
+     */
+    private void benchmarkBulletsVsMonkeysKernel() {
+        Monkey[] monkeys = createMonkeys(MONKEY_COUNT);
+        Bullet[] bullets = new Bullet[BULLET_COUNT];
+        for (int i = 0; i < bullets.length; i++) {
+            bullets[i] = new Bullet(columnX(i * 7), rowY(i), i % 2 == 0 ? "right" : "left");
+        }
+        AabbKernel monkeyBoxes = new AabbKernel(MONKEY_COUNT);
+        long[] monkeyHits = new long[AabbKernel.maskLength(MONKEY_COUNT)];
+        int[] hits = new int[1];
+        measure("Bullets vs monkeys (kernel)", () -> {
+            monkeyBoxes.clear();
+            for (Monkey monkey : monkeys) {
+                if (!monkey.isDestroyed()) {
+                    monkeyBoxes.add(monkey.getBoundingBox());
+                } else {
+                    monkeyBoxes.addEmpty();
+                }
+            }
+            for (Bullet bullet : bullets) {
+                if (monkeyBoxes.query(bullet.getBoundingBox(), monkeyHits) > 0) {
+                    hits[0]++;
+                }
+            }
+        });
+    }
+
+    /**
+     * The same bullet-vs-monkey test through a {@link SweepAndPrune}: the monkeys are re-sorted
+     * along x once per iteration and each bullet only tests those in its x-range.
+     */
+    private void benchmarkBulletsVsMonkeysSweep() {
+        Monkey[] monkeys = createMonkeys(MONKEY_COUNT);
+        Bullet[] bullets = new Bullet[BULLET_COUNT];
+        for (int i = 0; i < bullets.length; i++) {
+            bullets[i] = new Bullet(columnX(i * 7), rowY(i), i % 2 == 0 ? "right" : "left");
+        }
+        SweepAndPrune monkeySweep = new SweepAndPrune(MONKEY_COUNT);
+        int[] monkeyHits = new int[MONKEY_COUNT];
+        int[] hits = new int[1];
+        measure("Bullets vs monkeys (sweep)", () -> {
+            for (int j = 0; j < monkeys.length; j++) {
+                Monkey monkey = monkeys[j];
+                if (!monkey.isDestroyed()) {
+                    double left = monkey.getX() - (monkey.getWidth() / 2);
+                    double top = monkey.getY() - (monkey.getHeight() / 2);
+                    monkeySweep.set(j, left, top, left + monkey.getWidth(), top + monkey.getHeight());
+                } else {
+                    monkeySweep.setEmpty(j);
+                }
+            }
+            monkeySweep.sort();
+            for (Bullet bullet : bullets) {
+                if (monkeySweep.query(bullet.getBoundingBox(), monkeyHits) > 0) {
+                    hits[0]++;
+                }
+            }
+        });
+    }
+
+    /** One box against every platform: pairwise {@code Rectangle.intersects}, then the packed query. */
+    private void benchmarkPlatformQueries() {
+        Platform[] platforms = createPlatforms(PLATFORM_COUNT);
+        AabbKernel platformBoxes = AabbKernel.ofPlatforms(platforms);
+        long[] platformHits = platformBoxes.newMask();
+        Rectangle[] queries = new Rectangle[BULLET_COUNT];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = new Rectangle(columnX(i * 7) - 10, rowY(i) - 10, 20, 20);
+        }
+        int[] hits = new int[1];
+        measure("Platform AABB (pairwise)", () -> {
+            for (Rectangle query : queries) {
+                for (Platform platform : platforms) {
+                    if (query.intersects(platform.getBoundingBox())) {
+                        hits[0]++;
+                    }
+                }
+            }
+        });
+        measure("Platform AABB (kernel)", () -> {
+            for (Rectangle query : queries) {
+                if (platformBoxes.query(query, platformHits) > 0) {
+                    hits[0]++;
+                }
+            }
+        });
+    }
+
+    /** A full Level2 tick using the shipped level configuration and a generated stress arena. */
+    private void benchmarkLevel2Tick(Controls controls) {
+        Level2 level = new Level2(GAME_PROPS);
+        measure("Level2.update", () -> level.update(controls));
+
+        Properties arena = StressArenaGenerator.generate(GAME_PROPS,
+                STRESS_BARRELS, STRESS_MONKEYS, STRESS_PLATFORM_TILES, STRESS_SEED);
+        arena.setProperty("gamePlay.maxFrames", String.valueOf(Integer.MAX_VALUE));
+        Level2 stressLevel = new Level2(arena);
+        measure("Level2.update (stress)", () -> stressLevel.update(controls), STRESS_ITERATIONS);
+
+        Properties chaseArena = (Properties) arena.clone();
+        chaseArena.setProperty("intelligentMonkey.chase", "true");
+        Level2 chaseLevel = new Level2(chaseArena);
+        measure("Level2.update (stress chase)", () -> chaseLevel.update(controls), STRESS_ITERATIONS);
+
+        measure("Level2.update (bot)", new BotTick(new Level2(GAME_PROPS)));
+    }
+
+    /**
+     * One Level2 tick played by a {@link MarioBot}, so Mario moves, jumps, shoots and collects items
+     * as he would in a real game. When the level ends it is restored to its starting state and
+     * played again by a fresh bot.
+     */
+    private static final class BotTick implements Runnable {
+        private final Level LEVEL;
+        private final byte[] START_STATE;
+        private MarioBot bot = new MarioBot();
+
+        private BotTick(Level level) {
+            this.LEVEL = level;
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                level.writeState(out);
+            } catch (IOException ex) {
+                throw new IllegalStateException(ex);
+            }
+            this.START_STATE = bytes.toByteArray();
+        }
+
+        @Override
+        public void run() {
+            bot.update(LEVEL);
+            if (LEVEL.update(bot)) {
+                try {
+                    LEVEL.readState(new DataInputStream(new ByteArrayInputStream(START_STATE)));
+                } catch (IOException ex) {
+                    throw new IllegalStateException(ex);
+                }
+                bot = new MarioBot();
+            }
+        }
+    }
+
+    /**
+     * Warms up and then measures a workload, printing the time and allocation per operation.
+     *
+     * @param name     Name printed in the results table.
+     * @param workload The operation to measure.
+     */
+    private void measure(String name, Runnable workload) {
+        measure(name, workload, ITERATIONS);
+    }
+
+    /**
+     * Warms up and then measures a workload for a fixed number of iterations.
+     * Warmup is capped at the number of measured iterations so slow workloads finish in reasonable time.
+     *
+     * @param name       Name printed in the results table.
+     * @param workload   The operation to measure.
+     * @param iterations Number of measured iterations.
+     */
+    private void measure(String name, Runnable workload, int iterations) {
+        for (int i = 0; i < Math.min(WARMUP_ITERATIONS, iterations); i++) {
+            workload.run();
+        }
+
+        long bytesBefore = AllocationTracker.allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            workload.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        long bytes = AllocationTracker.allocatedBytes() - bytesBefore;
+
+        String bytesPerOp = bytes < 0 ? "n/a" : String.format("%.1f", (double) bytes / iterations);
+        System.out.printf("%-28s %14.1f %14s%n", name, (double) elapsed / iterations, bytesPerOp);
+    }
+
+    /** Fills the screen with rows of platform tiles, bottom row first. */
+    private static Platform[] createPlatforms(int count) {
+        Platform[] platforms = new Platform[count];
+        for (int i = 0; i < count; i++) {
+            platforms[i] = new Platform(columnX(i), rowY(i));
+        }
+        return platforms;
+    }
+
+    /** Spreads ladders across the rows of the dense platform scene. */
+    private static Ladder[] createLadders(int count) {
+        Ladder[] ladders = new Ladder[count];
+        for (int i = 0; i < count; i++) {
+            ladders[i] = new Ladder(columnX(i * 5), rowY(i * 5) - ROW_SPACING / 2.0);
+        }
+        return ladders;
+    }
+
+    /** Creates an even mix of normal and intelligent monkeys spread across the rows. */
+    private static Monkey[] createMonkeys(int count) {
+        Monkey[] monkeys = new Monkey[count];
+        int[] route = {100, 60, 100};
+        for (int i = 0; i < count; i++) {
+            double x = columnX(i * 3);
+            double y = rowY(i * 3) - ROW_SPACING / 2.0;
+            String direction = i % 2 == 0 ? "right" : "left";
+            monkeys[i] = i % 2 == 0
+                    ? new NormalMonkey(x, y, direction, route)
+                    : new IntelligentMonkey(x, y, direction, route);
+        }
+        return monkeys;
+    }
+
+    /** X-coordinate of the n-th tile when tiles wrap across the screen in 40 pixel columns. */
+    private static double columnX(int n) {
+        int columns = (int) (ShadowDonkeyKong.getScreenWidth() / 40);
+        return 20 + (n % columns) * 40;
+    }
+
+    /** Y-coordinate of the row holding the n-th tile, wrapping back to the bottom when full. */
+    private static double rowY(int n) {
+        int columns = (int) (ShadowDonkeyKong.getScreenWidth() / 40);
+        int rows = (int) (ShadowDonkeyKong.getScreenHeight() / ROW_SPACING);
+        int row = (n / columns) % rows;
+        return ShadowDonkeyKong.getScreenHeight() - 10 - row * ROW_SPACING;
+    }
+
+    /**
+     * Entry point for the benchmark harness.
+     *
+     * @param args Optional number of measured iterations per workload.
+     */
+    public static void main(String[] args) {
+        Properties gameProps = IOUtils.readPropertiesFile("res/app.properties");
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ITERATIONS;
+        new HotPathBenchmark(gameProps, iterations).run();
+    }
+}
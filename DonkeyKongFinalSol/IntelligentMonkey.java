@@ -3,19 +3,31 @@ import bagel.util.Rectangle;
 import bagel.util.Colour;
 
 import java.awt.event.InputEvent;
-import java.util.ArrayList;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 /**
  * Represents IntelligentMonkey in the game, affected by gravity and platform collisions.
  * The IntelligentMonkey object moves downward due to gravity and lands on platforms when applicable.
+ * When given a {@link ChasePlanner} it chases Mario across platforms and ladders instead of following its route.
  */
 public class IntelligentMonkey extends Monkey {
 
-    private ArrayList<Banana> bananas;  // Reference to the bananas list from Level2
+    private boolean hasThrownBanana = false; // Threw this tick and the level has not taken the banana yet
 
 
-    private static final double BANANA_THROW_DELAY = 5000;  // 5 seconds delay between banana throws
-    private double lastThrowTime;
+    private static final int BANANA_THROW_DELAY = 300;  // 5 seconds (at 60 frames per second) between banana throws
+    private int framesSinceThrow = 0; // Counted in frames rather than wall time so replays are deterministic
+
+    private static final double CHASE_SPEED = 1;       // Walking speed while chasing
+    private static final double CHASE_CLIMB_SPEED = 1; // Climbing speed while chasing
+
+    private ChasePlanner chasePlanner; // Null unless chasing is enabled
+    private int chaseSource = -1;      // Surfaces the current route runs between; -1 if there is no route
+    private int chaseTarget = -1;
+    private int chaseIndex = 0;        // The route edge being followed
+    private boolean isClimbing = false;
 
 
     /**
@@ -25,33 +37,216 @@ public class IntelligentMonkey extends Monkey {
      * @param direction Direction the monkey is facing ("left" or "right").
      * @param route  The route the monkey follows.
      */
-    public IntelligentMonkey(double x, double y, String direction, int[] route, ArrayList<Banana> bananas) {
+    public IntelligentMonkey(double x, double y, String direction, int[] route) {
         super(x, y, Physics.INTELLIGENT_MONKEY_GRAVITY, Physics.INTELLIGENT_MONKEY_TERMINAL_VELOCITY,
-                 new Image("res/intelli_monkey_" + direction + ".png"),
+                 getImage("res/intelli_monkey_" + direction + ".png"),
                 direction, route);
-        
-        this.lastThrowTime = System.currentTimeMillis();  // Initialize last throw time
-        this.bananas = bananas;  // Initialize the bananas list
+    }
 
+    /**
+     * Hands over the banana thrown during the last update, if any, so the level can track it.
+     * The banana is only created here, on the level's thread, since updates may run on worker
+     * threads that cannot load images.
+     *
+     * @return The thrown banana, or null if the monkey did not throw one.
+     */
+    public Banana takeThrownBanana() {
+        if (!hasThrownBanana) {
+            return null;
+        }
+        hasThrownBanana = false;
+        return new Banana(x, y, direction);
+    }
+
+    /**
+     * Makes the monkey chase Mario along routes from the given planner.
+     *
+     * @param chasePlanner The level's chase planner.
+     */
+    public void setChasePlanner(ChasePlanner chasePlanner) {
+        this.chasePlanner = chasePlanner;
     }
 
      @Override
     public void update(Platform[] platforms) {
-        super.update(platforms);
+        if (chasePlanner != null && chasePlanner.isReady()) {
+            chase();
+        } else {
+            super.update(platforms);
+        }
 
         // Check if it's time to throw a banana
-        double currentTime = System.currentTimeMillis();
-        if (currentTime - lastThrowTime >= BANANA_THROW_DELAY) {
+        framesSinceThrow++;
+        if (framesSinceThrow >= BANANA_THROW_DELAY) {
             throwBanana();
-            lastThrowTime = currentTime;
+            framesSinceThrow = 0;
+        }
+
+    }
+
+    /**
+     * Checks whether the monkey needs a new route: it has none, Mario has moved to another surface,
+     * or the monkey is somewhere its route does not go. Monkeys are only replanned while standing.
+     *
+     * @param graph        The level's navigation graph.
+     * @param marioSurface The surface Mario is on, or -1 if there is none below him.
+     * @return {@code true} if {@link #replanChase} should be called.
+     */
+    public boolean needsChaseReplan(NavigationGraph graph, int marioSurface) {
+        if (isClimbing || !onPlatform || marioSurface == -1) {
+            return false;
+        }
+        int surface = graph.findSurfaceBelow(getBoundingBox());
+        if (surface == -1) {
+            return false;
+        }
+        if (chaseSource == -1 || chaseTarget != marioSurface) {
+            return true;
+        }
+        int[] path = chasePlanner.getCache().get(chaseSource, chaseTarget);
+        if (path == null || chaseIndex >= path.length) {
+            return surface != chaseTarget;
         }
+        int edge = path[chaseIndex];
+        return surface != graph.getEdgeFromSurface(edge) && surface != graph.getEdgeToSurface(edge);
+    }
 
+    /**
+     * Starts a new route from the monkey's surface to Mario's.
+     *
+     * @param graph        The level's navigation graph.
+     * @param marioSurface The surface Mario is on.
+     */
+    public void replanChase(NavigationGraph graph, int marioSurface) {
+        chaseSource = graph.findSurfaceBelow(getBoundingBox());
+        chaseTarget = marioSurface;
+        chaseIndex = 0;
+    }
+
+    /**
+     * Moves the monkey along its route: climbing, or walking once the {@link GravitySystem} has landed it.
+     */
+    private void chase() {
+        if (isDestroyed) {
+            return;
+        }
+        NavigationGraph graph = chasePlanner.getGraph();
+        int[] path = chaseSource == -1 ? null : chasePlanner.getCache().get(chaseSource, chaseTarget);
+        if (isClimbing) {
+            climb(graph, path[chaseIndex]);
+        } else if (onPlatform) {
+            followRoute(graph, path);
+        }
+        draw();
+    }
+
+    /**
+     * Checks whether gravity applies to the monkey; it does not while climbing a ladder.
+     *
+     * @return {@code true} if the monkey falls this tick.
+     */
+    @Override
+    public boolean isFalling() {
+        return super.isFalling() && !isClimbing;
+    }
+
+    /** Takes one step along the current route edge, or towards Mario once on his surface. */
+    private void followRoute(NavigationGraph graph, int[] path) {
+        int surface = graph.findSurfaceBelow(getBoundingBox());
+        if (path == null || chaseIndex >= path.length) {
+            // On Mario's surface, or no route to it: close in without walking off the edge
+            if (surface != -1) {
+                double halfWidth = monkeyImage.getWidth() / 2;
+                double left = graph.getSurfaceLeft(surface) + halfWidth;
+                double right = graph.getSurfaceRight(surface) - halfWidth;
+                walkTowards(Math.max(left, Math.min(right, chasePlanner.getMarioX())));
+            }
+            return;
+        }
+
+        int edge = path[chaseIndex];
+        switch (graph.getEdgeType(edge)) {
+            case WALK:
+                if (walkTowards(graph.getEdgeToX(edge))) {
+                    chaseIndex++;
+                }
+                break;
+            case CLIMB:
+                if (walkTowards(graph.getEdgeFromX(edge))) {
+                    isClimbing = true;
+                }
+                break;
+            case DROP:
+                // Walk off the end; gravity does the rest
+                if (surface == graph.getEdgeToSurface(edge)) {
+                    chaseIndex++;
+                } else {
+                    walkTowards(graph.getEdgeToX(edge));
+                }
+                break;
+            default:
+                chaseIndex++; // Monkeys are never given jumps
+                break;
+        }
+    }
+
+    /** Climbs one step along a ladder edge, stepping off at the surface it leads to. */
+    private void climb(NavigationGraph graph, int edge) {
+        double targetTop = graph.getSurfaceTop(graph.getEdgeToSurface(edge));
+        double halfHeight = monkeyImage.getHeight() / 2;
+        boolean isUpward = targetTop < graph.getSurfaceTop(graph.getEdgeFromSurface(edge));
+        y = Physics.add(y, isUpward ? -CHASE_CLIMB_SPEED : CHASE_CLIMB_SPEED);
+        velocityY = 0;
+        if (isUpward ? y + halfHeight <= targetTop : y + halfHeight >= targetTop) {
+            y = targetTop - halfHeight;
+            isClimbing = false;
+            chaseIndex++;
+        }
+    }
+
+    /**
+     * Walks one step towards a point, facing the way it walks.
+     *
+     * @return {@code true} if the monkey has reached the point.
+     */
+    private boolean walkTowards(double targetX) {
+        double dx = targetX - x;
+        if (Math.abs(dx) <= CHASE_SPEED) {
+            x = targetX;
+            return true;
+        }
+        String newDirection = dx > 0 ? "right" : "left";
+        if (!newDirection.equals(direction)) {
+            direction = newDirection;
+            updateImage();
+        }
+        x = Physics.add(x, dx > 0 ? CHASE_SPEED : -CHASE_SPEED);
+        return false;
     }
 
         private void throwBanana() {
-        // Create a new banana in the direction the monkey is facing
-        Banana banana = new Banana(x, y, direction);
-        bananas.add(banana);
+        // Throw a banana in the direction the monkey is facing; it is created when the level takes it
+        hasThrownBanana = true;
+    }
+
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        super.writeState(out);
+        out.writeInt(framesSinceThrow);
+        out.writeInt(chaseSource);
+        out.writeInt(chaseTarget);
+        out.writeInt(chaseIndex);
+        out.writeBoolean(isClimbing);
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+        super.readState(in);
+        framesSinceThrow = in.readInt();
+        chaseSource = in.readInt();
+        chaseTarget = in.readInt();
+        chaseIndex = in.readInt();
+        isClimbing = in.readBoolean();
     }
 
 
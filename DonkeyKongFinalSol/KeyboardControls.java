@@ -0,0 +1,29 @@
+import bagel.Input;
+import bagel.Keys;
+
+/**
+ * {@link Controls} backed by bagel's live keyboard input.
+ * A single instance is reused; the game hands it the current frame's input before each update.
+ */
+public class KeyboardControls implements Controls {
+    private Input input;
+
+    /**
+     * Sets the input for the current frame.
+     *
+     * @param input The current mouse/keyboard input.
+     */
+    public void setInput(Input input) {
+        this.input = input;
+    }
+
+    @Override
+    public boolean isDown(Keys key) {
+        return input.isDown(key);
+    }
+
+    @Override
+    public boolean wasPressed(Keys key) {
+        return input.wasPressed(key);
+    }
+}
@@ -2,11 +2,17 @@ import bagel.*;
 import bagel.util.Colour;
 import bagel.util.Rectangle;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 /**
  * Represents a ladder in the game.
- * The ladder falls under gravity until it lands on a platform.
+ * The ladder falls under gravity until it lands on a platform, moved by the level's {@link GravitySystem}.
  */
-public class Ladder {
+public class Ladder implements FallingBody {
+    public static final String IMAGE_FILE = "res/ladder.png";
+
     private final Image LADDER_IMAGE;
     private final double X; // constant because x does not change, only relying on falling
     private double y;
@@ -14,6 +20,7 @@ public class Ladder {
     public static double height;
 
     private double velocityY = 0; // Current vertical velocity due to gravity
+    private boolean hasLanded = false; // Whether the ladder has come to rest on a platform
 
     /**
      * Constructs a ladder at the specified position.
@@ -22,7 +29,7 @@ public class Ladder {
      * @param startY The initial y-coordinate.
      */
     public Ladder(double startX, double startY) {
-        this.LADDER_IMAGE = new Image("res/ladder.png");
+        this.LADDER_IMAGE = new Image(IMAGE_FILE);
         this.X = startX;
         this.y = startY;
         width = LADDER_IMAGE.getWidth();
@@ -33,45 +40,11 @@ public class Ladder {
      * Draws the ladder on the screen.
      */
     public void draw() {
+        if (ShadowDonkeyKong.isHeadless()) return;
         LADDER_IMAGE.draw(X, y);
 //        drawBoundingBox(); // Uncomment for debugging
     }
 
-    /**
-     * Updates the ladder's position by applying gravity and checking for platform collisions.
-     * If a collision is detected, the ladder stops falling and rests on the platform.
-     *
-     * @param platforms An array of platforms in the game.
-     */
-    public void update(Platform[] platforms) {
-        // 1) Apply gravity
-        velocityY += Physics.LADDER_GRAVITY;
-
-        // 2) Limit falling speed to terminal velocity
-        if (velocityY > Physics.LADDER_TERMINAL_VELOCITY) {
-            velocityY = Physics.LADDER_TERMINAL_VELOCITY;
-        }
-
-        // 3) Move the ladder downward
-        y += velocityY;
-
-        // 4) Check for collision with platforms
-        for (Platform platform : platforms) {
-            if (getBoundingBox().intersects(platform.getBoundingBox())) {
-                // Position the ladder on top of the platform
-                y = platform.getY()
-                        - (platform.getHeight() / 2)  // Platform top edge
-                        - (this.getHeight() / 2);     // Ladder height offset
-
-                velocityY = 0; // Stop falling
-                break; // Stop checking further once the ladder lands
-            }
-        }
-
-        // 5) Draw the ladder after updating position
-        draw();
-    }
-
     /**
      * Returns the bounding box of the ladder for collision detection.
      *
@@ -122,4 +95,58 @@ public class Ladder {
     public double getHeight() {
         return height;
     }
+
+    @Override
+    public boolean isFalling() { return true; }
+
+    @Override
+    public double getVelocityY() { return velocityY; }
+
+    @Override
+    public double getGravity() { return Physics.LADDER_GRAVITY; }
+
+    @Override
+    public double getTerminalVelocity() { return Physics.LADDER_TERMINAL_VELOCITY; }
+
+    @Override
+    public void applyFall(double y, double velocityY, Platform platform) {
+        this.y = y;
+        this.velocityY = velocityY;
+        if (platform != null) {
+            hasLanded = true;
+        }
+    }
+
+    /**
+     * Checks whether the ladder has come to rest on a platform.
+     *
+     * @return {@code true} once the ladder has landed.
+     */
+    public boolean hasLanded() {
+        return hasLanded;
+    }
+
+    /**
+     * Writes the ladder's dynamic state for a replay keyframe.
+     *
+     * @param out The stream to write to.
+     * @throws IOException If writing fails.
+     */
+    public void writeState(DataOutput out) throws IOException {
+        Physics.writeValue(out, y);
+        Physics.writeValue(out, velocityY);
+        out.writeBoolean(hasLanded);
+    }
+
+    /**
+     * Restores the state written by {@link #writeState(DataOutput)}.
+     *
+     * @param in The stream to read from.
+     * @throws IOException If reading fails.
+     */
+    public void readState(DataInput in) throws IOException {
+        y = Physics.readValue(in);
+        velocityY = Physics.readValue(in);
+        hasLanded = in.readBoolean();
+    }
 }
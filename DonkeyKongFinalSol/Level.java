@@ -1,5 +1,8 @@
 import bagel.*;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Properties;
 
 /**
@@ -17,7 +20,41 @@ public abstract class Level {
     protected Hammer hammer;
     protected Donkey donkey;
     protected Image background;
+    protected static final String BACKGROUND_FILE = "res/background.png";
+    protected final StaticLayer staticLayer = new StaticLayer(BACKGROUND_FILE);
+    private boolean isSceneryCached = false; // This frame's scenery, ladders included, came from the static layer
     protected Platform[] platforms;
+    protected Blaster[] blasters = new Blaster[0];
+
+    /** Navigation graph of the level's static geometry, built once every ladder has landed */
+    protected NavigationGraph navigationGraph;
+
+    /** Moves every falling body of the level; created once the level's objects exist */
+    protected GravitySystem gravitySystem;
+
+    /** Spawns and despawns recorded during a tick, applied together at the end of it */
+    protected final CommandBuffer commands = new CommandBuffer();
+
+    /** The barrels not yet despawned, packed to the front; {@code barrels} keeps every barrel for replays */
+    protected Barrel[] liveBarrels = new Barrel[0];
+    protected int liveBarrelCount = 0;
+
+    /** Fewest entities of a kind worth updating across threads; zero or less never splits */
+    protected final int PARALLEL_THRESHOLD;
+
+    // Defers cosmetic work while updates run over their frame budget
+    protected final FrameBudgetGovernor frameBudget;
+
+    // Counts the bytes each frame and phase allocates, once enabled
+    protected final AllocationTracker allocations = new AllocationTracker();
+
+    /** This tick's contact of each live barrel with Mario, indexed like {@code liveBarrels} */
+    protected byte[] barrelContacts = new byte[0];
+    protected static final byte CONTACT_TOUCHING = 2; // Mario touches it
+
+    // Barrels sorted by x, which never changes, so crossings only look at the barrels Mario passed
+    private AxisIndex barrelCrossings;
+    private int[] crossedBarrels;
 
     /** Frame tracking for time management */
     protected int currFrame = 0;
@@ -27,18 +64,27 @@ public abstract class Level {
     protected final Font STATUS_FONT;
     protected final int SCORE_X;
     protected final int SCORE_Y;
+    protected final int HEALTH_X;
+    protected final int HEALTH_Y;
 
-    /**COunters for each scoring component */
-    protected int barrelsDestroyed = 0;
-    protected int barrelsJumped = 0;
-    protected int monkeysDestroyed = 0;
-
+    /** HUD text, rebuilt only when the value it shows changes; null until first built */
+    private String scoreText;
+    private String timeText;
+    private String healthText;
+    private String bulletText;
+    private int shownScore;
+    private int shownSecondsLeft;
+    private int shownHealth;
+    private int shownBullets;
 
-    /** Score tracking */
-    protected int score = 0;
+    /** Gameplay events published during a tick, and the subscribers that score them */
+    protected final GameEventBus events = new GameEventBus();
+    protected final ScoreKeeper scoreKeeper = new ScoreKeeper();
+    protected final EventTelemetry telemetry = new EventTelemetry();
 
     /** Game state flag */
     protected boolean isGameOver = false;
+    protected DeathCause deathCause = DeathCause.NONE; // The first reason the level was lost
 
     /** UI labels */
     protected static final String SCORE_MESSAGE = "SCORE ";
@@ -53,6 +99,7 @@ public abstract class Level {
     protected static final int BARREL_SCORE = 100;
     protected static final int BARREL_CROSS_SCORE = 30;
     protected static final int MONKEY_SCORE = 100;
+    protected static final int TIME_SCORE = 3;
 
     /**
      * Constructs a Level using configuration from a properties file.
@@ -68,7 +115,16 @@ public abstract class Level {
         );
         this.SCORE_X = Integer.parseInt(gameProps.getProperty("gamePlay.score.x"));
         this.SCORE_Y = Integer.parseInt(gameProps.getProperty("gamePlay.score.y"));
-        this.background = new Image("res/background.png");
+        String[] healthCoords = gameProps.getProperty("gamePlay.donkeyhealth.coords", "0,0").split(",");
+        this.HEALTH_X = Integer.parseInt(healthCoords[0].trim());
+        this.HEALTH_Y = Integer.parseInt(healthCoords[1].trim());
+        this.PARALLEL_THRESHOLD = Integer.parseInt(gameProps.getProperty("gamePlay.parallel.threshold", "1000"));
+        this.frameBudget = new FrameBudgetGovernor(
+                Double.parseDouble(gameProps.getProperty("gamePlay.frameBudget.millis", "16.6")),
+                Integer.parseInt(gameProps.getProperty("gamePlay.frameBudget.degradedInterval", "4")));
+        this.background = new Image(BACKGROUND_FILE);
+        events.subscribe(scoreKeeper);
+        events.subscribe(telemetry);
     }
 
     /**
@@ -77,7 +133,25 @@ public abstract class Level {
      * @return Current score.
      */
     public int getScore() {
-        return score;
+        return scoreKeeper.getScore();
+    }
+
+    /**
+     * Gets the player character of this level.
+     *
+     * @return The level's Mario.
+     */
+    public Mario getMario() {
+        return mario;
+    }
+
+    /**
+     * Gets the number of frames played so far.
+     *
+     * @return Current frame number.
+     */
+    public int getCurrentFrame() {
+        return currFrame;
     }
 
     /**
@@ -90,33 +164,92 @@ public abstract class Level {
     }
 
     /**
-     * Displays the current score and time remaining on screen.
+     * Rebuilds the text of the score and time remaining, where either has changed since it was last built.
+     * This is the deferrable part of the HUD: while frames run over budget the level may skip it,
+     * and the HUD keeps showing the text built last.
      */
-    public void displayInfo() {
-        STATUS_FONT.drawString(SCORE_MESSAGE + score, SCORE_X, SCORE_Y);
+    public void refreshInfo() {
+        int score = scoreKeeper.getScore();
+        if (scoreText == null || score != shownScore) {
+            scoreText = SCORE_MESSAGE + score;
+            shownScore = score;
+        }
         int secondsLeft = getSecondsLeft();
+        if (timeText == null || secondsLeft != shownSecondsLeft) {
+            timeText = TIME_MESSAGE + secondsLeft;
+            shownSecondsLeft = secondsLeft;
+        }
+    }
+
+    /**
+     * Rebuilds the text of Donkey's health and the bullet count, where either has changed.
+     * Should only be called in Level 2.
+     */
+    public void refreshLevel2Info() {
+        int health = donkey.getHealth();
+        if (healthText == null || health != shownHealth) {
+            healthText = DONKEY_HEALTH_MESSAGE + health;
+            shownHealth = health;
+        }
+        int bullets = mario.getTotalBullets();
+        if (bulletText == null || bullets != shownBullets) {
+            bulletText = BULLET_MESSAGE + bullets;
+            shownBullets = bullets;
+        }
+    }
+
+    /**
+     * Displays the current score and time remaining on screen, as last built by {@link #refreshInfo()}.
+     * Drawn every frame, as the screen is cleared between frames.
+     */
+    public void displayInfo() {
+        if (ShadowDonkeyKong.isHeadless() || scoreText == null) return;
+        STATUS_FONT.drawString(scoreText, SCORE_X, SCORE_Y);
         int TIME_X = SCORE_X;
         int TIME_Y = SCORE_Y + TIME_DISPLAY_DIFF_Y;
-        STATUS_FONT.drawString(TIME_MESSAGE + secondsLeft, TIME_X, TIME_Y);
+        STATUS_FONT.drawString(timeText, TIME_X, TIME_Y);
     }
 
     /**
-     * Displays Level 2-specific information: Donkey Health and Bullet count.
-     * Should only be called in Level 2.
+     * Displays Level 2-specific information: Donkey Health and Bullet count, as last built by
+     * {@link #refreshLevel2Info()}. Should only be called in Level 2.
      */
     public void displayLevel2Info() {
-        String[] coords = GAME_PROPS.getProperty("gamePlay.donkeyhealth.coords").split(",");
-        int HEALTH_X = Integer.parseInt(coords[0].trim());
-        int HEALTH_Y = Integer.parseInt(coords[1].trim());
-
-        STATUS_FONT.drawString(DONKEY_HEALTH_MESSAGE + donkey.getHealth(), HEALTH_X, HEALTH_Y);
+        if (ShadowDonkeyKong.isHeadless() || healthText == null) return;
+        STATUS_FONT.drawString(healthText, HEALTH_X, HEALTH_Y);
 
         int BULLET_X = HEALTH_X;
         int BULLET_Y = HEALTH_Y + TIME_DISPLAY_DIFF_Y;
-        STATUS_FONT.drawString(BULLET_MESSAGE + mario.getTotalBullets(), BULLET_X, BULLET_Y);
+        STATUS_FONT.drawString(bulletText, BULLET_X, BULLET_Y);
 
     }
 
+    /**
+     * Draws the background and platforms; once the ladders have settled, the ladders too, as one
+     * cached image. Called first thing in every update.
+     */
+    protected void drawScenery() {
+        if (ShadowDonkeyKong.isHeadless()) return;
+        isSceneryCached = staticLayer.draw(platforms, ladders);
+        if (isSceneryCached) {
+            return;
+        }
+        background.drawFromTopLeft(0, 0);
+        for (Platform platform : platforms) {
+            if (platform != null) platform.draw();
+        }
+    }
+
+    /**
+     * Draws the ladders where they fell to this tick, unless {@link #drawScenery()} already drew them.
+     */
+    protected void drawLadders() {
+        if (ShadowDonkeyKong.isHeadless() || isSceneryCached) return;
+        for (Ladder ladder : ladders) {
+            if (ladder != null) ladder.draw();
+        }
+    }
+
     /**
      * Checks if the time for the level has run out.
      *
@@ -126,13 +259,34 @@ public abstract class Level {
         return currFrame >= MAX_FRAMES;
     }
 
+    /**
+     * Ends the level as lost. Only the first cause of a tick is kept.
+     *
+     * @param cause Why the level was lost.
+     */
+    protected void loseLevel(DeathCause cause) {
+        if (!isGameOver) {
+            deathCause = cause;
+        }
+        isGameOver = true;
+    }
+
+    /**
+     * Gets why the level was lost.
+     *
+     * @return The cause, or {@link DeathCause#NONE} if the level has not been lost.
+     */
+    public DeathCause getDeathCause() {
+        return deathCause;
+    }
+
     /**
      * Updates the state of the level each frame.
      *
      * @param input Current input from player.
      * @return True if the level is over (win or loss), false otherwise.
      */
-    public abstract boolean update(Input input);
+    public abstract boolean update(Controls input);
 
     /**
      * Checks if the level has been successfully completed.
@@ -146,11 +300,215 @@ public abstract class Level {
      * @param score The initial score to set.
      */
     public void setInitialScore(int score) {
-        this.score = score;
+        scoreKeeper.setScore(score);
+    }
+
+    /**
+     * Creates the gravity system and registers the level's ladders, barrels and Donkey Kong with it.
+     * Levels with further falling bodies add them after calling this.
+     */
+    protected void createGravitySystem() {
+        gravitySystem = new GravitySystem(platforms, PARALLEL_THRESHOLD);
+        for (Ladder ladder : ladders) {
+            if (ladder != null) gravitySystem.add(ladder);
+        }
+        for (Barrel barrel : barrels) {
+            if (barrel != null) gravitySystem.add(barrel);
+        }
+        gravitySystem.add(donkey);
+    }
+
+    /**
+     * Rebuilds the live entity arrays from the full ones, leaving out missing and destroyed entities.
+     * Called once the level's objects exist and after a keyframe is restored. Levels with further
+     * live arrays rebuild them after calling this.
+     */
+    protected void rebuildLiveEntities() {
+        liveBarrels = new Barrel[barrels.length];
+        barrelContacts = new byte[barrels.length];
+        liveBarrelCount = 0;
+        for (Barrel barrel : barrels) {
+            if (barrel != null && !barrel.isDestroyed()) {
+                liveBarrels[liveBarrelCount++] = barrel;
+            }
+        }
+        commands.clear();
+    }
+
+    /**
+     * Publishes a {@link GameEventType#BARREL_JUMPED} event for every barrel Mario jumped over in his
+     * last update. Only the barrels in the x-interval he swept are tested, so each barrel is scored
+     * once per crossing, and a tick where Mario crosses nothing costs one binary search.
+     */
+    protected void scoreBarrelCrossings() {
+        if (!mario.isSweepAirborne()) {
+            return;
+        }
+        if (barrelCrossings == null) {
+            double[] positions = new double[barrels.length];
+            for (int i = 0; i < barrels.length; i++) {
+                positions[i] = barrels[i] == null ? Double.NaN : barrels[i].getX();
+            }
+            barrelCrossings = new AxisIndex(positions);
+            crossedBarrels = new int[barrels.length];
+        }
+
+        int crossedCount = barrelCrossings.query(mario.getSweepStartX(), mario.getX(), crossedBarrels);
+        for (int i = 0; i < crossedCount; i++) {
+            Barrel barrel = barrels[crossedBarrels[i]];
+            if (!barrel.isDestroyed() && mario.jumpOver(barrel)) {
+                events.publish(GameEventType.BARREL_JUMPED);
+            }
+        }
+    }
+
+    /**
+     * Fills {@code barrelContacts} for every live barrel, in parallel once there are enough of them.
+     * Reads Mario and the barrels without changing either; the level applies the contacts in order.
+     */
+    protected void checkBarrelContacts() {
+        ParallelFor.run(liveBarrelCount, PARALLEL_THRESHOLD, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                Barrel barrel = liveBarrels[i];
+                byte contact = 0;
+                if (!barrel.isDestroyed() && mario.isTouchingBarrel(barrel)) {
+                    contact |= CONTACT_TOUCHING;
+                }
+                barrelContacts[i] = contact;
+            }
+        });
+    }
+
+    /**
+     * Applies the spawns and despawns recorded during this tick. This is the tick's sync point:
+     * called once near the end of every update, after all entities have been iterated.
+     * Levels with further entity kinds apply them after calling this, then clear the buffer.
+     */
+    protected void applyCommands() {
+        liveBarrelCount = CommandBuffer.removeDespawned(liveBarrels, liveBarrelCount, commands.getDespawnedBarrelCount(),
+                Barrel::isDestroyed);
+    }
+
+    /**
+     * Builds the navigation graph once every ladder has landed. Called after the ladders are updated
+     * each tick, so the graph appears on the same frame whether a level is played or replayed.
+     */
+    protected void updateNavigationGraph() {
+        if (navigationGraph != null) {
+            return;
+        }
+        for (Ladder ladder : ladders) {
+            if (ladder != null && !ladder.hasLanded()) {
+                return;
+            }
+        }
+        navigationGraph = new NavigationGraph(platforms, ladders, mario.getBoundingBox());
+    }
+
+    /**
+     * Gets the level's navigation graph.
+     *
+     * @return The graph, or null if the ladders have not all landed yet.
+     */
+    public NavigationGraph getNavigationGraph() {
+        return navigationGraph;
+    }
+
+    /**
+     * Delivers the events published during this tick to the score and telemetry subscribers.
+     * Called once at the end of every update.
+     */
+    protected void dispatchEvents() {
+        events.dispatch();
+        telemetry.endTick();
+    }
+
+    /**
+     * Writes the level's full dynamic state, used as a replay keyframe.
+     * Static geometry (platforms) and entity counts are not written; they come from the properties
+     * the level was created with.
+     *
+     * @param out The stream to write to.
+     * @throws IOException If writing fails.
+     */
+    public void writeState(DataOutput out) throws IOException {
+        out.writeInt(currFrame);
+        out.writeBoolean(isGameOver);
+        out.writeByte(deathCause.ordinal());
+        scoreKeeper.writeState(out);
+        mario.writeState(out, blasters);
+        donkey.writeState(out);
+        hammer.writeState(out);
+        for (Barrel barrel : barrels) {
+            barrel.writeState(out);
+        }
+        for (Ladder ladder : ladders) {
+            ladder.writeState(out);
+        }
+        for (Blaster blaster : blasters) {
+            blaster.writeState(out);
+        }
+    }
+
+    /**
+     * Restores the state written by {@link #writeState(DataOutput)}.
+     * The level must have been created from the same properties as the one that was written.
+     *
+     * @param in The stream to read from.
+     * @throws IOException If reading fails.
+     */
+    public void readState(DataInput in) throws IOException {
+        readLevelState(in);
+        rebuildLiveEntities();
+    }
+
+    /**
+     * Reads the state written by {@link #writeState(DataOutput)}. Levels that write further state
+     * read it after calling this; the live entity arrays are rebuilt once everything is read.
+     *
+     * @param in The stream to read from.
+     * @throws IOException If reading fails.
+     */
+    protected void readLevelState(DataInput in) throws IOException {
+        currFrame = in.readInt();
+        isGameOver = in.readBoolean();
+        deathCause = DeathCause.values()[in.readByte()];
+        scoreKeeper.readState(in);
+        mario.readState(in, blasters);
+        donkey.readState(in);
+        hammer.readState(in);
+        for (Barrel barrel : barrels) {
+            barrel.readState(in);
+        }
+        for (Ladder ladder : ladders) {
+            ladder.readState(in);
+        }
+        for (Blaster blaster : blasters) {
+            blaster.readState(in);
+        }
+
+        // A keyframe from before the ladders landed predates the navigation graph; drop the graph so
+        // it is built again on the frame the ladders land, as it was when the level was played
+        for (Ladder ladder : ladders) {
+            if (ladder != null && !ladder.hasLanded()) {
+                navigationGraph = null;
+                break;
+            }
+        }
     }
 
     /** Getters */
-    public int getBarrelsDestroyed() { return barrelsDestroyed; }
-    public int getBarrelsJumped() { return barrelsJumped; }
-    public int getMonkeysDestroyed() { return monkeysDestroyed; }
+    public int getBarrelsDestroyed() { return scoreKeeper.getBarrelsDestroyed(); }
+    public int getBarrelsJumped() { return scoreKeeper.getBarrelsJumped(); }
+    public int getMonkeysDestroyed() { return scoreKeeper.getMonkeysDestroyed(); }
+    public EventTelemetry getTelemetry() { return telemetry; }
+    public FrameBudgetGovernor getFrameBudget() { return frameBudget; }
+    public AllocationTracker getAllocations() { return allocations; }
+    public Platform[] getPlatforms() { return platforms; }
+    public Ladder[] getLadders() { return ladders; }
+    public Barrel[] getBarrels() { return barrels; }
+    public Hammer getHammer() { return hammer; }
+    public Donkey getDonkey() { return donkey; }
+    public Blaster[] getBlasters() { return blasters; }
+    public GravitySystem getGravitySystem() { return gravitySystem; }
 }
@@ -18,6 +18,8 @@ public class Level1 extends Level {
     public Level1(Properties gameProps) {
         super(gameProps);
         initializeGameObjects();
+        createGravitySystem();
+        rebuildLiveEntities();
     }
 
     /**
@@ -30,6 +32,7 @@ public class Level1 extends Level {
         // 1) Initialize Mario
         String[] marioCoords = GAME_PROPS.getProperty("mario.level1").split(",");
         mario = new Mario(Double.parseDouble(marioCoords[0].trim()), Double.parseDouble(marioCoords[1].trim()));
+        mario.setEventBus(events);
 
         // 2) Initialize Donkey Kong
         String[] donkeyCoords = GAME_PROPS.getProperty("donkey.level1").split(",");
@@ -80,52 +83,49 @@ public class Level1 extends Level {
      * @return {@code true} if the level is over (either win or game over), {@code false} otherwise
      */
     @Override
-    public boolean update(Input input) {
+    public boolean update(Controls input) {
+        frameBudget.startFrame();
+        allocations.startFrame();
         currFrame++;
 
-        // Draw background
-        background.drawFromTopLeft(0, 0);
+        // 1) Draw background and platforms, as one cached image once the ladders have settled
+        drawScenery();
+        allocations.endPhase("frame");
 
-        // 1) Update and draw platforms
-        for (Platform platform : platforms) {
-            if (platform != null) platform.draw();
-        }
-
-        // 2) Update ladders
-        for (Ladder ladder : ladders) {
-            if (ladder != null) ladder.update(platforms);
-        }
-
-        // 3) Update barrels, handle collisions and scoring
-        for (Barrel barrel : barrels) {
-            if (barrel == null) continue;
+        // 2) Let ladders, barrels and Donkey fall and land, then draw the ladders
+        gravitySystem.update();
+        drawLadders();
+        updateNavigationGraph();
+        allocations.endPhase("gravity");
 
-            // Score if Mario jumps over a barrel
-            if (mario.jumpOver(barrel)) {
-                score += BARREL_CROSS_SCORE;
-            }
+        // 3) Update barrels, handle collisions and scoring; score the barrels Mario jumped over,
+        // then find the contacts and apply them in order
+        scoreBarrelCrossings();
+        checkBarrelContacts();
+        for (int i = 0; i < liveBarrelCount; i++) {
+            Barrel barrel = liveBarrels[i];
 
             // Barrel collision
-            if (!barrel.isDestroyed() && mario.isTouchingBarrel(barrel)) {
+            if ((barrelContacts[i] & CONTACT_TOUCHING) != 0) {
                 if (!mario.holdHammer()) {
-                    isGameOver = true;
+                    loseLevel(DeathCause.BARREL);
                 } else {
-                    barrel.destroy();
-                    score += BARREL_SCORE;
+                    barrel.destroy(events);
+                    commands.despawn(barrel);
                 }
             }
 
-            // Update barrel physics
-            barrel.update(platforms);
+            // Draw the barrel where it fell to this tick
+            barrel.draw();
         }
+        allocations.endPhase("barrels");
 
         // 4) Check if time has run out
         if (checkingGameTime()) {
-            isGameOver = true;
+            loseLevel(DeathCause.TIMEOUT);
         }
 
-        // 5) Update and draw Donkey and hammer
-        donkey.update(platforms);
+        // 5) Draw Donkey and hammer
         hammer.draw();
         donkey.draw();
 
@@ -134,13 +134,29 @@ public class Level1 extends Level {
 
         // 7) Check for losing condition: Mario reaches Donkey without hammer
         if (mario.hasReached(donkey) && !mario.holdHammer()) {
-            isGameOver = true;
+            loseLevel(DeathCause.DONKEY);
         }
+        allocations.endPhase("mario");
+
+        // 8) Apply this tick's spawns and despawns
+        applyCommands();
+        commands.clear();
 
-        // 8) Draw score and time remaining
+        // 9) Apply this tick's scoring events
+        dispatchEvents();
+        allocations.endPhase("sync");
+
+        // 10) Draw score and time remaining, including this tick's events; their text is only
+        // rebuilt when the frame is within budget
+        if (frameBudget.shouldRun(FrameBudgetGovernor.Priority.COSMETIC)) {
+            refreshInfo();
+        }
         displayInfo();
+        allocations.endPhase("hud");
 
-        // 9) End level if game is over or won
+        // 11) End level if game is over or won
+        allocations.endFrame();
+        frameBudget.endFrame();
         return isGameOver || isLevelCompleted();
     }
 
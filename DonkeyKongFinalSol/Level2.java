@@ -1,6 +1,10 @@
 import bagel.*;
+import bagel.util.Rectangle;
 
-import java.util.ArrayList;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.EnumSet;
 import java.util.Properties;
 
 /**
@@ -13,13 +17,26 @@ import java.util.Properties;
 public class Level2 extends Level {
 
     private Monkey[] monkeys;
-    private Blaster[] blasters;
+    private Monkey[] liveMonkeys = new Monkey[0]; // The monkeys not yet despawned, packed to the front
+    private int liveMonkeyCount = 0;
+    private byte[] monkeyContacts = new byte[0]; // This tick's contact of each live monkey with Mario
+    private static final byte CONTACT_DESTROYED = 4; // Already destroyed, so the monkey sits the tick out
 
-    private ArrayList<Bullet> bullets = new ArrayList<>(); // List to track bullets
-    private ArrayList<Banana> bananas = new ArrayList<>();  // List to track bananas
+    private final ProjectileStore<Bullet> bullets = new ProjectileStore<>(); // Bullets fired by Mario
+    private final ProjectileStore<Banana> bananas = new ProjectileStore<>(); // Bananas thrown by the monkeys
 
     private boolean isLevelCompleted = false; // Flag to track level completion
 
+    private ChasePlanner chasePlanner; // Routes intelligent monkeys to Mario; null unless chasing is enabled
+
+    private SweepAndPrune monkeySweep; // Live monkeys sorted along x, indexed like monkeys
+    private int[] monkeyHits;
+
+    private boolean isMarioHitByBanana = false; // A banana touched Mario this tick
+
+    private SystemScheduler scheduler; // Runs the phases of each tick
+    private Controls tickInput;        // The input of the tick being updated
+
 
 
     /**
@@ -30,6 +47,10 @@ public class Level2 extends Level {
     public Level2(Properties gameProps) {
         super(gameProps);
         initializeGameObjects();
+        createGravitySystem();
+        rebuildLiveEntities();
+        createSystems();
+        Monkey.preloadImages(); // Monkeys may turn around on worker threads, which cannot load images
     }
 
     /**
@@ -43,6 +64,7 @@ public class Level2 extends Level {
         /** Initialize Mario using coordinates from properties */
         String[] marioCoords = GAME_PROPS.getProperty("mario.level2").split(",");
         mario = new Mario(Double.parseDouble(marioCoords[0].trim()), Double.parseDouble(marioCoords[1].trim()));
+        mario.setEventBus(events);
 
         /** Initialize Donkey Kong using coordinates from properties */
         String[] donkeyCoords = GAME_PROPS.getProperty("donkey.level2").split(",");
@@ -125,12 +147,24 @@ public class Level2 extends Level {
                     Double.parseDouble(coords[0].trim()),
                     Double.parseDouble(coords[1].trim()),
                     direction,
-                    route,
-                    bananas  // Pass the bananas list
+                    route
             );
 
         }
 
+        /** Optionally make the intelligent monkeys chase Mario instead of following their routes */
+        if (Boolean.parseBoolean(GAME_PROPS.getProperty("intelligentMonkey.chase", "false"))) {
+            chasePlanner = new ChasePlanner(
+                    Integer.parseInt(GAME_PROPS.getProperty("intelligentMonkey.chase.replansPerTick", "4")));
+            for (Monkey monkey : monkeys) {
+                if (monkey instanceof IntelligentMonkey) {
+                    ((IntelligentMonkey) monkey).setChasePlanner(chasePlanner);
+                }
+            }
+        }
+        monkeySweep = new SweepAndPrune(monkeys.length);
+        monkeyHits = new int[monkeys.length];
+
         /** Initialize blasters using positions from properties */
         int blasterCount = Integer.parseInt(GAME_PROPS.getProperty("blaster.level2.count"));
         blasters = new Blaster[blasterCount];
@@ -151,168 +185,501 @@ public class Level2 extends Level {
      * @return {@code true} if the level is over (either win or game over), {@code false} otherwise
      */
     @Override
-    public boolean update(Input input) {
-        currFrame++;
+    public boolean update(Controls input) {
+        frameBudget.startFrame();
+        allocations.startFrame();
+        tickInput = input;
+        scheduler.run();
+        allocations.endFrame();
+        frameBudget.endFrame();
 
-        /** Draw background image */
-        background.drawFromTopLeft(0, 0);
+        /** End level if game is over or completed */
+        return isGameOver || isLevelCompleted();
+    }
 
-        /** Update and draw platforms */
-        for (Platform platform : platforms) {
-            if (platform != null) platform.draw();
-        }
+    /**
+     * Declares the phases of a tick as systems, in the order they run one after another.
+     * Each declares the state it reads and writes, so the scheduler can run independent phases
+     * together; finding contacts is kept apart from acting on them so that only the small,
+     * ordered part has to wait for the others.
+     */
+    private void createSystems() {
+        scheduler = new SystemScheduler(
+                Boolean.parseBoolean(GAME_PROPS.getProperty("gamePlay.systems.concurrent", "false")),
+                frameBudget, allocations);
+
+        /** Count the frame and draw the background and platforms */
+        scheduler.add(new GameSystem("frame",
+                EnumSet.of(SystemResource.PLATFORMS, SystemResource.LADDERS),
+                EnumSet.of(SystemResource.LEVEL_STATE, SystemResource.SCREEN),
+                this::startFrame));
+
+        /** Let ladders, barrels, Donkey Kong and monkeys fall and land */
+        scheduler.add(new GameSystem("gravity",
+                EnumSet.of(SystemResource.PLATFORMS),
+                EnumSet.of(SystemResource.LADDERS, SystemResource.BARRELS, SystemResource.DONKEY, SystemResource.MONKEYS),
+                gravitySystem::update));
+
+        /** Draw the ladders and build the navigation graph once they have all landed */
+        scheduler.add(new GameSystem("navigation",
+                EnumSet.of(SystemResource.PLATFORMS, SystemResource.LADDERS, SystemResource.MARIO),
+                EnumSet.of(SystemResource.NAVIGATION, SystemResource.SCREEN),
+                this::updateLadders));
+
+        /** Find which barrels Mario touches */
+        scheduler.add(new GameSystem("barrelContacts",
+                EnumSet.of(SystemResource.BARRELS, SystemResource.MARIO),
+                EnumSet.of(SystemResource.BARREL_CONTACTS),
+                this::checkBarrelContacts));
+
+        /** Score, destroy or die from the barrels, in order, and draw them */
+        scheduler.add(new GameSystem("barrelRules",
+                EnumSet.of(SystemResource.BARREL_CONTACTS, SystemResource.MARIO),
+                EnumSet.of(SystemResource.BARRELS, SystemResource.EVENTS, SystemResource.COMMANDS,
+                        SystemResource.LEVEL_STATE, SystemResource.SCREEN),
+                this::applyBarrelContacts));
 
-        /** Update ladder states based on platform data */
-        for (Ladder ladder : ladders) {
-            if (ladder != null) ladder.update(platforms);
-        }
+        /** Check if time has expired */
+        scheduler.add(new GameSystem("timeout",
+                EnumSet.noneOf(SystemResource.class),
+                EnumSet.of(SystemResource.LEVEL_STATE),
+                this::checkTimeout));
+
+        /** Plan chasing monkeys' routes within this tick's budget */
+        scheduler.add(new GameSystem("chasePlanning",
+                EnumSet.of(SystemResource.NAVIGATION, SystemResource.MARIO),
+                EnumSet.of(SystemResource.MONKEYS, SystemResource.CHASE_ROUTES),
+                () -> chasePlanner.update(navigationGraph, mario, monkeys))
+                .onlyWhen(() -> chasePlanner != null));
+
+        /** Find which monkeys Mario touches */
+        scheduler.add(new GameSystem("monkeyContacts",
+                EnumSet.of(SystemResource.MONKEYS, SystemResource.MARIO),
+                EnumSet.of(SystemResource.MONKEY_CONTACTS),
+                this::checkMonkeyContacts));
+
+        /** Destroy or die from the monkeys, in order */
+        scheduler.add(new GameSystem("monkeyRules",
+                EnumSet.of(SystemResource.MONKEY_CONTACTS, SystemResource.MARIO),
+                EnumSet.of(SystemResource.MONKEYS, SystemResource.EVENTS, SystemResource.COMMANDS,
+                        SystemResource.LEVEL_STATE),
+                this::applyMonkeyContacts));
+
+        /** Let the monkeys walk their routes */
+        scheduler.add(new GameSystem("monkeyPatrol",
+                EnumSet.of(SystemResource.PLATFORMS, SystemResource.MONKEY_CONTACTS, SystemResource.CHASE_ROUTES),
+                EnumSet.of(SystemResource.MONKEYS, SystemResource.SCREEN),
+                this::walkMonkeys));
+
+        /** Record the bananas thrown, in monkey order */
+        scheduler.add(new GameSystem("bananaThrows",
+                EnumSet.noneOf(SystemResource.class),
+                EnumSet.of(SystemResource.MONKEYS, SystemResource.COMMANDS),
+                this::takeThrownBananas));
+
+        /** Move the bananas and find whether one hit Mario; new ones wait in the command buffer */
+        scheduler.add(new GameSystem("bananaFlight",
+                EnumSet.of(SystemResource.MARIO),
+                EnumSet.of(SystemResource.BANANAS, SystemResource.BANANA_HITS, SystemResource.SCREEN),
+                this::updateBananas)
+                .onlyWhen(() -> bananas.size() > 0));
+
+        /** Die from a banana hit */
+        scheduler.add(new GameSystem("bananaRules",
+                EnumSet.noneOf(SystemResource.class),
+                EnumSet.of(SystemResource.BANANA_HITS, SystemResource.LEVEL_STATE),
+                this::applyBananaHits));
+
+        /** Update Mario's movement and actions, drawing the items around him */
+        scheduler.add(new GameSystem("mario",
+                EnumSet.of(SystemResource.INPUT, SystemResource.PLATFORMS, SystemResource.LADDERS, SystemResource.DONKEY),
+                EnumSet.of(SystemResource.MARIO, SystemResource.HAMMER, SystemResource.BLASTERS,
+                        SystemResource.EVENTS, SystemResource.SCREEN),
+                this::updateMario));
+
+        /** Check losing condition: Mario reaches Donkey without hammer */
+        scheduler.add(new GameSystem("donkeyReach",
+                EnumSet.of(SystemResource.MARIO, SystemResource.DONKEY),
+                EnumSet.of(SystemResource.LEVEL_STATE),
+                this::checkDonkeyReached));
 
-        /** Update barrels and check for scoring or collision */
-        for (Barrel barrel : barrels) {
-            if (barrel == null) continue;
+        /** If input is detected, fire the bullet */
+        scheduler.add(new GameSystem("shooting",
+                EnumSet.of(SystemResource.INPUT),
+                EnumSet.of(SystemResource.MARIO, SystemResource.COMMANDS),
+                this::fireBullet));
+
+        /** Move the bullets and let them hit monkeys and Donkey Kong */
+        scheduler.add(new GameSystem("bullets",
+                EnumSet.noneOf(SystemResource.class),
+                EnumSet.of(SystemResource.BULLETS, SystemResource.MONKEYS, SystemResource.DONKEY,
+                        SystemResource.EVENTS, SystemResource.COMMANDS, SystemResource.LEVEL_STATE,
+                        SystemResource.SCREEN),
+                this::updateBullets)
+                .onlyWhen(() -> bullets.size() > 0));
+
+        /** Apply this tick's spawns and despawns, then its scoring events */
+        scheduler.add(new GameSystem("sync",
+                EnumSet.noneOf(SystemResource.class),
+                EnumSet.allOf(SystemResource.class),
+                this::endTick));
+
+        /** Rebuild the HUD's text once this tick's events are scored; deferred while frames run over budget */
+        scheduler.add(new GameSystem("hudText",
+                EnumSet.of(SystemResource.MARIO, SystemResource.DONKEY, SystemResource.EVENTS,
+                        SystemResource.LEVEL_STATE),
+                EnumSet.of(SystemResource.HUD_TEXT),
+                this::refreshHud)
+                .withPriority(FrameBudgetGovernor.Priority.COSMETIC));
+
+        /** Display the HUD every frame, as the screen is cleared between frames */
+        scheduler.add(new GameSystem("hud",
+                EnumSet.of(SystemResource.HUD_TEXT),
+                EnumSet.of(SystemResource.SCREEN),
+                this::displayHud));
+    }
 
-            /** Score for jumping over barrel */
-            if (mario.jumpOver(barrel)) {
-                barrelsJumped++; 
-                score += BARREL_CROSS_SCORE;
-            }
+    /** Counts the frame and draws the background and platforms. */
+    private void startFrame() {
+        currFrame++;
+
+        /** Draw background and platforms, as one cached image once the ladders have settled */
+        drawScenery();
+    }
+
+    /** Draws the ladders where they fell to this tick and builds the navigation graph. */
+    private void updateLadders() {
+        drawLadders();
+        updateNavigationGraph();
+    }
+
+    /** Scores the barrels Mario jumped over, applies {@code barrelContacts} in barrel order and draws the barrels. */
+    private void applyBarrelContacts() {
+        /** Score for jumping over barrels */
+        scoreBarrelCrossings();
+
+        for (int i = 0; i < liveBarrelCount; i++) {
+            Barrel barrel = liveBarrels[i];
 
             /** Handle collision with barrel */
-            if (!barrel.isDestroyed() && mario.isTouchingBarrel(barrel)) {
+            if ((barrelContacts[i] & CONTACT_TOUCHING) != 0) {
                 if (mario.holdHammer()) {  // Only destroy barrel if holding hammer
-                    barrel.destroy();
-                    barrelsDestroyed++;
-                    score += BARREL_SCORE; // 100 points for destroying a barrel
+                    barrel.destroy(events);
+                    commands.despawn(barrel);
                 } else {
-                    isGameOver = true;
+                    loseLevel(DeathCause.BARREL);
                 }
             }
 
-            /** Update barrel movement and behavior */
-            barrel.update(platforms);
+            /** Draw the barrel where it fell to this tick */
+            barrel.draw();
         }
+    }
 
-        /** Check if time has expired */
+    /** Loses the level once its time has run out. */
+    private void checkTimeout() {
         if (checkingGameTime()) {
-            isGameOver = true;
+            loseLevel(DeathCause.TIMEOUT);
         }
+    }
 
-        /** Update Donkey Kong's state */
-        donkey.update(platforms);
-
-        /** Update and interact with Monkeys */
-        for (Monkey monkey : monkeys) {
-            if (monkey == null || monkey.isDestroyed()) continue;
-
-            if ((monkey instanceof NormalMonkey && mario.isTouchingNormalMonkey((NormalMonkey)monkey)) ||
-                    (monkey instanceof IntelligentMonkey && mario.isTouchingIntelligentMonkey((IntelligentMonkey)monkey))) {
+    /** Applies {@code monkeyContacts} in monkey order. */
+    private void applyMonkeyContacts() {
+        for (int i = 0; i < liveMonkeyCount; i++) {
+            if ((monkeyContacts[i] & CONTACT_TOUCHING) != 0) {
+                Monkey monkey = liveMonkeys[i];
                 if (mario.holdHammer()) {
-                    monkey.destroy();
-                    monkeysDestroyed++;
-                    score += MONKEY_SCORE; // 100 points for destroying a monkey
+                    monkey.destroy(events);
+                    commands.despawn(monkey);
                 } else {
-                    isGameOver = true;
+                    loseLevel(DeathCause.MONKEY);
                 }
             }
-
-            monkey.update(platforms);
         }
+    }
 
+    /** Walks every monkey not destroyed this tick; no monkey reads another, so large counts walk in parallel. */
+    private void walkMonkeys() {
+        ParallelFor.run(liveMonkeyCount, PARALLEL_THRESHOLD, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                if ((monkeyContacts[i] & CONTACT_DESTROYED) == 0) {
+                    liveMonkeys[i].update(platforms);
+                }
+            }
+        });
+    }
+
+    /** Records the bananas thrown this tick as spawns, in monkey order. */
+    private void takeThrownBananas() {
+        for (int i = 0; i < liveMonkeyCount; i++) {
+            if (liveMonkeys[i] instanceof IntelligentMonkey) {
+                Banana banana = ((IntelligentMonkey) liveMonkeys[i]).takeThrownBanana();
+                if (banana != null) {
+                    commands.spawn(banana);
+                }
+            }
+        }
+    }
 
-        // Update and draw all bananas
+    /** Moves and draws every banana, noting whether one hit Mario; Mario does not move until after them. */
+    private void updateBananas() {
+        Rectangle marioBounds = mario.getBoundingBox();
         for (int i = 0; i < bananas.size(); i++) {
             Banana banana = bananas.get(i);
             banana.update();
 
             // Collision with Mario
-            if (banana.getBoundingBox().intersects(mario.getBoundingBox())) {
-                isGameOver = true;
+            if (banana.getBoundingBox().intersects(marioBounds)) {
+                isMarioHitByBanana = true;
             }
             if (banana.isExpired()) {
-                bananas.remove(i);
-                i--; // Adjust index after removal
+                bananas.remove(i); // Dropped at the end of the tick
             }
         }
+    }
+
+    /** Loses the level if a banana hit Mario this tick. */
+    private void applyBananaHits() {
+        if (isMarioHitByBanana) {
+            loseLevel(DeathCause.BANANA);
+            isMarioHitByBanana = false;
+        }
+    }
 
-        /** Draw hammer and Donkey Kong */
+    /** Draws the hammer and Donkey Kong, moves Mario, then draws the blasters he has not collected. */
+    private void updateMario() {
         hammer.draw();
         donkey.draw();
 
-        /** Update Mario's movement and actions */
-        mario.update(input, ladders, platforms, hammer, blasters);
+        mario.update(tickInput, ladders, platforms, hammer, blasters);
 
-        /** Draw blasters if they haven't been collected */
         for (Blaster blaster : blasters) {
             if (!blaster.isCollected()) {
                 blaster.draw();
             }
         }
+    }
 
-        /** Check losing condition: Mario reaches Donkey without hammer */
+    /** Loses the level if Mario reaches Donkey Kong without a hammer. */
+    private void checkDonkeyReached() {
         if (mario.hasReached(donkey) && !mario.holdHammer()) {
-            isGameOver = true;
+            loseLevel(DeathCause.DONKEY);
         }
+    }
 
-        /** Display score and time */
-        displayInfo();
+    /** Rebuilds the HUD's text where the values it shows changed. */
+    private void refreshHud() {
+        refreshInfo();
+        refreshLevel2Info();
+    }
 
-        /** Display level-specific info like Donkey health and bullets */
+    /** Displays the score and time, then Donkey Kong's health and Mario's bullets. */
+    private void displayHud() {
+        displayInfo();
         displayLevel2Info();
+    }
 
-        /** If input is detected, fire the bullet */
-        if (input.wasPressed(Keys.S)) {
+    /** Fires a bullet if the fire key was pressed and Mario has one. */
+    private void fireBullet() {
+        if (tickInput.wasPressed(Keys.S)) {
             Bullet bullet = mario.fireBullet();
             if (bullet != null) {
-                bullets.add(bullet);
+                commands.spawn(bullet);
             }
         }
-        // Update and draw all bullets
+    }
+
+    /** Moves and draws every bullet and resolves what it hits. */
+    private void updateBullets() {
+        /** Sort the live monkeys along x so each bullet only tests the ones in its path */
+        sweepMonkeys();
+        Rectangle donkeyBounds = donkey.getBoundingBox();
+
         for (int i = 0; i < bullets.size(); i++) {
             Bullet bullet = bullets.get(i);
             bullet.update();
-
-
-            // Check for bullet collisions with monkeys
-            for (int j = 0; j < monkeys.length; j++) {
-                if (monkeys[j] != null && !monkeys[j].isDestroyed() && 
-                    bullet.getBoundingBox().intersects(monkeys[j].getBoundingBox())) {
-                    monkeys[j].destroy();
-                    bullets.remove(i);
-                    i--; // Adjust index after removal
-                    score += MONKEY_SCORE;  // 100 points for hitting a monkey
-                    break; // Exit monkey loop after hit
+            Rectangle bulletBounds = bullet.getBoundingBox();
+
+            // Check for bullet collisions with monkeys; the lowest-indexed monkey still alive is hit
+            int hitCount = monkeySweep.query(bulletBounds, monkeyHits);
+            int hitMonkey = -1;
+            for (int k = 0; k < hitCount; k++) {
+                int j = monkeyHits[k];
+                if (!monkeys[j].isDestroyed() && (hitMonkey < 0 || j < hitMonkey)) {
+                    hitMonkey = j;
                 }
             }
+            if (hitMonkey >= 0) {
+                monkeys[hitMonkey].destroy(events);
+                commands.despawn(monkeys[hitMonkey]);
+                bullets.remove(i); // The bullet is spent; dropped at the end of the tick
+                continue;
+            }
 
-            if (bullet.getBoundingBox().intersects(donkey.getBoundingBox())) {
-                donkey.decreaseHealth();
+            if (bulletBounds.intersects(donkeyBounds)) {
+                donkey.decreaseHealth(events);
                 bullets.remove(i);
-                i--; // Adjust index after removal
-                
+
                 // Check if Donkey is defeated
                 if (donkey.isDefeated()) {
                     isLevelCompleted= true;
                 }
-                break; // Exit collision checks
+                continue;
             }
 
-
-
-
             // Remove bullet if it goes off-screen
             if (bullet.getX() < 0 || bullet.getX() > ShadowDonkeyKong.getScreenWidth()) {
                 bullets.remove(i);
-                i--; // Adjust index after removal
             }
         }
+    }
+
+    /** The tick's sync point: applies its spawns and despawns, then its scoring events. */
+    private void endTick() {
+        applyCommands();
+        commands.clear();
+        dispatchEvents();
+    }
+
+    @Override
+    protected void createGravitySystem() {
+        super.createGravitySystem();
+        for (Monkey monkey : monkeys) {
+            if (monkey != null) gravitySystem.add(monkey);
+        }
+    }
+
+    @Override
+    protected void rebuildLiveEntities() {
+        super.rebuildLiveEntities();
+        liveMonkeys = new Monkey[monkeys.length];
+        monkeyContacts = new byte[monkeys.length];
+        liveMonkeyCount = 0;
+        for (Monkey monkey : monkeys) {
+            if (monkey != null && !monkey.isDestroyed()) {
+                liveMonkeys[liveMonkeyCount++] = monkey;
+            }
+        }
+    }
 
+    /**
+     * Fills {@code monkeyContacts} for every live monkey, in parallel once there are enough of them.
+     * Reads Mario and the monkeys without changing either.
+     */
+    private void checkMonkeyContacts() {
+        ParallelFor.run(liveMonkeyCount, PARALLEL_THRESHOLD, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                Monkey monkey = liveMonkeys[i];
+                byte contact = 0;
+                if (monkey.isDestroyed()) {
+                    contact = CONTACT_DESTROYED;
+                } else if ((monkey instanceof NormalMonkey && mario.isTouchingNormalMonkey((NormalMonkey) monkey)) ||
+                        (monkey instanceof IntelligentMonkey && mario.isTouchingIntelligentMonkey((IntelligentMonkey) monkey))) {
+                    contact = CONTACT_TOUCHING;
+                }
+                monkeyContacts[i] = contact;
+            }
+        });
+    }
+
+    /**
+     * Also drops despawned monkeys and the projectiles removed this tick, then adds the new ones.
+     */
+    @Override
+    protected void applyCommands() {
+        super.applyCommands();
+        liveMonkeyCount = CommandBuffer.removeDespawned(liveMonkeys, liveMonkeyCount, commands.getDespawnedMonkeyCount(),
+                Monkey::isDestroyed);
+        bullets.compact();
+        bananas.compact();
+        for (Bullet bullet : commands.getSpawnedBullets()) {
+            bullets.add(bullet);
+        }
+        for (Banana banana : commands.getSpawnedBananas()) {
+            bananas.add(banana);
+        }
+    }
 
+    /**
+     * Moves every live monkey's box in {@code monkeySweep} to where the monkey is now,
+     * empties missing and destroyed ones, and re-sorts them along x.
+     */
+    private void sweepMonkeys() {
+        for (int j = 0; j < monkeys.length; j++) {
+            Monkey monkey = monkeys[j];
+            if (monkey != null && !monkey.isDestroyed()) {
+                // The edges of monkey.getBoundingBox(), without allocating the rectangle
+                double left = monkey.getX() - (monkey.getWidth() / 2);
+                double top = monkey.getY() - (monkey.getHeight() / 2);
+                monkeySweep.set(j, left, top, left + monkey.getWidth(), top + monkey.getHeight());
+            } else {
+                monkeySweep.setEmpty(j);
+            }
+        }
+        monkeySweep.sort();
+    }
 
+    /**
+     * Gets the level's monkeys, including destroyed ones.
+     *
+     * @return The monkeys.
+     */
+    public Monkey[] getMonkeys() {
+        return monkeys;
+    }
 
+    /** Getters */
+    public ProjectileStore<Bullet> getBullets() { return bullets; }
+    public SystemScheduler getScheduler() { return scheduler; }
+    public ProjectileStore<Banana> getBananas() { return bananas; }
 
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        super.writeState(out);
+        out.writeBoolean(isLevelCompleted);
+        out.writeInt(chasePlanner == null ? 0 : chasePlanner.getCursor());
+        for (Monkey monkey : monkeys) {
+            monkey.writeState(out);
+        }
+        out.writeInt(bullets.size());
+        for (int i = 0; i < bullets.size(); i++) {
+            bullets.get(i).writeState(out);
+        }
+        out.writeInt(bananas.size());
+        for (int i = 0; i < bananas.size(); i++) {
+            bananas.get(i).writeState(out);
+        }
+    }
 
-        /** End level if game is over or completed */
-        return isGameOver || isLevelCompleted();
+    @Override
+    protected void readLevelState(DataInput in) throws IOException {
+        super.readLevelState(in);
+        isLevelCompleted = in.readBoolean();
+        int chaseCursor = in.readInt();
+        if (chasePlanner != null) {
+            chasePlanner.setCursor(chaseCursor);
+            if (navigationGraph == null) {
+                chasePlanner.reset(); // Monkeys follow their routes again until the graph is rebuilt
+            }
+        }
+        for (Monkey monkey : monkeys) {
+            monkey.readState(in);
+        }
+        // Projectiles are recreated
+        bullets.clear();
+        int bulletCount = in.readInt();
+        for (int i = 0; i < bulletCount; i++) {
+            Bullet bullet = new Bullet(Physics.readValue(in), Physics.readValue(in), in.readBoolean() ? "right" : "left");
+            bullet.setDistanceTraveled(Physics.readValue(in));
+            bullets.add(bullet);
+        }
+        bananas.clear();
+        int bananaCount = in.readInt();
+        for (int i = 0; i < bananaCount; i++) {
+            Banana banana = new Banana(Physics.readValue(in), Physics.readValue(in), in.readBoolean() ? "right" : "left");
+            banana.setDistanceTraveled(Physics.readValue(in));
+            bananas.add(banana);
+        }
     }
 
     /**
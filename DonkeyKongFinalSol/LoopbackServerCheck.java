@@ -0,0 +1,282 @@
+import bagel.*;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Checks a {@link GameServer} end to end with loopback clients on one machine.
+ *
+ * A server with one slot per client is started on a free loopback port, then one client more than
+ * it has slots connects. Every client sends random input once per tick, all from one thread, and
+ * decodes every frame it receives. The check fails if the extra client is not turned away, if any
+ * other client is not greeted, receives no frames or receives a malformed one, or if ticks within a
+ * game do not increase. Frames received per client and the server's tick-lag metrics are printed;
+ * they are not checked, as they depend on how loaded the machine is.
+ *
+ * Like {@link BotSmokeRunner}, everything runs inside the first frame of a bagel window.
+ *
+ * Usage: {@code java LoopbackServerCheck [level] [clients] [seconds]}
+ */
+public class LoopbackServerCheck extends AbstractGame {
+
+    private final Properties GAME_PROPS;
+    private final int LEVEL_NUMBER;
+    private final int CLIENT_COUNT;
+    private final int SECONDS;
+    private boolean hasRun = false;
+    private int failures = 0;
+
+    /**
+     * Constructs the checker window using the window size from the game properties.
+     *
+     * @param gameProps   Game configuration properties.
+     * @param levelNumber The level played, 1 or 2.
+     * @param clientCount Number of clients served.
+     * @param seconds     How long the clients play.
+     */
+    public LoopbackServerCheck(Properties gameProps, int levelNumber, int clientCount, int seconds) {
+        super(Integer.parseInt(gameProps.getProperty("window.width")),
+                Integer.parseInt(gameProps.getProperty("window.height")),
+                "Loopback server check");
+        this.GAME_PROPS = gameProps;
+        this.LEVEL_NUMBER = levelNumber;
+        this.CLIENT_COUNT = clientCount;
+        this.SECONDS = seconds;
+        ShadowDonkeyKong.screenWidth = Integer.parseInt(gameProps.getProperty("window.width"));
+        ShadowDonkeyKong.screenHeight = Integer.parseInt(gameProps.getProperty("window.height"));
+        ShadowDonkeyKong.setHeadless(true);
+        GameLogger.setLevel(GameLogger.LogLevel.OFF);
+    }
+
+    /**
+     * Runs the check on the first frame, then closes the window.
+     *
+     * @param input The current mouse/keyboard input (unused).
+     */
+    @Override
+    protected void update(Input input) {
+        if (hasRun) {
+            return;
+        }
+        hasRun = true;
+
+        GameServer server = new GameServer(GAME_PROPS, LEVEL_NUMBER, CLIENT_COUNT);
+        try {
+            server.start(0);
+            runClients(server);
+        } catch (IOException | RuntimeException ex) {
+            System.out.println("ERROR");
+            ex.printStackTrace();
+            failures++;
+        } finally {
+            server.close();
+        }
+
+        Window.close();
+    }
+
+    /** Connects the clients, plays for the configured time and checks what they received. */
+    private void runClients(GameServer server) throws IOException {
+        Client[] clients = new Client[CLIENT_COUNT + 1]; // The last one finds the server full
+        Random random = new Random(42);
+        try (Selector selector = Selector.open()) {
+            for (int i = 0; i < clients.length; i++) {
+                SocketChannel channel = SocketChannel.open(new InetSocketAddress("127.0.0.1", server.getPort()));
+                channel.configureBlocking(false);
+                clients[i] = new Client(channel);
+                channel.register(selector, SelectionKey.OP_READ, clients[i]);
+            }
+
+            // 1) Send random input once per tick and read whatever arrived in between
+            long periodNanos = 1_000_000_000L / server.getTickRate();
+            long end = System.nanoTime() + SECONDS * 1_000_000_000L;
+            long nextInput = System.nanoTime();
+            ByteBuffer message = ByteBuffer.allocate(2);
+            while (System.nanoTime() < end) {
+                long now = System.nanoTime();
+                if (now >= nextInput) {
+                    for (Client client : clients) {
+                        if (client.isOpen()) {
+                            message.clear();
+                            message.putShort((short) VectorEnv.getActionMask(random.nextInt(VectorEnv.ACTION_COUNT)));
+                            message.flip();
+                            client.send(message);
+                        }
+                    }
+                    nextInput += periodNanos;
+                    continue;
+                }
+                selector.select(Math.max(1, (nextInput - now) / 1_000_000));
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (key.isValid() && key.isReadable()) {
+                        ((Client) key.attachment()).receive(key);
+                    }
+                }
+            }
+
+            for (Client client : clients) {
+                client.close();
+            }
+        }
+
+        // 2) Check what every client received
+        long minFrames = Long.MAX_VALUE;
+        long totalFrames = 0;
+        for (int i = 0; i < CLIENT_COUNT; i++) {
+            Client client = clients[i];
+            String problem = client.problem != null ? client.problem
+                    : client.sessionId < 0 ? "not greeted"
+                    : client.frames == 0 ? "no frames" : null;
+            if (problem != null) {
+                System.out.printf("client %d: FAIL  %s%n", i, problem);
+                failures++;
+            }
+            minFrames = Math.min(minFrames, client.frames);
+            totalFrames += client.frames;
+        }
+        Client extra = clients[CLIENT_COUNT];
+        if (extra.problem != null || !extra.isRejected) {
+            System.out.printf("extra client: FAIL  %s%n", extra.problem != null ? extra.problem : "not turned away");
+            failures++;
+        }
+
+        long expected = (long) SECONDS * server.getTickRate();
+        System.out.printf("level %d, %d clients on %d tickers: %s  frames per client min %d mean %.1f, expected about %d%n",
+                LEVEL_NUMBER, CLIENT_COUNT, server.getThreadCount(), failures == 0 ? "PASS" : "FAIL",
+                minFrames, (double) totalFrames / CLIENT_COUNT, expected);
+        server.printMetrics(System.out);
+    }
+
+    /**
+     * One loopback client: its connection and what it decoded so far.
+     */
+    private static final class Client {
+        private final SocketChannel CHANNEL;
+        private final ByteBuffer INPUT = ByteBuffer.allocate(1 << 16);
+
+        private boolean isGreeted = false;
+        private boolean isRejected = false;
+        private int sessionId = -1;
+        private long frames = 0;
+        private int lastTick = 0;
+        private String problem; // The first malformed thing received, if any
+
+        private Client(SocketChannel channel) {
+            this.CHANNEL = channel;
+        }
+
+        /** Whether the client plays; a client the server turned away sends nothing it would never read */
+        private boolean isOpen() {
+            return CHANNEL.isOpen() && isGreeted && !isRejected && problem == null;
+        }
+
+        /** Sends one input message, dropping it if the server is not reading. */
+        private void send(ByteBuffer message) {
+            try {
+                CHANNEL.write(message);
+            } catch (IOException ex) {
+                problem = "send failed: " + ex.getMessage();
+            }
+        }
+
+        /** Reads and decodes whatever the server sent. */
+        private void receive(SelectionKey key) {
+            try {
+                if (CHANNEL.read(INPUT) < 0) {
+                    key.cancel();
+                    if (!isRejected) {
+                        problem = "disconnected by the server";
+                    }
+                    return;
+                }
+            } catch (IOException ex) {
+                key.cancel();
+                problem = "read failed: " + ex.getMessage();
+                return;
+            }
+            INPUT.flip();
+            while (problem == null && decodeNext()) {
+                // Keep decoding until a message is incomplete
+            }
+            INPUT.compact();
+        }
+
+        /** Decodes one hello or frame from the input, if it has arrived completely. */
+        private boolean decodeNext() {
+            if (!isGreeted) {
+                if (INPUT.remaining() < GameSession.HELLO_SIZE) {
+                    return false;
+                }
+                if (INPUT.getInt() != GameServer.MAGIC || INPUT.get() != GameServer.VERSION) {
+                    problem = "bad hello";
+                    return false;
+                }
+                sessionId = INPUT.getInt();
+                INPUT.get();      // Level
+                INPUT.getShort(); // Tick rate
+                isGreeted = true;
+                isRejected = sessionId < 0;
+                return true;
+            }
+
+            if (INPUT.remaining() < 2 || INPUT.remaining() < 2 + INPUT.getShort(INPUT.position())) {
+                return false;
+            }
+            int length = INPUT.getShort();
+            int end = INPUT.position() + length;
+            int tick = INPUT.getInt();
+            INPUT.getInt();   // Score
+            INPUT.getShort(); // Seconds left
+            int flags = INPUT.get();
+            INPUT.position(INPUT.position() + 4 + 1); // Mario, Donkey's health
+            for (int group = 0; group < 3; group++) {
+                int count = INPUT.getShort();
+                INPUT.position(INPUT.position() + count * 4);
+            }
+            if (INPUT.position() != end) {
+                problem = "frame length " + length + " does not match its contents";
+                return false;
+            }
+            if (tick <= lastTick) {
+                problem = "tick " + tick + " after " + lastTick;
+                return false;
+            }
+            lastTick = (flags & GameSession.FLAG_OVER) != 0 ? 0 : tick;
+            frames++;
+            return true;
+        }
+
+        private void close() {
+            try {
+                CHANNEL.close();
+            } catch (IOException ignored) {
+                // Already closed
+            }
+        }
+    }
+
+    /**
+     * Entry point for the check. Exits with status 1 if it failed.
+     *
+     * @param args Optional level, number of clients and seconds played.
+     */
+    public static void main(String[] args) {
+        Properties gameProps = IOUtils.readPropertiesFile("res/app.properties");
+        int levelNumber = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+        int clientCount = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        LoopbackServerCheck check = new LoopbackServerCheck(gameProps, levelNumber, clientCount, seconds);
+        check.run();
+        System.exit(check.failures > 0 ? 1 : 0);
+    }
+}
@@ -3,11 +3,19 @@ import bagel.util.Rectangle;
 import bagel.util.Colour;
 
 import java.awt.event.InputEvent;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 
 /**
  * Represents the player-controlled character, Mario.
  * Mario can move, jump, climb ladders, pick up a hammer, and interact with platforms.
+ *
+ * Mario's movement is a state machine over {@link MovementState}: each update first lets a ladder
+ * catch him, whatever he was doing, then runs only the vertical checks of the state he is in.
+ * What he holds and which way he faces are separate axes, so they do not multiply the movement
+ * states; his sprite is looked up from a table over the two.
  */
 public class Mario {
     private double x, y; // Mario's position
@@ -15,30 +23,47 @@ public class Mario {
     private boolean isJumping = false; // Whether Mario is currently jumping
     private boolean hasHammer = false; // Whether Mario has collected a hammer
     private boolean hasBlaster = false; // Whether Mario has collected a blaster
+    private double sweepStartX; // Where Mario's last update started, so the x-interval he swept is known
+    private boolean isSweepAirborne = false; // Whether Mario was already jumping when his last update started
     // Mario images for different states
     private Image marioImage;
-    private final Image MARIO_RIGHT_IMAGE;
-    private final Image MARIO_LEFT_IMAGE;
-    private final Image MARIO_HAMMER_LEFT_IMAGE;
-    private final Image MARIO_HAMMER_RIGHT_IMAGE;
-    private final Image MARIO_BLASTER_LEFT_IMAGE;
-    private final Image MARIO_BLASTER_RIGHT_IMAGE;
+    private final Image[][] SPRITES; // Indexed by held item, then 0 facing left or 1 facing right
 
 
     // Movement physics constants
-    private static final double JUMP_STRENGTH = -5;
-    private static final double MOVE_SPEED = 3.5;
-    private static final double CLIMB_SPEED = 2;
+    // Package-private so the navigation graph can derive movement costs from them
+    static final double JUMP_STRENGTH = -5;
+    static final double MOVE_SPEED = 3.5;
+    static final double CLIMB_SPEED = 2;
 
-    private static double height;
-    private static double width;
+    // How far above a barrel a jump can carry Mario, the height of the jump's arc
+    private static final double JUMP_CLEARANCE = (JUMP_STRENGTH * JUMP_STRENGTH) / (2 * Physics.MARIO_GRAVITY);
+
+    private double height;
+    private double width;
     private boolean isFacingRight = true; // Mario's facing direction
 
     private enum HeldItem { NONE, HAMMER, BLASTER }
     private HeldItem currentItem = HeldItem.NONE;
 
+    /**
+     * How Mario is moving vertically; decides which checks an update runs.
+     */
+    private enum MovementState {
+        GROUNDED,  // Standing on a platform or the bottom of the screen; may jump
+        AIRBORNE,  // Jumping or falling; may land once he is coming down
+        CLIMBING   // Held by a ladder, out of gravity's reach
+    }
+    private MovementState movementState = MovementState.AIRBORNE;
+
     private ArrayList<Blaster> collectedBlasters = new ArrayList<>();
 
+    private GameEventBus events; // Bus for item collection events, set by the level
+
+    // Platforms never move, so their boxes are packed once per platform array
+    private Platform[] packedPlatforms;
+    private AabbKernel platformBoxes;
+
 
 
     /**
@@ -50,17 +75,19 @@ public class Mario {
     public Mario(double startX, double startY) {
         this.x = startX;
         this.y = startY;
+        this.sweepStartX = startX;
 
-        // Load images for left and right-facing Mario
-        this.MARIO_RIGHT_IMAGE = new Image("res/mario_right.png");
-        this.MARIO_LEFT_IMAGE = new Image("res/mario_left.png");
-        this.MARIO_HAMMER_RIGHT_IMAGE = new Image("res/mario_hammer_right.png");
-        this.MARIO_HAMMER_LEFT_IMAGE = new Image("res/mario_hammer_left.png");
-        this.MARIO_BLASTER_LEFT_IMAGE = new Image("res/mario_blaster_left.png");
-        this.MARIO_BLASTER_RIGHT_IMAGE = new Image("res/mario_blaster_right.png");
+        // Load images for left and right-facing Mario, for each held item
+        this.SPRITES = new Image[HeldItem.values().length][];
+        SPRITES[HeldItem.NONE.ordinal()] = new Image[] {
+                new Image("res/mario_left.png"), new Image("res/mario_right.png") };
+        SPRITES[HeldItem.HAMMER.ordinal()] = new Image[] {
+                new Image("res/mario_hammer_left.png"), new Image("res/mario_hammer_right.png") };
+        SPRITES[HeldItem.BLASTER.ordinal()] = new Image[] {
+                new Image("res/mario_blaster_left.png"), new Image("res/mario_blaster_right.png") };
 
         // Default Mario starts facing right
-        this.marioImage = MARIO_HAMMER_RIGHT_IMAGE;
+        this.marioImage = SPRITES[HeldItem.HAMMER.ordinal()][1];
 
         width = marioImage.getWidth();
         height = marioImage.getHeight();
@@ -75,6 +102,15 @@ public class Mario {
         this.hasHammer = status;
     }
 
+    /**
+     * Sets the bus on which Mario publishes item collection events.
+     *
+     * @param events The level's event bus.
+     */
+    public void setEventBus(GameEventBus events) {
+        this.events = events;
+    }
+
     /**
      * Sets whether Mario has picked up the blaster.
      *
@@ -121,14 +157,33 @@ public class Mario {
      */
     public int getTotalBullets() {
         int total = 0;
-        for (Blaster blaster : collectedBlasters) {
-            total += blaster.getBullets();
+        // Indexed, as the HUD asks every frame and an iterator would be allocated each time
+        for (int i = 0; i < collectedBlasters.size(); i++) {
+            total += collectedBlasters.get(i).getBullets();
         }
         return total;
     }
     
 
 
+    /**
+     * Gets Mario's x-coordinate.
+     *
+     * @return The x-coordinate of Mario's centre.
+     */
+    public double getX() {
+        return x;
+    }
+
+    /**
+     * Gets Mario's y-coordinate.
+     *
+     * @return The y-coordinate of Mario's centre.
+     */
+    public double getY() {
+        return y;
+    }
+
     /**
      * Gets Mario's bounding box for collision detection.
      *
@@ -147,92 +202,146 @@ public class Mario {
      * Updates Mario's movement, jumping, ladder climbing, hammer collection, and interactions.
      * This method is called every frame to process player input and update Mario's state.
      *
-     * @param input     The player's input (keyboard/mouse).
+     * @param input     The player's input (keyboard, recorded or generated).
      * @param ladders   The array of ladders in the game that Mario can climb.
      * @param platforms The array of platforms in the game that Mario can walk on.
      * @param hammer    The hammer object that Mario can collect and use.
      */
-    public void update(Input input, Ladder[] ladders, Platform[] platforms, Hammer hammer, Blaster[] blasters) {
-        handleHorizontalMovement(input); // 1) Horizontal movement
-        // updateSprite(hammer); // 2) Update Mario’s current sprite (hammer or not, facing left or right)
-        handleHammerCollection(hammer); // 3) If you just picked up the hammer:
-        handleBlasterCollection(blasters); //3.1) If you just picked up a blaster.
-
+    public void update(Controls input, Ladder[] ladders, Platform[] platforms, Hammer hammer, Blaster[] blasters) {
+        // 0) Remember where this update's horizontal sweep starts, for scoring barrels jumped over
+        sweepStartX = x;
+        isSweepAirborne = isJumping;
 
-        updateSprite(); // 4) Now replace sprite (since either isFacingRight or hasHammer could have changed)
-
-        // 5) Ladder logic – check if on a ladder
-        boolean isOnLadder;
-        isOnLadder = handleLadders(input, ladders);
+        handleHorizontalMovement(input); // 1) Horizontal movement
+        handleHammerCollection(hammer); // 2) If you just picked up the hammer:
+        handleBlasterCollection(blasters); // 2.1) If you just picked up a blaster.
 
-        // 6) Jump logic: if on platform (we'll detect after we move) but let's queue jump if needed
-        boolean wantsToJump = input.wasPressed(Keys.SPACE);
+        // 3) Replace the sprite only if the held item or facing changed since it was chosen
+        if (marioImage != selectSprite()) {
+            updateSprite();
+        }
 
-        // 7) If not on ladder, apply gravity, move Mario
-        if (!isOnLadder) {
-            velocityY += Physics.MARIO_GRAVITY;
-            velocityY = Math.min(Physics.MARIO_TERMINAL_VELOCITY, velocityY);
+        // 4) A ladder can catch Mario in any state; off one, a climber starts to fall
+        if (handleLadders(input, ladders)) {
+            movementState = MovementState.CLIMBING;
+        } else if (movementState == MovementState.CLIMBING) {
+            movementState = MovementState.AIRBORNE;
         }
 
-        // 8) Actually move Mario vertically after gravity
-        y += velocityY;
+        // 5) Run only the vertical checks of Mario's state
+        switch (movementState) {
+            case GROUNDED:
+                updateStanding(platforms);
+                break;
+            case AIRBORNE:
+                updateFalling(platforms);
+                break;
+            case CLIMBING:
+                updateClimbing(platforms);
+                break;
+        }
 
-        // 9) Check for platform collision AFTER Mario moves
-        boolean onPlatform;
-        onPlatform = handlePlatforms(platforms, hammer);
+        // 6) Only Mario standing on a platform can jump
+        if (movementState == MovementState.GROUNDED && input.wasPressed(Keys.SPACE)) {
+            jump();
+        }
 
-        // 10) If we are on the platform, allow jumping; Prevent Mario from falling below the ground
-        handleJumping(onPlatform, wantsToJump);
+        // 7) Prevent Mario from falling below the ground
+        handleScreenBottom();
 
-        // 11) Enforce horizontal screen bounds
+        // 8) Enforce horizontal screen bounds
         enforceBoundaries();
 
-        // 12) Draw Mario
+        // 9) Draw Mario
         draw();
     }
 
-    public void update(Input input, Ladder[] ladders, Platform[] platforms, Hammer hammer) {
+    public void update(Controls input, Ladder[] ladders, Platform[] platforms, Hammer hammer) {
         // Call the full version, passing an empty array for blasters
         update(input, ladders, platforms, hammer, new Blaster[0]);
     }
 
     /**
-     * Handles Mario's interaction with platforms to determine if he is standing on one.
-     * Mario will only snap to a platform if he is moving downward (velocityY >= 0),
-     * preventing his jump from being interrupted in mid-air.
+     * Vertical step for {@link MovementState#GROUNDED}: gravity sinks Mario into the platform he
+     * stands on and he is put back on it. If no platform takes him, he has walked off a ledge.
+     *
+     * @param platforms The platforms Mario can land on.
+     */
+    private void updateStanding(Platform[] platforms) {
+        applyGravity();
+        if (!landOnPlatform(platforms)) {
+            movementState = MovementState.AIRBORNE;
+        }
+    }
+
+    /**
+     * Vertical step for {@link MovementState#AIRBORNE}: gravity pulls Mario along his arc, and once
+     * he is coming down he lands on the first platform he meets. Rising Mario cannot land, so the
+     * platforms are not checked.
+     *
+     * @param platforms The platforms Mario can land on.
+     */
+    private void updateFalling(Platform[] platforms) {
+        applyGravity();
+        if (velocityY > 0 && landOnPlatform(platforms)) {
+            movementState = MovementState.GROUNDED;
+        }
+    }
+
+    /** Speeds Mario's fall up to terminal velocity and moves him by it. */
+    private void applyGravity() {
+        velocityY = Physics.add(velocityY, Physics.MARIO_GRAVITY);
+        velocityY = Math.min(Physics.MARIO_TERMINAL_VELOCITY, velocityY);
+        y = Physics.add(y, velocityY);
+    }
+
+    /**
+     * Vertical step for {@link MovementState#CLIMBING}: the ladder has already moved Mario and almost
+     * always stopped him, so there is no gravity and usually nothing else to do. Only a fall he
+     * carried onto the ladder moves him further, and that can still land him on a platform.
+     *
+     * @param platforms The platforms Mario can land on.
+     */
+    private void updateClimbing(Platform[] platforms) {
+        if (velocityY != 0) {
+            y = Physics.add(y, velocityY);
+            if (velocityY > 0 && landOnPlatform(platforms)) {
+                movementState = MovementState.GROUNDED;
+            }
+        }
+    }
+
+    /**
+     * Lands Mario on the first platform, in array order, that he has come down onto this update.
+     * Only called while he is moving down; a platform he overlaps by more than this update's fall is
+     * one he is passing in front of, not landing on.
      *
      * @param platforms An array of {@link Platform} objects representing the platforms in the game.
-     * @param hammer    A {@link Hammer} object (not used in this method, but might be for future logic).
-     * @return {@code true} if Mario is standing on a platform, {@code false} otherwise.
-     */
-    private boolean handlePlatforms(Platform[] platforms, Hammer hammer) {
-        boolean onPlatform = false;
-
-        // We'll only snap Mario to a platform if he's moving downward (velocityY >= 0)
-        // so we don't kill his jump in mid-air.
-        if (velocityY >= 0) {
-            for (Platform platform : platforms) {
-                Rectangle marioBounds    = getBoundingBox();
-                Rectangle platformBounds = platform.getBoundingBox();
-
-                if (marioBounds.intersects(platformBounds)) {
-                    double marioBottom = marioBounds.bottom();
-                    double platformTop = platformBounds.top();
-
-                    // If Mario's bottom is at or above the platform's top
-                    // and not far below it (a small threshold based on velocity)
-                    if (marioBottom <= platformTop + velocityY) {
-                        // Snap Mario so his bottom = the platform top
-                        y = platformTop - (marioImage.getHeight() / 2);
-                        velocityY = 0;
-                        isJumping = false;
-                        onPlatform = true;
-                        break; // We found a platform collision
-                    }
-                }
+     * @return {@code true} if Mario landed on a platform, {@code false} otherwise.
+     */
+    private boolean landOnPlatform(Platform[] platforms) {
+        if (platforms != packedPlatforms) {
+            packedPlatforms = platforms;
+            platformBoxes = AabbKernel.ofPlatforms(platforms);
+        }
+
+        // Visit the platforms Mario overlaps in array order, without building their rectangles
+        Rectangle marioBounds = getBoundingBox();
+        for (int i = platformBoxes.firstHit(marioBounds, 0); i >= 0; i = platformBoxes.firstHit(marioBounds, i + 1)) {
+            double marioBottom = marioBounds.bottom();
+            double platformTop = platforms[i].getBoundingBox().top();
+
+            // If Mario's bottom is at or above the platform's top
+            // and not far below it (a small threshold based on velocity)
+            if (marioBottom <= platformTop + velocityY) {
+                // Snap Mario so his bottom = the platform top
+                y = platformTop - (marioImage.getHeight() / 2);
+                velocityY = 0;
+                isJumping = false;
+                return true; // We found a platform collision
             }
         }
-        return onPlatform;
+        return false;
     }
 
     /**
@@ -241,14 +350,22 @@ public class Mario {
      *
      * Mario can only climb if he is within the horizontal boundaries of the ladder.
      * He stops sliding unintentionally when not pressing movement keys.
+     * Ladders only ever move vertically, so those clear of Mario's sides are skipped without building their boxes.
      *
-     * @param input   The {@link Input} object that checks for user key presses.
+     * @param input   The {@link Controls} object that checks for user key presses.
      * @param ladders An array of {@link Ladder} objects representing ladders in the game.
      * @return {@code true} if Mario is on a ladder, {@code false} otherwise.
      */
-    private boolean handleLadders(Input input, Ladder[] ladders) {
+    private boolean handleLadders(Controls input, Ladder[] ladders) {
         boolean isOnLadder = false;
+        // A pixel of slack keeps rounding from skipping a ladder that only just touches Mario
+        double reachLeft = x - (width / 2) - 1;
+        double reachRight = x + (width / 2) + 1;
         for (Ladder ladder : ladders) {
+            double halfLadderWidth = ladder.getWidth() / 2;
+            if (ladder.getX() + halfLadderWidth < reachLeft || ladder.getX() - halfLadderWidth > reachRight) {
+                continue; // Neither touching Mario nor under his centre
+            }
             double ladderLeft  = ladder.getX() - (ladder.getWidth() / 2);
             double ladderRight = ladder.getX() + (ladder.getWidth() / 2);
             double marioRight  = x + (marioImage.getWidth() / 2);
@@ -268,13 +385,13 @@ public class Mario {
 
                     // ----------- Climb UP -----------
                     if (input.isDown(Keys.UP)) {
-                        y -= CLIMB_SPEED;
+                        y = Physics.add(y, -CLIMB_SPEED);
                         velocityY = 0;
                     }
 
                     // ----------- Climb DOWN -----------
                     if (input.isDown(Keys.DOWN)) {
-                        double nextY = y + CLIMB_SPEED;
+                        double nextY = Physics.add(y, CLIMB_SPEED);
                         double nextBottom = nextY + (marioImage.getHeight() / 2);
 
                         if (marioBottom > ladderTop && nextBottom <= ladderBottom) {
@@ -283,13 +400,13 @@ public class Mario {
                         } else if (marioBottom == ladderBottom) {
                             velocityY = 0;
                         } else if (ladderBottom - marioBottom < CLIMB_SPEED) {
-                            y = y + ladderBottom - marioBottom;
+                            y = Physics.add(Physics.add(y, ladderBottom), -marioBottom);
                             velocityY = 0;
                         }
                     }
                 }
             } else if (marioBottom == ladderTop && input.isDown(Keys.DOWN) && (marioRight - marioImage.getWidth() / 2 > ladderLeft && marioRight - marioImage.getWidth() / 2  < ladderRight)) {
-                double nextY = y + CLIMB_SPEED;
+                double nextY = Physics.add(y, CLIMB_SPEED);
                 y = nextY;
                 velocityY = 0; // ignore gravity
             } else if (marioBottom == ladderBottom && input.isDown(Keys.DOWN) && (marioRight - marioImage.getWidth() / 2 > ladderLeft && marioRight - marioImage.getWidth() / 2  < ladderRight)) {
@@ -300,32 +417,16 @@ public class Mario {
     }
 
     /** Handles horizontal movement based on player input. */
-    private void handleHorizontalMovement(Input input) {
+    private void handleHorizontalMovement(Controls input) {
         if (input.isDown(Keys.LEFT)) {
-            x -= MOVE_SPEED;
+            x = Physics.add(x, -MOVE_SPEED);
             isFacingRight = false;
         } else if (input.isDown(Keys.RIGHT)) {
-            x += MOVE_SPEED;
+            x = Physics.add(x, MOVE_SPEED);
             isFacingRight = true;
         }
     }
 
-    /*Updates Mario's sprite based on his current state.*//*
-    private void updateSprite(Hammer hammer) {
-        marioImage = hasHammer
-                ? (isFacingRight ? MARIO_HAMMER_RIGHT_IMAGE : MARIO_HAMMER_LEFT_IMAGE)
-                : (isFacingRight ? MARIO_RIGHT_IMAGE : MARIO_LEFT_IMAGE);
-    }
-
-    private void updateSprite( Blaster[] blasters) {
-        marioImage = hasBlaster
-                ? (isFacingRight ? MARIO_BLASTER_RIGHT_IMAGE : MARIO_BLASTER_LEFT_IMAGE)
-                : (isFacingRight ? MARIO_RIGHT_IMAGE : MARIO_LEFT_IMAGE);
-    }*/
-
-
-
-
     /** Handles collecting the hammer if Mario is in contact with it. */
     private void handleHammerCollection(Hammer hammer) {
         if (!hammer.isCollected() && isTouchingHammer(hammer)) {
@@ -333,7 +434,10 @@ public class Mario {
             setHasBlaster(false);  // to drop the blaster
             currentItem = HeldItem.HAMMER;
             hammer.collect();
-            System.out.println("Hammer collected!");
+            if (events != null) {
+                events.publish(GameEventType.ITEM_COLLECTED, 0);
+            }
+            GameLogger.log(GameLogger.Event.HAMMER_COLLECTED);
             updateSprite(); // Update sprite immediately when Mario collects the hammer
 
         }
@@ -348,30 +452,40 @@ public class Mario {
                 setHasHammer(false);  // to drop the hammer
                 setHasBlaster(true);
                 currentItem = HeldItem.BLASTER;
-                System.out.println("Blaster collected! Total bullets: " + getTotalBullets());
+                if (events != null) {
+                    events.publish(GameEventType.ITEM_COLLECTED, blaster.getBullets());
+                }
+                if (GameLogger.isEnabled(GameLogger.Event.BLASTER_COLLECTED)) {
+                    GameLogger.log(GameLogger.Event.BLASTER_COLLECTED, getTotalBullets());
+                }
                 updateSprite(); // Update sprite immediately when Mario collects the Blaster
             }
         }
     }
 
-    /** Handles jumping if Mario is on a platform and jump is requested. */
-    private void handleJumping(boolean onPlatform, boolean wantsToJump) {
-        if (onPlatform && wantsToJump) {
-            velocityY = JUMP_STRENGTH;
-            isJumping = true;
-            System.out.println("Jumping!");
-        }
+    /** Starts a jump from where Mario stands. */
+    private void jump() {
+        velocityY = JUMP_STRENGTH;
+        isJumping = true;
+        movementState = MovementState.AIRBORNE;
+        GameLogger.log(GameLogger.Event.JUMP);
+    }
+
+    /** Keeps Mario from falling below the bottom of the screen, which he then stands on. */
+    private void handleScreenBottom() {
         double bottomOfMario = y + (marioImage.getHeight() / 2);
         if (bottomOfMario > ShadowDonkeyKong.getScreenHeight()) {
             y = ShadowDonkeyKong.getScreenHeight() - (marioImage.getHeight() / 2);
             velocityY = 0;
             isJumping = false;
+            movementState = MovementState.GROUNDED;
         }
     }
 
     /**
      * Enforces screen boundaries to prevent Mario from moving out of bounds.
-     * Ensures Mario stays within the left, right, and bottom limits of the game window.
+     * Ensures Mario stays within the left and right limits of the game window; the bottom
+     * limit is already enforced by {@link #handleScreenBottom()}.
      */
     private void enforceBoundaries() {
         // Calculate half the width of the Mario image (used for centering and boundary checks)
@@ -387,19 +501,6 @@ public class Mario {
         if (x > maxX) {
             x = maxX;
         }
-
-        // Calculate Mario's bottom edge position
-        double bottomOfMario = y + (marioImage.getHeight() / 2);
-
-        // Prevent Mario from falling below the bottom of the screen
-        if (bottomOfMario > ShadowDonkeyKong.getScreenHeight()) {
-            // Reposition Mario to stand on the bottom edge
-            y = ShadowDonkeyKong.getScreenHeight() - (marioImage.getHeight() / 2);
-
-            // Stop vertical movement and reset jumping state
-            velocityY = 0;
-            isJumping = false;
-        }
     }
 
 
@@ -414,26 +515,7 @@ public class Mario {
         double oldBottom = y + (oldHeight / 2);
 
         // 2) Assign the new image based on facing & hammer and blaster
-        //    (Whatever logic you currently use in update())
-
-        switch (currentItem) {
-            case HAMMER:
-                marioImage = isFacingRight ? MARIO_HAMMER_RIGHT_IMAGE : MARIO_HAMMER_LEFT_IMAGE;
-                break;
-            case BLASTER:
-                marioImage = isFacingRight ? MARIO_BLASTER_RIGHT_IMAGE : MARIO_BLASTER_LEFT_IMAGE;
-                break;
-            default:
-                marioImage = isFacingRight ? MARIO_RIGHT_IMAGE : MARIO_LEFT_IMAGE;
-                break;
-        }
-
-
-
-
-
-
-
+        marioImage = selectSprite();
 
         // 3) Now recalc Mario’s bottom with the new image
         double newHeight = marioImage.getHeight();
@@ -441,7 +523,7 @@ public class Mario {
 
         // 4) Shift 'y' so the bottom edge is the same as before
         //    (If new sprite is taller, we move Mario up so he doesn't sink into platforms)
-        y -= (newBottom - oldBottom);
+        y = Physics.add(y, -(newBottom - oldBottom));
 
         // 5) Update the recorded width/height to match the new image
         width  = marioImage.getWidth();
@@ -449,10 +531,98 @@ public class Mario {
     }
 
 
+    /**
+     * Selects the sprite for Mario's current held item and facing direction.
+     *
+     * @return The matching image.
+     */
+    private Image selectSprite() {
+        return SPRITES[currentItem.ordinal()][isFacingRight ? 1 : 0];
+    }
+
+    /**
+     * Writes Mario's dynamic state for a replay keyframe.
+     * Collected blasters are written as indices into the level's blaster array, in collection order.
+     *
+     * @param out      The stream to write to.
+     * @param blasters The level's blasters.
+     * @throws IOException If writing fails.
+     */
+    public void writeState(DataOutput out, Blaster[] blasters) throws IOException {
+        Physics.writeValue(out, x);
+        Physics.writeValue(out, y);
+        Physics.writeValue(out, velocityY);
+        out.writeBoolean(isJumping);
+        Physics.writeValue(out, sweepStartX);
+        out.writeBoolean(isSweepAirborne);
+        out.writeBoolean(hasHammer);
+        out.writeBoolean(hasBlaster);
+        out.writeBoolean(isFacingRight);
+        out.writeByte(currentItem.ordinal());
+        out.writeInt(collectedBlasters.size());
+        for (Blaster blaster : collectedBlasters) {
+            int index = 0;
+            while (blasters[index] != blaster) {
+                index++;
+            }
+            out.writeInt(index);
+        }
+    }
+
+    /**
+     * Restores the state written by {@link #writeState(DataOutput, Blaster[])}.
+     *
+     * @param in       The stream to read from.
+     * @param blasters The level's blasters.
+     * @throws IOException If reading fails.
+     */
+    public void readState(DataInput in, Blaster[] blasters) throws IOException {
+        x = Physics.readValue(in);
+        y = Physics.readValue(in);
+        velocityY = Physics.readValue(in);
+        isJumping = in.readBoolean();
+        sweepStartX = Physics.readValue(in);
+        isSweepAirborne = in.readBoolean();
+        hasHammer = in.readBoolean();
+        hasBlaster = in.readBoolean();
+        isFacingRight = in.readBoolean();
+        currentItem = HeldItem.values()[in.readByte()];
+        collectedBlasters.clear();
+        int blasterCount = in.readInt();
+        for (int i = 0; i < blasterCount; i++) {
+            collectedBlasters.add(blasters[in.readInt()]);
+        }
+        marioImage = selectSprite();
+        width = marioImage.getWidth();
+        height = marioImage.getHeight();
+        // Not written, so assume the state whose checks hold wherever Mario is; his next update settles it
+        movementState = MovementState.AIRBORNE;
+    }
+
+    /**
+     * Gets where Mario's last update started; he swept the x-interval from here to {@link #getX()}.
+     *
+     * @return The x-coordinate of Mario's centre before his last update.
+     */
+    public double getSweepStartX() {
+        return sweepStartX;
+    }
+
+    /**
+     * Checks whether Mario was already jumping when his last update started, i.e. whether he swept
+     * his last x-interval in the air.
+     *
+     * @return {@code true} if the last sweep was airborne.
+     */
+    public boolean isSweepAirborne() {
+        return isSweepAirborne;
+    }
+
     /**
      * Draws Mario on the screen.
      */
     public void draw() {
+        if (ShadowDonkeyKong.isHeadless()) return;
         marioImage.draw(x, y);
 //    drawBoundingBox(); // Uncomment for debugging
     }
@@ -538,17 +708,32 @@ public class Mario {
     }
 
     /**
-     * Determines if Mario successfully jumps over a barrel.
+     * Determines if Mario jumped over a barrel in his last update: he was already in the air, the
+     * x-interval he swept crossed the barrel's centre, and he is above the barrel within a jump's
+     * reach of it. The interval excludes where he started and includes where he ended, so each
+     * crossing counts on exactly one update however fast Mario moves.
      *
      * @param barrel The barrel object to check.
-     * @return {@code true} if Mario successfully jumps over the barrel, {@code false} otherwise.
+     * @return {@code true} if Mario jumped over the barrel, {@code false} otherwise.
      */
     public boolean jumpOver(Barrel barrel) {
-        return isJumping
-                && Math.abs(this.x - barrel.getX()) <= 1
-                && (this.y < barrel.getY())
+        double barrelX = barrel.getX();
+        boolean isCrossed = x > sweepStartX
+                ? sweepStartX < barrelX && barrelX <= x
+                : x <= barrelX && barrelX < sweepStartX;
+        return isSweepAirborne && isCrossed && isClearing(barrel);
+    }
+
+    /**
+     * Checks whether Mario is above a barrel and within a jump's reach of it.
+     *
+     * @param barrel The barrel to check.
+     * @return {@code true} if Mario is clearing the barrel.
+     */
+    public boolean isClearing(Barrel barrel) {
+        return (this.y < barrel.getY())
                 && ((this.y + height / 2) >= (barrel.getY() + barrel.getBarrelImage().getHeight() / 2
-                - (JUMP_STRENGTH * JUMP_STRENGTH) / (2 * Physics.MARIO_GRAVITY) - height / 2));
+                - JUMP_CLEARANCE - height / 2));
     }
 
 }
@@ -0,0 +1,373 @@
+import bagel.Keys;
+import bagel.util.Rectangle;
+
+import java.util.Arrays;
+
+/**
+ * {@link Controls} generated by a bot that plays a level on its own, used to drive headless
+ * benchmarks with realistic input and to smoke-test levels.
+ *
+ * The bot heads for the hammer and then for Donkey Kong (or, once it only has the blaster,
+ * to a spot where it can shoot him). Routes come from A* over the level's {@link NavigationGraph}.
+ * A route is only recomputed when something invalidates it: the goal changes, the set of surfaces
+ * with threats on them changes, Mario ends up somewhere the route does not go, or a step takes far
+ * longer than planned. Between replans the bot just follows the route, jumping over or shooting
+ * threats that are directly ahead.
+ *
+ * Call {@link #update(Level)} before each {@link Level#update(Controls)} and pass the bot as the controls.
+ */
+public class MarioBot implements Controls {
+
+    /** What the bot is trying to reach */
+    private enum Goal { NONE, HAMMER, DONKEY, SHOOT_DONKEY }
+
+    /** Extra walking cost on a surface with a threat on it, as a fraction of the walking time */
+    private static final double THREAT_PENALTY = 3;
+
+    /** A step of the route is abandoned after this multiple of its planned cost, plus the grace period */
+    private static final double STUCK_FACTOR = 3;
+    private static final int STUCK_GRACE_FRAMES = 120;
+
+    /** Distance from Donkey Kong to shoot from, and frames between shots */
+    private static final double SHOOT_DISTANCE = 150;
+    private static final int SHOOT_INTERVAL = 20;
+
+    /** Threats further ahead than this are shot rather than jumped over, if Mario has bullets */
+    private static final double SHOOT_RANGE = 300;
+
+    /** Keys for the current frame */
+    private boolean left, right, up, down, jump, shoot;
+
+    private NavigationGraph graph;
+
+    private Goal goal = Goal.NONE;
+    private int goalSurface = -1;
+    private double[] surfacePenalty;
+    private int[] path;            // Edges of the current route, or null if there is none
+    private int pathIndex;         // The edge being followed; path.length once on the goal surface
+    private int edgeFrames;        // Frames spent on the current edge
+    private boolean hasTakenOff;    // Whether the current edge has got past walking to its starting point
+    private boolean hasLeftSurface; // Whether Mario has been off the ground since taking off
+    private boolean needsReplan = true;
+
+    private int lastDirection = 1; // Last horizontal key pressed: -1 left, 1 right
+    private int framesSinceShot = SHOOT_INTERVAL;
+    private int replanCount = 0;
+
+    /**
+     * Decides the keys to press for the frame the level is about to play.
+     *
+     * @param level The level being played.
+     */
+    public void update(Level level) {
+        left = right = up = down = jump = shoot = false;
+        framesSinceShot++;
+        Mario mario = level.getMario();
+
+        // 1) Wait for the level's navigation graph, which exists once the ladders have landed
+        if (graph == null) {
+            graph = level.getNavigationGraph();
+            if (graph == null) {
+                return;
+            }
+            surfacePenalty = new double[graph.getSurfaceCount()];
+        }
+
+        // 2) Pick the goal; a new goal needs a new route
+        Rectangle marioBounds = mario.getBoundingBox();
+        Goal newGoal = chooseGoal(level);
+        Rectangle target = newGoal == Goal.HAMMER ? level.getHammer().getBoundingBox() : level.getDonkey().getBoundingBox();
+        int newGoalSurface = newGoal == Goal.NONE ? -1 : graph.findSurfaceBelow(target);
+        if (newGoal != goal || newGoalSurface != goalSurface) {
+            goal = newGoal;
+            goalSurface = newGoalSurface;
+            needsReplan = true;
+        }
+        if (goal == Goal.NONE || goalSurface == -1) {
+            return;
+        }
+        double goalX = chooseGoalX(target, marioBounds);
+
+        // 3) A change in which surfaces are threatened needs a new route
+        if (updateThreats(level, mario.holdHammer())) {
+            needsReplan = true;
+        }
+
+        // 4) Replan if required, which can only be done while standing on a surface
+        int surface = graph.findStandingSurface(marioBounds);
+        if (path != null && pathIndex < path.length && surface != -1
+                && surface != graph.getEdgeFromSurface(path[pathIndex])
+                && surface != graph.getEdgeToSurface(path[pathIndex])) {
+            needsReplan = true; // Mario is somewhere the route does not go
+        }
+        if (needsReplan && surface != -1) {
+            path = graph.findPath(surface, mario.getX(), goalSurface, goalX, surfacePenalty);
+            pathIndex = 0;
+            edgeFrames = 0;
+            hasTakenOff = false;
+            hasLeftSurface = false;
+            needsReplan = false;
+            replanCount++;
+        }
+
+        // 5) Follow the route
+        if (path == null) {
+            walkTowards(mario.getX(), goalX); // Unreachable: get as close as possible
+        } else if (pathIndex == path.length) {
+            reachGoal(mario, goalX, target);
+        } else {
+            followEdge(mario, marioBounds, surface);
+        }
+
+        // 6) Deal with threats directly ahead
+        if (!mario.holdHammer() && surface != -1 && !up && !down) {
+            avoidThreats(level, mario, marioBounds, surface);
+        }
+        if (shoot) {
+            framesSinceShot = 0;
+        }
+    }
+
+    /**
+     * Gets the number of routes planned so far.
+     *
+     * @return The replan count.
+     */
+    public int getReplanCount() {
+        return replanCount;
+    }
+
+    @Override
+    public boolean isDown(Keys key) {
+        switch (key) {
+            case LEFT: return left;
+            case RIGHT: return right;
+            case UP: return up;
+            case DOWN: return down;
+            default: return false;
+        }
+    }
+
+    @Override
+    public boolean wasPressed(Keys key) {
+        switch (key) {
+            case SPACE: return jump;
+            case S: return shoot;
+            default: return false;
+        }
+    }
+
+    /** The hammer first, then Donkey Kong; without the hammer, shoot him if there are bullets left. */
+    private static Goal chooseGoal(Level level) {
+        Mario mario = level.getMario();
+        if (mario.holdHammer()) {
+            return Goal.DONKEY;
+        }
+        if (!level.getHammer().isCollected()) {
+            return Goal.HAMMER;
+        }
+        return mario.getTotalBullets() > 0 ? Goal.SHOOT_DONKEY : Goal.NONE;
+    }
+
+    /** Where to stand on the goal surface: on the target, or within range of Donkey Kong to shoot him. */
+    private double chooseGoalX(Rectangle target, Rectangle marioBounds) {
+        double targetX = (target.left() + target.right()) / 2;
+        if (goal != Goal.SHOOT_DONKEY) {
+            return targetX;
+        }
+        double marioX = (marioBounds.left() + marioBounds.right()) / 2;
+        double x = marioX < targetX ? targetX - SHOOT_DISTANCE : targetX + SHOOT_DISTANCE;
+        return Math.max(graph.getSurfaceLeft(goalSurface), Math.min(graph.getSurfaceRight(goalSurface), x));
+    }
+
+    /**
+     * Recomputes the threat penalty of each surface: live barrels and monkeys, which only matter
+     * while Mario has no hammer.
+     *
+     * @return {@code true} if the threatened surfaces changed.
+     */
+    private boolean updateThreats(Level level, boolean hasHammer) {
+        double[] previous = surfacePenalty.clone();
+        Arrays.fill(surfacePenalty, 0);
+        if (!hasHammer) {
+            for (Barrel barrel : level.getBarrels()) {
+                if (barrel != null && !barrel.isDestroyed()) {
+                    markThreat(barrel.getBoundingBox());
+                }
+            }
+            if (level instanceof Level2) {
+                for (Monkey monkey : ((Level2) level).getMonkeys()) {
+                    if (monkey != null && !monkey.isDestroyed()) {
+                        markThreat(monkey.getBoundingBox());
+                    }
+                }
+            }
+        }
+        return !Arrays.equals(previous, surfacePenalty);
+    }
+
+    private void markThreat(Rectangle bounds) {
+        int surface = graph.findSurfaceBelow(bounds);
+        if (surface != -1) {
+            surfacePenalty[surface] = THREAT_PENALTY;
+        }
+    }
+
+    /** Takes the next step along the current edge, moving on to the next edge when it is done. */
+    private void followEdge(Mario mario, Rectangle marioBounds, int surface) {
+        int edge = path[pathIndex];
+        int from = graph.getEdgeFromSurface(edge);
+        int to = graph.getEdgeToSurface(edge);
+        double fromX = graph.getEdgeFromX(edge);
+        double toX = graph.getEdgeToX(edge);
+        boolean isDone = false;
+
+        if (hasTakenOff && surface == -1) {
+            hasLeftSurface = true;
+        }
+        boolean isApproaching = !hasTakenOff && surface == from && Math.abs(mario.getX() - fromX) >= Mario.MOVE_SPEED;
+
+        switch (graph.getEdgeType(edge)) {
+            case WALK:
+                walkTowards(mario.getX(), toX);
+                isDone = Math.abs(mario.getX() - toX) < Mario.MOVE_SPEED;
+                break;
+            case CLIMB:
+                if (isApproaching) {
+                    walkTowards(mario.getX(), fromX);
+                } else if (graph.getSurfaceTop(to) < graph.getSurfaceTop(from)) {
+                    hasTakenOff = true;
+                    up = true;
+                    // Once above the top surface Mario steps off the ladder with the next walk
+                    isDone = marioBounds.bottom() <= graph.getSurfaceTop(to) + 0.5;
+                } else {
+                    hasTakenOff = true;
+                    down = true;
+                    isDone = surface == to;
+                }
+                break;
+            case JUMP:
+                if (isApproaching) {
+                    walkTowards(mario.getX(), fromX);
+                } else {
+                    jump = !hasTakenOff;
+                    hasTakenOff = true;
+                    walkTowards(mario.getX(), toX);
+                    isDone = surface == to && hasLeftSurface;
+                }
+                break;
+            case DROP:
+                if (isApproaching) {
+                    walkTowards(mario.getX(), fromX);
+                } else {
+                    hasTakenOff = true;
+                    if (!hasLeftSurface) {
+                        pressDirection(toX > fromX ? 1 : -1); // Keep walking off the end
+                    }
+                    isDone = surface == to && hasLeftSurface;
+                }
+                break;
+        }
+
+        edgeFrames++;
+        if (isDone) {
+            pathIndex++;
+            edgeFrames = 0;
+            hasTakenOff = false;
+            hasLeftSurface = false;
+        } else if (hasLeftSurface && surface == from) {
+            needsReplan = true; // Fell back where it started
+        } else if (edgeFrames > graph.getEdgeCost(edge) * STUCK_FACTOR + STUCK_GRACE_FRAMES) {
+            needsReplan = true;
+        }
+    }
+
+    /** On the goal surface: walk onto the target, or line up and shoot Donkey Kong. */
+    private void reachGoal(Mario mario, double goalX, Rectangle target) {
+        if (goal != Goal.SHOOT_DONKEY || Math.abs(mario.getX() - goalX) >= Mario.MOVE_SPEED) {
+            walkTowards(mario.getX(), goalX);
+            return;
+        }
+        int towardsDonkey = (target.left() + target.right()) / 2 > mario.getX() ? 1 : -1;
+        if (lastDirection != towardsDonkey) {
+            pressDirection(towardsDonkey); // Turn to face him
+        } else if (framesSinceShot >= SHOOT_INTERVAL) {
+            shoot = true;
+        }
+    }
+
+    /**
+     * Jumps over, or shoots, the nearest threat ahead on Mario's surface.
+     * The jump is timed so Mario's feet clear the threat's height just before he reaches it;
+     * if he is already too close for that, he backs away until he is not.
+     */
+    private void avoidThreats(Level level, Mario mario, Rectangle marioBounds, int surface) {
+        int direction = left ? -1 : right ? 1 : 0;
+        if (direction == 0) {
+            return;
+        }
+        Rectangle nearest = null;
+        double nearestGap = Double.POSITIVE_INFINITY;
+        for (Barrel barrel : level.getBarrels()) {
+            if (barrel != null && !barrel.isDestroyed()) {
+                Rectangle bounds = barrel.getBoundingBox();
+                double gap = gapAhead(marioBounds, bounds, direction);
+                if (gap < nearestGap && graph.findSurfaceBelow(bounds) == surface) {
+                    nearest = bounds;
+                    nearestGap = gap;
+                }
+            }
+        }
+        boolean isMonkeyNearest = false;
+        if (level instanceof Level2) {
+            for (Monkey monkey : ((Level2) level).getMonkeys()) {
+                if (monkey != null && !monkey.isDestroyed()) {
+                    Rectangle bounds = monkey.getBoundingBox();
+                    double gap = gapAhead(marioBounds, bounds, direction);
+                    if (gap < nearestGap && graph.findSurfaceBelow(bounds) == surface) {
+                        nearest = bounds;
+                        nearestGap = gap;
+                        isMonkeyNearest = true;
+                    }
+                }
+            }
+        }
+        if (nearest == null) {
+            return;
+        }
+
+        if (isMonkeyNearest && nearestGap < SHOOT_RANGE && mario.getTotalBullets() > 0) {
+            if (framesSinceShot >= SHOOT_INTERVAL) {
+                shoot = true;
+            }
+            return;
+        }
+        double riseTime = NavigationGraph.jumpRiseTime(nearest.bottom() - nearest.top() + 1);
+        if (Double.isNaN(riseTime)) {
+            return;
+        }
+        if (nearestGap < Mario.MOVE_SPEED * riseTime) {
+            pressDirection(-direction); // Too close to clear it: back off first
+        } else if (nearestGap <= (Mario.MOVE_SPEED + 1) * (riseTime + 2)) {
+            jump = true;
+        }
+    }
+
+    /** Horizontal gap between Mario and an object ahead of him, or infinity if it is behind him. */
+    private static double gapAhead(Rectangle marioBounds, Rectangle bounds, int direction) {
+        double gap = direction > 0 ? bounds.left() - marioBounds.right() : marioBounds.left() - bounds.right();
+        return gap >= 0 ? gap : Double.POSITIVE_INFINITY;
+    }
+
+    private void walkTowards(double x, double targetX) {
+        if (Math.abs(targetX - x) >= Mario.MOVE_SPEED) {
+            pressDirection(targetX > x ? 1 : -1);
+        }
+    }
+
+    private void pressDirection(int direction) {
+        left = direction < 0;
+        right = direction > 0;
+        lastDirection = direction;
+    }
+}
@@ -1,11 +1,17 @@
 import bagel.Image;
 import bagel.util.Rectangle;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Abstract class representing a Monkey in the game.
- * Handles common behavior like gravity, collision detection, and drawing.
+ * Handles common behavior like walking, collision detection, and drawing.
+ * Gravity and landing are applied by the level's {@link GravitySystem}.
  */
-public abstract class Monkey {
+public abstract class Monkey implements FallingBody {
     protected double x, y;
     protected double velocityY = 0;
     protected boolean isDestroyed = false;
@@ -21,6 +27,10 @@ public abstract class Monkey {
     protected double distanceWalked;
     protected boolean isMoving = true;
     protected boolean onPlatform=false;
+    protected Platform supportingPlatform; // The platform landed on this tick, or null while falling
+
+    /** Sprites shared by every monkey, loaded on first use so turning around never reloads a texture */
+    private static final ConcurrentHashMap<String, Image> IMAGES = new ConcurrentHashMap<>();
 
     /**
      * Constructs a Monkey at the specified position with the given image.
@@ -47,40 +57,25 @@ public abstract class Monkey {
 
 
     /**
-     * Updates the monkey's position based on gravity, movement, and collision.
+     * Walks the monkey along its route while it stands on a platform. Falling and landing are
+     * done beforehand by the level's {@link GravitySystem}.
      *
      * @param platforms Platforms the monkey can interact with.
      */
     public void update(Platform[] platforms) {
         if (!isDestroyed) {
-            // Reset platform status before checks
-            onPlatform = false;
-
-            // Check if standing on any platform
-            for (Platform platform : platforms) {
-                if (getBoundingBox().intersects(platform.getBoundingBox())) {
-                    y = platform.getY() - (platform.getHeight() / 2) - (monkeyImage.getHeight() / 2);
-                    velocityY = 0;
-                    onPlatform = true;
-                    isMoving = true;
-                    break;
-                }
+            if (onPlatform) {
+                isMoving = true;
             }
 
-            velocityY += gravity;
-                y += velocityY;
-                if (velocityY > terminalVelocity) {
-                    velocityY = terminalVelocity;
-                }
-
             // Only move horizontally if on a platform
             if (onPlatform && isMoving) {
-                moveHorizontally(platforms);
+                moveHorizontally();
             }
             
 
 
-            /** Apply gravity if not on platform*/
+            /** Turn around while falling */
             if (!onPlatform){
                 reverseDirection();
                 isMoving=false;
@@ -91,11 +86,9 @@ public abstract class Monkey {
     }
 
     /**
-     * Handles horizontal movement and edge detection logic.
-     *
-     * @param platforms Platforms to interact with while moving.
+     * Handles horizontal movement and edge detection logic on the platform the monkey stands on.
      */
-    protected void moveHorizontally(Platform[] platforms) {
+    protected void moveHorizontally() {
 
 
         double moveDistance = 0.5; // Movement speed
@@ -105,9 +98,9 @@ public abstract class Monkey {
 
         /** Determine new x based on current direction */
         if (direction.equals("left")) {
-            newX -= moveDistance;
+            newX = Physics.add(newX, -moveDistance);
         } else {
-            newX += moveDistance;
+            newX = Physics.add(newX, moveDistance);
         }
 
         /** Ensure monkey doesn't move outside the screen */
@@ -118,34 +111,26 @@ public abstract class Monkey {
 
 
 
-        /** Check if the monkey is still on a platform */
-        for (Platform platform : platforms) {
-            Rectangle platformBox = platform.getBoundingBox();
-
-            // Only check platforms we're currently on
-            if (getBoundingBox().intersects(platformBox)) {
-                /** Check for platform edge; reverse if falling off */
-                double platformLeft = platform.getX() - (platform.getWidth() / 2);
-                double platformRight = platform.getX() + (platform.getWidth() / 2);
-                double monkeyLeft = newX - halfWidth;
-                double monkeyRight = newX + halfWidth;
+        /** Check for the edge of the platform the monkey stands on; reverse if falling off */
+        if (supportingPlatform != null) {
+            double platformLeft = supportingPlatform.getX() - (supportingPlatform.getWidth() / 2);
+            double platformRight = supportingPlatform.getX() + (supportingPlatform.getWidth() / 2);
+            double monkeyLeft = newX - halfWidth;
+            double monkeyRight = newX + halfWidth;
 
-                if ((direction.equals("left") && monkeyLeft < platformLeft)) {
-                    reverseDirection();
-                    return;
-                } else if (direction.equals("right") && monkeyRight > platformRight) {
-                    reverseDirection();
-                    return;
-                }
-
-                break; // Only need to check one platform
+            if ((direction.equals("left") && monkeyLeft < platformLeft)) {
+                reverseDirection();
+                return;
+            } else if (direction.equals("right") && monkeyRight > platformRight) {
+                reverseDirection();
+                return;
             }
         }
 
 
         /** Update position and distance walked */
         x = newX;
-        distanceWalked += moveDistance;
+        distanceWalked = Physics.add(distanceWalked, moveDistance);
 
         /** Check if segment of route is completed, then reverse direction */
         if (distanceWalked >= route[currentRouteIndex]) {
@@ -160,8 +145,13 @@ public abstract class Monkey {
      */
     protected void reverseDirection() {
         direction = direction.equals("left") ? "right" : "left";
-        
-        // Update the sprite based on the new direction
+        updateImage();
+    }
+
+    /**
+     * Loads the sprite matching the monkey's current direction.
+     */
+    protected void updateImage() {
         String imagePath;
         if (this instanceof IntelligentMonkey) {
             imagePath = "res/intelli_monkey_" + direction + ".png";
@@ -169,7 +159,28 @@ public abstract class Monkey {
             imagePath = "res/normal_monkey_" + direction + ".png";
         }
         
-        monkeyImage = new Image(imagePath);
+        monkeyImage = getImage(imagePath);
+    }
+
+    /**
+     * Gets a monkey sprite, loading it the first time it is used.
+     *
+     * @param path Path of the image file.
+     * @return The shared image.
+     */
+    protected static Image getImage(String path) {
+        return IMAGES.computeIfAbsent(path, Image::new);
+    }
+
+    /**
+     * Loads every monkey sprite up front. Images can only be created on the thread that owns the
+     * graphics context, so this must run there before monkeys are updated on other threads.
+     */
+    public static void preloadImages() {
+        for (String direction : new String[] { "left", "right" }) {
+            getImage("res/normal_monkey_" + direction + ".png");
+            getImage("res/intelli_monkey_" + direction + ".png");
+        }
     }
 
 
@@ -177,15 +188,21 @@ public abstract class Monkey {
      * Draws the monkey on the screen.
      */
     public void draw() {
+        if (ShadowDonkeyKong.isHeadless()) return;
         monkeyImage.draw(x, y);
     }
 
     /**
      * Destroys the monkey so it no longer updates or renders.
+     *
+     * @param events The bus on which the destruction is published.
      */
-    public void destroy() {
+    public void destroy(GameEventBus events) {
         isDestroyed = true;
-        System.out.println(getClass().getSimpleName() + " destroyed!");
+        events.publish(GameEventType.MONKEY_DESTROYED);
+        GameLogger.log(this instanceof IntelligentMonkey
+                ? GameLogger.Event.INTELLIGENT_MONKEY_DESTROYED
+                : GameLogger.Event.NORMAL_MONKEY_DESTROYED);
     }
 
     /**
@@ -211,4 +228,66 @@ public abstract class Monkey {
         return isDestroyed;
     }
 
+    /** Getters */
+    public double getX() { return x; }
+    public double getY() { return y; }
+    public double getVelocityY() { return velocityY; }
+    public double getWidth() { return monkeyImage.getWidth(); }
+    public double getHeight() { return monkeyImage.getHeight(); }
+    public double getGravity() { return gravity; }
+    public double getTerminalVelocity() { return terminalVelocity; }
+
+    @Override
+    public boolean isFalling() {
+        return !isDestroyed;
+    }
+
+    @Override
+    public void applyFall(double y, double velocityY, Platform platform) {
+        this.y = y;
+        this.velocityY = velocityY;
+        this.onPlatform = platform != null;
+        this.supportingPlatform = platform;
+    }
+
+    /**
+     * Writes the monkey's dynamic state for a replay keyframe.
+     *
+     * @param out The stream to write to.
+     * @throws IOException If writing fails.
+     */
+    public void writeState(DataOutput out) throws IOException {
+        Physics.writeValue(out, x);
+        Physics.writeValue(out, y);
+        Physics.writeValue(out, velocityY);
+        out.writeBoolean(isDestroyed);
+        out.writeBoolean("right".equals(direction));
+        out.writeInt(currentRouteIndex);
+        Physics.writeValue(out, distanceWalked);
+        out.writeBoolean(isMoving);
+        out.writeBoolean(onPlatform);
+    }
+
+    /**
+     * Restores the state written by {@link #writeState(DataOutput)}.
+     *
+     * @param in The stream to read from.
+     * @throws IOException If reading fails.
+     */
+    public void readState(DataInput in) throws IOException {
+        x = Physics.readValue(in);
+        y = Physics.readValue(in);
+        velocityY = Physics.readValue(in);
+        isDestroyed = in.readBoolean();
+        String newDirection = in.readBoolean() ? "right" : "left";
+        currentRouteIndex = in.readInt();
+        distanceWalked = Physics.readValue(in);
+        isMoving = in.readBoolean();
+        onPlatform = in.readBoolean();
+        if (!newDirection.equals(direction)) {
+            direction = newDirection;
+            updateImage();
+        }
+    }
+
 }
@@ -0,0 +1,485 @@
+import bagel.util.Rectangle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * A navigation graph of the places Mario can stand, built once from a level's platforms and ladders.
+ *
+ * Adjacent platform tiles at the same height are merged into surfaces (plus the bottom of the screen,
+ * which Mario can also stand on). Nodes are points of interest on those surfaces: ladder feet and tops,
+ * jump take-off and landing points, and the points where Mario walks off an edge. Edges are:
+ * <ul>
+ *     <li>WALK - between neighbouring nodes on the same surface;</li>
+ *     <li>CLIMB - up or down a ladder;</li>
+ *     <li>JUMP - to another surface within reach of a jump;</li>
+ *     <li>DROP - walking off the end of a surface and falling onto the one below.</li>
+ * </ul>
+ * Edge costs are in frames, derived from {@link Physics#MARIO_GRAVITY} and Mario's movement constants.
+ *
+ * The graph only covers static geometry. Threats are passed to {@link #findPath} as a per-surface
+ * penalty, so the graph never needs rebuilding while a level is played.
+ */
+public class NavigationGraph {
+
+    /** Kinds of movement an edge represents */
+    public enum EdgeType { WALK, CLIMB, JUMP, DROP }
+
+    /** Two positions closer than this (in pixels) are treated as the same */
+    private static final double TOLERANCE = 1;
+
+    /** Safety margin kept below the maximum jump height and reach */
+    private static final double JUMP_MARGIN = 8;
+
+    /** Lowest surface a jump is planned onto, relative to the take-off surface */
+    private static final double MAX_JUMP_DROP = 300;
+
+    /** Peak height of a jump: v^2 / 2g */
+    static final double MAX_JUMP_HEIGHT =
+            Mario.JUMP_STRENGTH * Mario.JUMP_STRENGTH / (2 * Physics.MARIO_GRAVITY);
+
+    /** Surfaces */
+    private final double[] SURFACE_LEFT;
+    private final double[] SURFACE_RIGHT;
+    private final double[] SURFACE_TOP;
+
+    /** Half of Mario's width; Mario stays on a surface while his box overlaps it */
+    private final double MARIO_HALF_WIDTH;
+
+    /** Nodes */
+    private int nodeCount = 0;
+    private int[] nodeSurface = new int[64];
+    private double[] nodeX = new double[64];
+
+    /** Edges, grouped by source node once the graph is built */
+    private final ArrayList<double[]> pendingEdges = new ArrayList<>(); // {from, to, type, cost}
+    private int[] edgeStart;  // Index of each node's first edge; node n owns edges edgeStart[n]..edgeStart[n+1]-1
+    private int[] edgeFrom;
+    private int[] edgeTo;
+    private EdgeType[] edgeType;
+    private double[] edgeCost;
+
+    /**
+     * Builds the graph. Ladders must already have landed on their platforms.
+     *
+     * @param platforms   The level's platforms.
+     * @param ladders     The level's ladders, at their resting positions.
+     * @param marioBounds Mario's current bounding box, used for his size.
+     */
+    public NavigationGraph(Platform[] platforms, Ladder[] ladders, Rectangle marioBounds) {
+        MARIO_HALF_WIDTH = (marioBounds.right() - marioBounds.left()) / 2;
+
+        // 1) Merge platform tiles into surfaces
+        double[][] surfaces = mergeSurfaces(platforms);
+        SURFACE_LEFT = surfaces[0];
+        SURFACE_RIGHT = surfaces[1];
+        SURFACE_TOP = surfaces[2];
+
+        // 2) Ladders
+        for (Ladder ladder : ladders) {
+            addLadder(ladder.getBoundingBox(), ladder.getX());
+        }
+
+        // 3) Jumps and drops between surfaces
+        for (int from = 0; from < getSurfaceCount(); from++) {
+            addDrop(from, true);
+            addDrop(from, false);
+            for (int to = 0; to < getSurfaceCount(); to++) {
+                if (from != to) {
+                    addJump(from, to);
+                }
+            }
+        }
+
+        // 4) Walk edges between neighbouring nodes on each surface, then pack the adjacency lists
+        addWalks();
+        packEdges();
+    }
+
+    /**
+     * Finds the cheapest route from Mario's position to a goal position using A*.
+     * The heuristic is horizontal distance at walking speed, which never overestimates since
+     * no movement is faster horizontally.
+     *
+     * @param startSurface   The surface Mario is standing on.
+     * @param startX         Mario's x-coordinate.
+     * @param goalSurface    The surface to reach.
+     * @param goalX          The x-coordinate to reach on that surface.
+     * @param surfacePenalty Extra cost of walking on each surface as a fraction of the walking time
+     *                       (e.g. 2 makes walking there three times as expensive), or null for none.
+     * @return The edges of the route in order, after which Mario walks to {@code goalX};
+     *         an empty array if Mario is already on the goal surface, or null if the goal is unreachable.
+     */
+    public int[] findPath(int startSurface, double startX, int goalSurface, double goalX, double[] surfacePenalty) {
+        return findPath(startSurface, startX, goalSurface, goalX, surfacePenalty, true);
+    }
+
+    /**
+     * Finds the cheapest route between two positions, optionally without jumps, for walkers
+     * that can climb ladders and drop off edges but cannot jump.
+     *
+     * @param startSurface   The surface the walker is standing on.
+     * @param startX         The walker's x-coordinate.
+     * @param goalSurface    The surface to reach.
+     * @param goalX          The x-coordinate to reach on that surface.
+     * @param surfacePenalty Extra cost of walking on each surface, as for
+     *                       {@link #findPath(int, double, int, double, double[])}, or null for none.
+     * @param canJump        Whether the route may use jump edges.
+     * @return The edges of the route in order, an empty array if the walker is already on the goal
+     *         surface, or null if the goal is unreachable.
+     */
+    public int[] findPath(int startSurface, double startX, int goalSurface, double goalX,
+                          double[] surfacePenalty, boolean canJump) {
+        if (startSurface == goalSurface) {
+            return new int[0];
+        }
+        int goal = nodeCount; // Virtual node for the goal position
+        double[] cost = new double[nodeCount + 1];
+        int[] viaEdge = new int[nodeCount + 1];
+        Arrays.fill(cost, Double.POSITIVE_INFINITY);
+        Arrays.fill(viaEdge, -1);
+        PriorityQueue<double[]> open = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+
+        // Start from every node on Mario's surface, reached by walking
+        for (int n = 0; n < nodeCount; n++) {
+            if (nodeSurface[n] == startSurface) {
+                cost[n] = walkCost(startSurface, startX, nodeX[n], surfacePenalty);
+                open.add(new double[] { cost[n] + heuristic(n, goalX), n });
+            }
+        }
+
+        while (!open.isEmpty()) {
+            double[] entry = open.poll();
+            int node = (int) entry[1];
+            if (node == goal) {
+                break;
+            }
+            if (entry[0] > cost[node] + heuristic(node, goalX)) {
+                continue; // Stale entry
+            }
+            // Finish by walking to the goal position
+            if (nodeSurface[node] == goalSurface) {
+                double total = cost[node] + walkCost(goalSurface, nodeX[node], goalX, surfacePenalty);
+                if (total < cost[goal]) {
+                    cost[goal] = total;
+                    viaEdge[goal] = -2 - node; // Marks the final walk and remembers where it started
+                    open.add(new double[] { total, goal });
+                }
+            }
+            for (int e = edgeStart[node]; e < edgeStart[node + 1]; e++) {
+                if (!canJump && edgeType[e] == EdgeType.JUMP) {
+                    continue;
+                }
+                int next = edgeTo[e];
+                double step = edgeCost[e];
+                if (edgeType[e] == EdgeType.WALK && surfacePenalty != null) {
+                    step *= 1 + surfacePenalty[nodeSurface[node]];
+                }
+                if (cost[node] + step < cost[next]) {
+                    cost[next] = cost[node] + step;
+                    viaEdge[next] = e;
+                    open.add(new double[] { cost[next] + heuristic(next, goalX), next });
+                }
+            }
+        }
+
+        if (viaEdge[goal] == -1) {
+            return null;
+        }
+        // Walk back from the goal to the start surface
+        ArrayList<Integer> reversed = new ArrayList<>();
+        int node = -2 - viaEdge[goal];
+        while (viaEdge[node] >= 0) {
+            reversed.add(viaEdge[node]);
+            node = edgeFrom[viaEdge[node]];
+        }
+        int[] path = new int[reversed.size()];
+        for (int i = 0; i < path.length; i++) {
+            path[i] = reversed.get(path.length - 1 - i);
+        }
+        return path;
+    }
+
+    /**
+     * Finds the surface Mario is standing on.
+     *
+     * @param marioBounds Mario's bounding box.
+     * @return The surface index, or -1 if Mario is not standing on a surface.
+     */
+    public int findStandingSurface(Rectangle marioBounds) {
+        double centreX = (marioBounds.left() + marioBounds.right()) / 2;
+        for (int s = 0; s < getSurfaceCount(); s++) {
+            if (Math.abs(marioBounds.bottom() - SURFACE_TOP[s]) < TOLERANCE / 2
+                    && centreX > SURFACE_LEFT[s] - MARIO_HALF_WIDTH
+                    && centreX < SURFACE_RIGHT[s] + MARIO_HALF_WIDTH) {
+                return s;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the surface directly underneath an object, i.e. the one it rests or hovers on.
+     *
+     * @param bounds The object's bounding box.
+     * @return The surface index, or -1 if there is none.
+     */
+    public int findSurfaceBelow(Rectangle bounds) {
+        double centreX = (bounds.left() + bounds.right()) / 2;
+        int best = -1;
+        for (int s = 0; s < getSurfaceCount(); s++) {
+            if (SURFACE_TOP[s] >= bounds.bottom() - TOLERANCE
+                    && centreX >= SURFACE_LEFT[s] && centreX <= SURFACE_RIGHT[s]
+                    && (best == -1 || SURFACE_TOP[s] < SURFACE_TOP[best])) {
+                best = s;
+            }
+        }
+        return best;
+    }
+
+    /** Getters */
+    public int getSurfaceCount() { return SURFACE_TOP.length; }
+    public double getSurfaceTop(int surface) { return SURFACE_TOP[surface]; }
+    public double getSurfaceLeft(int surface) { return SURFACE_LEFT[surface]; }
+    public double getSurfaceRight(int surface) { return SURFACE_RIGHT[surface]; }
+    public int getNodeCount() { return nodeCount; }
+    public int getEdgeCount() { return edgeTo.length; }
+    public int getEdgeFromSurface(int edge) { return nodeSurface[edgeFrom[edge]]; }
+    public int getEdgeToSurface(int edge) { return nodeSurface[edgeTo[edge]]; }
+    public double getEdgeFromX(int edge) { return nodeX[edgeFrom[edge]]; }
+    public double getEdgeToX(int edge) { return nodeX[edgeTo[edge]]; }
+    public EdgeType getEdgeType(int edge) { return edgeType[edge]; }
+    public double getEdgeCost(int edge) { return edgeCost[edge]; }
+
+    /**
+     * Frames needed for a jump to come back down to a surface {@code rise} pixels above the take-off point
+     * (negative for a surface below). Solves {@code rise = v t - g t^2 / 2} for the descending root.
+     *
+     * @param rise Height of the landing surface above the take-off surface.
+     * @return The airtime in frames, or NaN if the surface is out of reach.
+     */
+    static double jumpAirtime(double rise) {
+        double v = -Mario.JUMP_STRENGTH;
+        double g = Physics.MARIO_GRAVITY;
+        double discriminant = v * v - 2 * g * rise;
+        return discriminant < 0 ? Double.NaN : (v + Math.sqrt(discriminant)) / g;
+    }
+
+    /**
+     * Frames needed for a jump to rise {@code height} pixels (the ascending root).
+     *
+     * @param height Height to clear.
+     * @return The frames until Mario's feet reach that height, or NaN if he never does.
+     */
+    static double jumpRiseTime(double height) {
+        double v = -Mario.JUMP_STRENGTH;
+        double g = Physics.MARIO_GRAVITY;
+        double discriminant = v * v - 2 * g * height;
+        return discriminant < 0 ? Double.NaN : (v - Math.sqrt(discriminant)) / g;
+    }
+
+    /** Frames needed to fall a distance from rest, taking terminal velocity into account. */
+    private static double fallTime(double distance) {
+        double g = Physics.MARIO_GRAVITY;
+        double terminalTime = Physics.MARIO_TERMINAL_VELOCITY / g;
+        double terminalDistance = g * terminalTime * terminalTime / 2;
+        if (distance <= terminalDistance) {
+            return Math.sqrt(2 * distance / g);
+        }
+        return terminalTime + (distance - terminalDistance) / Physics.MARIO_TERMINAL_VELOCITY;
+    }
+
+    /** Merges platform tiles that touch at the same height into surfaces, plus the screen bottom. */
+    private static double[][] mergeSurfaces(Platform[] platforms) {
+        Platform[] sorted = platforms.clone();
+        Arrays.sort(sorted, (a, b) -> a.getY() != b.getY()
+                ? Double.compare(a.getY(), b.getY())
+                : Double.compare(a.getX(), b.getX()));
+
+        ArrayList<double[]> surfaces = new ArrayList<>(); // {left, right, top}
+        double[] current = null;
+        for (Platform platform : sorted) {
+            double left = platform.getX() - platform.getWidth() / 2;
+            double right = platform.getX() + platform.getWidth() / 2;
+            double top = platform.getY() - platform.getHeight() / 2;
+            if (current != null && Math.abs(current[2] - top) < TOLERANCE && left <= current[1] + TOLERANCE) {
+                current[1] = Math.max(current[1], right);
+            } else {
+                current = new double[] { left, right, top };
+                surfaces.add(current);
+            }
+        }
+        // The bottom of the screen is always the last surface
+        surfaces.add(new double[] { 0, ShadowDonkeyKong.getScreenWidth(), ShadowDonkeyKong.getScreenHeight() });
+
+        double[][] result = new double[3][surfaces.size()];
+        for (int i = 0; i < surfaces.size(); i++) {
+            result[0][i] = surfaces.get(i)[0];
+            result[1][i] = surfaces.get(i)[1];
+            result[2][i] = surfaces.get(i)[2];
+        }
+        return result;
+    }
+
+    /**
+     * Connects the surface a ladder stands on to the surface Mario lands on after climbing off its top.
+     * That is the highest surface the ladder reaches, since Mario passes up through platforms while climbing.
+     */
+    private void addLadder(Rectangle bounds, double ladderX) {
+        int bottom = -1;
+        int top = -1;
+        for (int s = 0; s < getSurfaceCount(); s++) {
+            if (ladderX < SURFACE_LEFT[s] || ladderX > SURFACE_RIGHT[s]) {
+                continue;
+            }
+            if (Math.abs(SURFACE_TOP[s] - bounds.bottom()) < TOLERANCE) {
+                bottom = s;
+            } else if (SURFACE_TOP[s] >= bounds.top() && SURFACE_TOP[s] < bounds.bottom()
+                    && (top == -1 || SURFACE_TOP[s] < SURFACE_TOP[top])) {
+                top = s;
+            }
+        }
+        if (bottom == -1 || top == -1) {
+            return;
+        }
+        double climbCost = (bounds.bottom() - bounds.top()) / Mario.CLIMB_SPEED;
+        int foot = addNode(bottom, ladderX);
+        int head = addNode(top, ladderX);
+        addEdge(foot, head, EdgeType.CLIMB, climbCost);
+        addEdge(head, foot, EdgeType.CLIMB, climbCost);
+    }
+
+    /** Adds a jump between two surfaces if the far one is within reach. */
+    private void addJump(int from, int to) {
+        if (from == getSurfaceCount() - 1) {
+            return; // Mario can only jump off platforms, not off the bottom of the screen
+        }
+        double rise = SURFACE_TOP[from] - SURFACE_TOP[to];
+        if (rise > MAX_JUMP_HEIGHT - JUMP_MARGIN || rise < -MAX_JUMP_DROP) {
+            return;
+        }
+        double airtime = jumpAirtime(rise);
+        double reach = Mario.MOVE_SPEED * airtime - JUMP_MARGIN;
+
+        double takeOffX;
+        double landingX;
+        if (SURFACE_LEFT[to] >= SURFACE_RIGHT[from]) {
+            // Gap to the right: leave from the right end, land just inside the left end
+            takeOffX = SURFACE_RIGHT[from];
+            landingX = SURFACE_LEFT[to] + MARIO_HALF_WIDTH;
+        } else if (SURFACE_RIGHT[to] <= SURFACE_LEFT[from]) {
+            takeOffX = SURFACE_LEFT[from];
+            landingX = SURFACE_RIGHT[to] - MARIO_HALF_WIDTH;
+        } else if (rise > 0) {
+            // Overlapping surface above: jump straight up through it
+            takeOffX = (Math.max(SURFACE_LEFT[from], SURFACE_LEFT[to]) + Math.min(SURFACE_RIGHT[from], SURFACE_RIGHT[to])) / 2;
+            landingX = takeOffX;
+        } else {
+            return; // Overlapping surface below is reached by a drop
+        }
+        if (Math.abs(landingX - takeOffX) > reach) {
+            return;
+        }
+        addEdge(addNode(from, takeOffX), addNode(to, landingX), EdgeType.JUMP, airtime);
+    }
+
+    /** Adds a drop off one end of a surface onto whatever surface is below that point. */
+    private void addDrop(int from, boolean offRightEnd) {
+        double edgeX = offRightEnd ? SURFACE_RIGHT[from] : SURFACE_LEFT[from];
+        // Mario starts falling once his box no longer overlaps the surface, one step later
+        double fallX = offRightEnd
+                ? edgeX + MARIO_HALF_WIDTH + Mario.MOVE_SPEED
+                : edgeX - MARIO_HALF_WIDTH - Mario.MOVE_SPEED;
+        if (fallX < 0 || fallX > ShadowDonkeyKong.getScreenWidth()) {
+            return;
+        }
+        int below = -1;
+        for (int s = 0; s < getSurfaceCount(); s++) {
+            if (SURFACE_TOP[s] > SURFACE_TOP[from]
+                    && fallX > SURFACE_LEFT[s] - MARIO_HALF_WIDTH && fallX < SURFACE_RIGHT[s] + MARIO_HALF_WIDTH
+                    && (below == -1 || SURFACE_TOP[s] < SURFACE_TOP[below])) {
+                below = s;
+            }
+        }
+        if (below == -1) {
+            return;
+        }
+        double landingX = Math.max(SURFACE_LEFT[below], Math.min(SURFACE_RIGHT[below], fallX));
+        addEdge(addNode(from, edgeX), addNode(below, landingX), EdgeType.DROP,
+                fallTime(SURFACE_TOP[below] - SURFACE_TOP[from]));
+    }
+
+    /** Connects each node to its neighbours on the same surface. */
+    private void addWalks() {
+        Integer[] order = new Integer[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> nodeSurface[a] != nodeSurface[b]
+                ? Integer.compare(nodeSurface[a], nodeSurface[b])
+                : Double.compare(nodeX[a], nodeX[b]));
+        for (int i = 1; i < nodeCount; i++) {
+            int a = order[i - 1];
+            int b = order[i];
+            if (nodeSurface[a] == nodeSurface[b]) {
+                double cost = Math.abs(nodeX[b] - nodeX[a]) / Mario.MOVE_SPEED;
+                addEdge(a, b, EdgeType.WALK, cost);
+                addEdge(b, a, EdgeType.WALK, cost);
+            }
+        }
+    }
+
+    /** Returns the node at a point, creating it if needed. */
+    private int addNode(int surface, double x) {
+        for (int n = 0; n < nodeCount; n++) {
+            if (nodeSurface[n] == surface && Math.abs(nodeX[n] - x) < TOLERANCE) {
+                return n;
+            }
+        }
+        if (nodeCount == nodeSurface.length) {
+            nodeSurface = Arrays.copyOf(nodeSurface, nodeCount * 2);
+            nodeX = Arrays.copyOf(nodeX, nodeCount * 2);
+        }
+        nodeSurface[nodeCount] = surface;
+        nodeX[nodeCount] = x;
+        return nodeCount++;
+    }
+
+    private void addEdge(int from, int to, EdgeType type, double cost) {
+        pendingEdges.add(new double[] { from, to, type.ordinal(), cost });
+    }
+
+    /** Sorts the edges by source node so each node's edges are contiguous. */
+    private void packEdges() {
+        pendingEdges.sort((a, b) -> Double.compare(a[0], b[0]));
+        int count = pendingEdges.size();
+        edgeStart = new int[nodeCount + 1];
+        edgeFrom = new int[count];
+        edgeTo = new int[count];
+        edgeType = new EdgeType[count];
+        edgeCost = new double[count];
+        EdgeType[] types = EdgeType.values();
+        for (int e = 0; e < count; e++) {
+            double[] edge = pendingEdges.get(e);
+            edgeFrom[e] = (int) edge[0];
+            edgeTo[e] = (int) edge[1];
+            edgeType[e] = types[(int) edge[2]];
+            edgeCost[e] = edge[3];
+            edgeStart[edgeFrom[e] + 1]++;
+        }
+        for (int n = 0; n < nodeCount; n++) {
+            edgeStart[n + 1] += edgeStart[n];
+        }
+        pendingEdges.clear();
+    }
+
+    private double walkCost(int surface, double fromX, double toX, double[] surfacePenalty) {
+        double cost = Math.abs(toX - fromX) / Mario.MOVE_SPEED;
+        return surfacePenalty == null ? cost : cost * (1 + surfacePenalty[surface]);
+    }
+
+    private double heuristic(int node, double goalX) {
+        return node == nodeCount ? 0 : Math.abs(goalX - nodeX[node]) / Mario.MOVE_SPEED;
+    }
+}
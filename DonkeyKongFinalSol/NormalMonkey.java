@@ -16,7 +16,7 @@ public class NormalMonkey extends Monkey{
      */
     public NormalMonkey(double x, double y, String direction, int[] route) {
         super(x, y, Physics.NORMAL_MONKEY_GRAVITY, Physics.NORMAL_MONKEY_TERMINAL_VELOCITY,
-                new Image("res/normal_monkey_" + direction + ".png"), direction, route);
+                getImage("res/normal_monkey_" + direction + ".png"), direction, route);
     }
 
 
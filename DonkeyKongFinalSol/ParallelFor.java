@@ -0,0 +1,79 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs a loop over entity indices, split into fork/join subtasks once it is long enough to be worth it.
+ *
+ * The loop body must only write state belonging to the indices it is given, and publish anything
+ * shared (events, spawns, lost lives) through per-index result slots that the caller applies in
+ * index order afterwards. Results then match the sequential path exactly, whatever the split.
+ *
+ * Loops only split when the game runs headless, since drawing must stay on the window's thread.
+ */
+public final class ParallelFor {
+
+    /** Subtasks per pool thread, so uneven slices still keep every thread busy */
+    private static final int TASKS_PER_THREAD = 4;
+
+    /** Fewest indices a subtask is given */
+    private static final int MIN_GRAIN = 64;
+
+    /**
+     * A loop body run over a slice of indices.
+     */
+    public interface Body {
+        /**
+         * Runs the loop body for every index in a slice.
+         *
+         * @param from The first index of the slice.
+         * @param to   One past the last index of the slice.
+         */
+        void run(int from, int to);
+    }
+
+    private ParallelFor() {
+    }
+
+    /**
+     * Runs a loop over {@code [0, count)}, in parallel on the common pool if {@code count} reaches the threshold.
+     *
+     * @param count     The number of indices.
+     * @param threshold The fewest indices worth splitting; zero or less never splits.
+     * @param body      The loop body.
+     */
+    public static void run(int count, int threshold, Body body) {
+        if (threshold <= 0 || count < threshold || !ShadowDonkeyKong.isHeadless()) {
+            body.run(0, count);
+            return;
+        }
+        int grain = Math.max(MIN_GRAIN, count / (ForkJoinPool.getCommonPoolParallelism() * TASKS_PER_THREAD));
+        ForkJoinPool.commonPool().invoke(new Slice(body, 0, count, grain));
+    }
+
+    /** Splits its slice in half until it is no longer than the grain, then runs it. */
+    private static final class Slice extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Body BODY;
+        private final int FROM;
+        private final int TO;
+        private final int GRAIN;
+
+        private Slice(Body body, int from, int to, int grain) {
+            this.BODY = body;
+            this.FROM = from;
+            this.TO = to;
+            this.GRAIN = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (TO - FROM <= GRAIN) {
+                BODY.run(FROM, TO);
+                return;
+            }
+            int middle = (FROM + TO) >>> 1;
+            invokeAll(new Slice(BODY, FROM, middle, GRAIN), new Slice(BODY, middle, TO, GRAIN));
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * Memoises routes between surfaces of a {@link NavigationGraph} for walkers that cannot jump.
+ *
+ * Routes are keyed by (source surface, target surface) only, so every monkey standing on the same
+ * surface and chasing Mario on the same surface shares one search. To make that possible each
+ * search starts and ends at the middle of its surfaces; the walker covers the remaining distance
+ * along its own surface. The graph only describes static geometry, so cached routes never go stale.
+ */
+public class PathCache {
+
+    /** Stored for pairs that have been searched and have no route */
+    private static final int[] UNREACHABLE = new int[0];
+
+    private final NavigationGraph GRAPH;
+    private final int SURFACE_COUNT;
+    private final int[][] PATHS; // Indexed by source * SURFACE_COUNT + target; null until searched
+
+    private int searches = 0;
+    private int hits = 0;
+
+    /**
+     * Creates an empty cache for a graph.
+     *
+     * @param graph The graph routes are searched in.
+     */
+    public PathCache(NavigationGraph graph) {
+        this.GRAPH = graph;
+        this.SURFACE_COUNT = graph.getSurfaceCount();
+        this.PATHS = new int[SURFACE_COUNT * SURFACE_COUNT][];
+    }
+
+    /**
+     * Gets the route between two surfaces, searching for it on the first request.
+     * Synchronized so monkeys walking in parallel can share the cache.
+     *
+     * @param source The surface the walker is on.
+     * @param target The surface to reach.
+     * @return The route's edges, an empty array if {@code source == target}, or null if there is no route.
+     */
+    public synchronized int[] get(int source, int target) {
+        int key = source * SURFACE_COUNT + target;
+        int[] path = PATHS[key];
+        if (path == null) {
+            path = GRAPH.findPath(source, centreOf(source), target, centreOf(target), null, false);
+            PATHS[key] = path == null ? UNREACHABLE : path;
+            searches++;
+        } else {
+            hits++;
+        }
+        return path == UNREACHABLE ? null : path;
+    }
+
+    /** Getters */
+    public int getSearchCount() { return searches; }
+    public int getHitCount() { return hits; }
+
+    private double centreOf(int surface) {
+        return (GRAPH.getSurfaceLeft(surface) + GRAPH.getSurfaceRight(surface)) / 2;
+    }
+}
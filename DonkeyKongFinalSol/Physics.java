@@ -1,10 +1,23 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Properties;
+
 /**
  * The Physics class contains constants and methods related to the physics mechanics of the game.
  * It defines values for gravity, terminal velocity, and other movement constraints
  * to ensure realistic and smooth character motion.
+ *
+ * Motion is integrated with {@link #add(double, double)}. In the opt-in fixed-point mode every sum is
+ * computed on 16.16 {@link FixedPoint} integers, so positions and velocities only ever take values
+ * on a 1/65536 pixel grid, every tick is reproducible bit for bit by any integer implementation,
+ * and snapshots store each value as an {@code int}.
  */
 public class Physics {
 
+    /** Whether motion is integrated in 16.16 fixed point */
+    private static boolean isFixedPoint = false;
+
     /**
      * The gravitational acceleration applied to Mario.
      */
@@ -64,4 +77,74 @@ public class Physics {
      * The maximum falling speed (terminal velocity) for Intelligent Monkey.
      */
     public static final double INTELLIGENT_MONKEY_TERMINAL_VELOCITY = 5.0;
-}
\ No newline at end of file
+
+    /**
+     * Configures the physics mode from game properties. {@code physics.fixedPoint=true} enables the
+     * fixed-point mode; it is off by default. Replays must be played back in the mode they were recorded in.
+     *
+     * @param gameProps Game configuration properties.
+     */
+    public static void configure(Properties gameProps) {
+        setFixedPoint(Boolean.parseBoolean(gameProps.getProperty("physics.fixedPoint", "false").trim()));
+    }
+
+    /**
+     * Enables or disables the fixed-point mode. Change it only between levels, never while one is played.
+     *
+     * @param status {@code true} to integrate in fixed point.
+     */
+    public static void setFixedPoint(boolean status) {
+        isFixedPoint = status;
+    }
+
+    /**
+     * Checks whether motion is integrated in fixed point.
+     *
+     * @return {@code true} in the fixed-point mode.
+     */
+    public static boolean isFixedPoint() {
+        return isFixedPoint;
+    }
+
+    /**
+     * Advances a position or velocity by a step. In the fixed-point mode both are rounded to
+     * 16.16 and added as integers; otherwise this is a plain double addition.
+     *
+     * @param value The current position or velocity.
+     * @param delta The change to apply, e.g. a velocity or an acceleration.
+     * @return The new value.
+     */
+    public static double add(double value, double delta) {
+        if (isFixedPoint) {
+            return FixedPoint.toDouble(FixedPoint.toFixed(value) + FixedPoint.toFixed(delta));
+        }
+        return value + delta;
+    }
+
+    /**
+     * Writes a position or velocity for a replay keyframe: a 16.16 {@code int} in the fixed-point mode,
+     * otherwise a {@code double}.
+     *
+     * @param out   The stream to write to.
+     * @param value The value to write.
+     * @throws IOException If writing fails.
+     */
+    public static void writeValue(DataOutput out, double value) throws IOException {
+        if (isFixedPoint) {
+            out.writeInt(FixedPoint.toFixed(value));
+        } else {
+            out.writeDouble(value);
+        }
+    }
+
+    /**
+     * Reads a value written by {@link #writeValue(DataOutput, double)} in the same mode.
+     *
+     * @param in The stream to read from.
+     * @return The value read.
+     * @throws IOException If reading fails.
+     */
+    public static double readValue(DataInput in) throws IOException {
+        return isFixedPoint ? FixedPoint.toDouble(in.readInt()) : in.readDouble();
+    }
+}
@@ -7,6 +7,8 @@ import bagel.util.Colour;
  * Platforms provide surfaces for Mario to walk on and interact with.
  */
 public class Platform {
+    public static final String IMAGE_FILE = "res/platform.png";
+
     private final Image PLATFORM_IMAGE; // Image representing the platform
     private final double X, Y;               // Position of the platform
     private final double WIDTH, HEIGHT; // Dimensions of the platform
@@ -19,7 +21,7 @@ public class Platform {
      */
     public Platform(double startX, double startY) {
         // Load platform sprite
-        this.PLATFORM_IMAGE = new Image("res/platform.png");
+        this.PLATFORM_IMAGE = new Image(IMAGE_FILE);
         this.X = startX;
         this.Y = startY;
 
@@ -32,6 +34,7 @@ public class Platform {
      * Draws the platform on the screen.
      */
     public void draw() {
+        if (ShadowDonkeyKong.isHeadless()) return;
         PLATFORM_IMAGE.draw(X, Y);
 //        drawBoundingBox(); // Uncomment for debugging
     }
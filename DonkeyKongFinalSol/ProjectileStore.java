@@ -0,0 +1,104 @@
+import java.util.Arrays;
+
+/**
+ * Holds one owner's live projectiles, e.g. Mario's bullets or the monkeys' bananas, in a dense array.
+ *
+ * Projectiles are removed in two steps: during a tick they are only marked, so indices stay
+ * stable while the level iterates and marking the same projectile twice is harmless. At the end
+ * of the tick {@link #compact()} fills each gap with the last projectile, which keeps removal O(1)
+ * but does not keep the projectiles in the order they were added.
+ *
+ * @param <T> The kind of projectile stored.
+ */
+public class ProjectileStore<T extends Shootable> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private Shootable[] projectiles = new Shootable[INITIAL_CAPACITY];
+    private boolean[] isRemoved = new boolean[INITIAL_CAPACITY];
+    private int size = 0;
+    private int removedCount = 0;
+
+    /**
+     * Adds a projectile after the existing ones.
+     *
+     * @param projectile The projectile to add.
+     */
+    public void add(T projectile) {
+        if (size == projectiles.length) {
+            projectiles = Arrays.copyOf(projectiles, size * 2);
+            isRemoved = Arrays.copyOf(isRemoved, size * 2);
+        }
+        projectiles[size] = projectile;
+        isRemoved[size] = false;
+        size++;
+    }
+
+    /**
+     * Gets a projectile, including one marked for removal this tick.
+     *
+     * @param index The projectile's index, below {@link #size()}.
+     * @return The projectile.
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        return (T) projectiles[index];
+    }
+
+    /**
+     * Marks a projectile for removal at the end of the tick. Marking it again does nothing.
+     *
+     * @param index The projectile's index.
+     */
+    public void remove(int index) {
+        if (!isRemoved[index]) {
+            isRemoved[index] = true;
+            removedCount++;
+        }
+    }
+
+    /**
+     * Checks whether a projectile has been marked for removal.
+     *
+     * @param index The projectile's index.
+     * @return {@code true} if it will be removed at the end of the tick.
+     */
+    public boolean isRemoved(int index) {
+        return isRemoved[index];
+    }
+
+    /**
+     * Drops every marked projectile, moving the last projectile into each gap.
+     */
+    public void compact() {
+        for (int i = 0; i < size && removedCount > 0; ) {
+            if (isRemoved[i]) {
+                size--;
+                projectiles[i] = projectiles[size];
+                isRemoved[i] = isRemoved[size];
+                projectiles[size] = null; // Let the removed projectile be collected
+                removedCount--;
+            } else {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Removes every projectile at once.
+     */
+    public void clear() {
+        Arrays.fill(projectiles, 0, size, null);
+        size = 0;
+        removedCount = 0;
+    }
+
+    /**
+     * Gets the number of projectiles, including any marked for removal this tick.
+     *
+     * @return The number of projectiles.
+     */
+    public int size() {
+        return size;
+    }
+}
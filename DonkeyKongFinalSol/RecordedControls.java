@@ -0,0 +1,92 @@
+import bagel.Keys;
+
+/**
+ * {@link Controls} backed by a compact bitmask, used to record and replay input.
+ * Only the keys the levels read are encoded: the low byte holds which keys are down
+ * and the next byte holds which keys were pressed this frame.
+ */
+public class RecordedControls implements Controls {
+
+    /** The keys a level reads, in bit order */
+    private static final Keys[] KEYS = { Keys.LEFT, Keys.RIGHT, Keys.UP, Keys.DOWN, Keys.SPACE, Keys.S };
+
+    /** Offset of the "pressed this frame" bits */
+    private static final int PRESSED_SHIFT = 8;
+
+    private int mask = 0;
+
+    /**
+     * Encodes the keys a level reads from any controls into a bitmask.
+     *
+     * @param controls The controls to sample.
+     * @return The encoded bitmask.
+     */
+    public static int encode(Controls controls) {
+        int mask = 0;
+        for (int i = 0; i < KEYS.length; i++) {
+            if (controls.isDown(KEYS[i])) {
+                mask |= 1 << i;
+            }
+            if (controls.wasPressed(KEYS[i])) {
+                mask |= 1 << (i + PRESSED_SHIFT);
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Gets the bits for one key, so masks can be built without sampling other controls.
+     * Combine the results with {@code |} to hold several keys at once.
+     *
+     * @param key       The key to encode.
+     * @param isPressed Whether the key was also pressed this frame, not just held down.
+     * @return The key's bits, or 0 if the key is not recorded.
+     */
+    public static int maskOf(Keys key, boolean isPressed) {
+        int bit = bitOf(key);
+        if (bit < 0) {
+            return 0;
+        }
+        return isPressed ? (1 << bit) | (1 << (bit + PRESSED_SHIFT)) : 1 << bit;
+    }
+
+    /**
+     * Sets the bitmask to replay for the next frame.
+     *
+     * @param mask A bitmask produced by {@link #encode(Controls)}.
+     */
+    public void setMask(int mask) {
+        this.mask = mask;
+    }
+
+    /**
+     * Gets the bitmask currently being replayed.
+     *
+     * @return The current bitmask.
+     */
+    public int getMask() {
+        return mask;
+    }
+
+    @Override
+    public boolean isDown(Keys key) {
+        int bit = bitOf(key);
+        return bit >= 0 && (mask & (1 << bit)) != 0;
+    }
+
+    @Override
+    public boolean wasPressed(Keys key) {
+        int bit = bitOf(key);
+        return bit >= 0 && (mask & (1 << (bit + PRESSED_SHIFT))) != 0;
+    }
+
+    /** Finds the bit used for a key, or -1 if the key is not recorded. */
+    private static int bitOf(Keys key) {
+        for (int i = 0; i < KEYS.length; i++) {
+            if (KEYS[i] == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
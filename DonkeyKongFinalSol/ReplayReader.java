@@ -0,0 +1,171 @@
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Properties;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads a replay file written by {@link ReplayWriter} and seeks within it.
+ * Seeking restores the nearest keyframe at or before the target frame and then simulates
+ * the recorded input up to the target, so it never replays more than one block of frames.
+ */
+public class ReplayReader implements AutoCloseable {
+
+    private final RandomAccessFile FILE;
+    private final int LEVEL_NUMBER;
+    private final int KEYFRAME_INTERVAL;
+    private final boolean IS_FIXED_POINT; // The physics mode the replay was recorded in
+    private final int FRAME_COUNT;
+    private final int[] BLOCK_FRAMES;
+    private final long[] BLOCK_OFFSETS;
+
+    /** The most recently decoded block, cached because playback reads it frame by frame */
+    private int loadedBlock = -1;
+    private byte[] loadedKeyframe;
+    private short[] loadedInputs;
+
+    /**
+     * Opens a replay file and reads its index.
+     *
+     * @param fileName Path of the replay file.
+     * @throws IOException If the file cannot be read or is not a complete replay.
+     */
+    public ReplayReader(String fileName) throws IOException {
+        FILE = new RandomAccessFile(fileName, "r");
+        if (FILE.readInt() != ReplayWriter.MAGIC || FILE.readInt() != ReplayWriter.VERSION) {
+            FILE.close();
+            throw new IOException("Not a replay file: " + fileName);
+        }
+        LEVEL_NUMBER = FILE.readInt();
+        KEYFRAME_INTERVAL = FILE.readInt();
+        IS_FIXED_POINT = FILE.readBoolean();
+
+        // Footer: index offset, frame count, magic
+        FILE.seek(FILE.length() - 16);
+        long indexOffset = FILE.readLong();
+        FRAME_COUNT = FILE.readInt();
+        if (FILE.readInt() != ReplayWriter.MAGIC) {
+            FILE.close();
+            throw new IOException("Replay was not closed properly: " + fileName);
+        }
+
+        FILE.seek(indexOffset);
+        int blockCount = FILE.readInt();
+        BLOCK_FRAMES = new int[blockCount];
+        BLOCK_OFFSETS = new long[blockCount];
+        for (int i = 0; i < blockCount; i++) {
+            BLOCK_FRAMES[i] = FILE.readInt();
+            BLOCK_OFFSETS[i] = FILE.readLong();
+        }
+    }
+
+    /**
+     * Creates a fresh level of the kind that was recorded.
+     *
+     * @param gameProps The properties the replay was recorded with.
+     * @return A new level ready for {@link #seek}.
+     */
+    public Level createLevel(Properties gameProps) {
+        return LEVEL_NUMBER == 1 ? new Level1(gameProps) : new Level2(gameProps);
+    }
+
+    /**
+     * Brings a level to the state it had just before the given frame was played.
+     * Drawing is switched off while the frames between the keyframe and the target are simulated.
+     *
+     * @param level    A level created by {@link #createLevel(Properties)}.
+     * @param frame    The target frame, between 0 and {@link #getFrameCount()}.
+     * @param controls Controls used to feed the recorded input to the level.
+     * @throws IOException If the replay cannot be read.
+     */
+    public void seek(Level level, int frame, RecordedControls controls) throws IOException {
+        int target = Math.max(0, Math.min(frame, FRAME_COUNT));
+        int block = findBlock(target);
+        loadBlock(block);
+        level.readState(new DataInputStream(new ByteArrayInputStream(loadedKeyframe)));
+
+        boolean wasHeadless = ShadowDonkeyKong.isHeadless();
+        ShadowDonkeyKong.setHeadless(true);
+        for (int f = BLOCK_FRAMES[block]; f < target; f++) {
+            controls.setMask(loadedInputs[f - BLOCK_FRAMES[block]]);
+            level.update(controls);
+        }
+        ShadowDonkeyKong.setHeadless(wasHeadless);
+    }
+
+    /**
+     * Gets the recorded input for a frame.
+     *
+     * @param frame A frame between 0 and {@link #getFrameCount()} - 1.
+     * @return The input bitmask, for {@link RecordedControls#setMask(int)}.
+     * @throws IOException If the replay cannot be read.
+     */
+    public int getInputMask(int frame) throws IOException {
+        int block = findBlock(frame);
+        loadBlock(block);
+        return loadedInputs[frame - BLOCK_FRAMES[block]] & 0xFFFF;
+    }
+
+    /** Getters */
+    public int getLevelNumber() { return LEVEL_NUMBER; }
+    public int getFrameCount() { return FRAME_COUNT; }
+    public int getKeyframeInterval() { return KEYFRAME_INTERVAL; }
+    public boolean isFixedPoint() { return IS_FIXED_POINT; }
+
+    /**
+     * Closes the replay file.
+     *
+     * @throws IOException If closing fails.
+     */
+    @Override
+    public void close() throws IOException {
+        FILE.close();
+    }
+
+    /** Binary search for the last block starting at or before the frame. */
+    private int findBlock(int frame) {
+        int low = 0;
+        int high = BLOCK_FRAMES.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (BLOCK_FRAMES[mid] <= frame) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /** Reads and decompresses a block unless it is already loaded. */
+    private void loadBlock(int block) throws IOException {
+        if (block == loadedBlock) {
+            return;
+        }
+        FILE.seek(BLOCK_OFFSETS[block]);
+        byte[] compressed = new byte[FILE.readInt()];
+        byte[] raw = new byte[FILE.readInt()];
+        FILE.readFully(compressed);
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            inflater.inflate(raw);
+        } catch (DataFormatException ex) {
+            throw new IOException("Corrupt replay block " + block, ex);
+        } finally {
+            inflater.end();
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw));
+        loadedKeyframe = new byte[in.readInt()];
+        in.readFully(loadedKeyframe);
+        loadedInputs = new short[in.readInt()];
+        for (int i = 0; i < loadedInputs.length; i++) {
+            loadedInputs[i] = in.readShort();
+        }
+        loadedBlock = block;
+    }
+}
@@ -0,0 +1,147 @@
+import bagel.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * Checks that seeking a replay, backwards as well as forwards, restores exactly the state the level
+ * had when it was played, with intelligent monkeys chasing Mario.
+ *
+ * Each level is played by a {@link MarioBot} and recorded, keeping the level's state at every
+ * frame. The replay is then sought to its end, and from there backwards to every frame in turn;
+ * a seek backwards restores keyframes from before state built during play, such as the navigation
+ * graph, existed. A level fails if any sought state differs from the one played.
+ *
+ * Like {@link BotSmokeRunner}, all runs happen inside the first frame of a bagel window.
+ *
+ * Usage: {@code java ReplaySeekCheck [propertiesFile]}
+ */
+public class ReplaySeekCheck extends AbstractGame {
+
+    private static final int LEVEL_COUNT = 2;
+
+    /** Frames between keyframes, short so the seeks restore many different keyframes */
+    private static final int KEYFRAME_INTERVAL = 60;
+
+    private final Properties GAME_PROPS;
+    private boolean hasRun = false;
+    private int failures = 0;
+
+    /**
+     * Constructs the checker window using the window size from the game properties.
+     *
+     * @param gameProps Game configuration properties; chasing is switched on regardless.
+     */
+    public ReplaySeekCheck(Properties gameProps) {
+        super(Integer.parseInt(gameProps.getProperty("window.width")),
+                Integer.parseInt(gameProps.getProperty("window.height")),
+                "Replay seek check");
+        this.GAME_PROPS = new Properties();
+        GAME_PROPS.putAll(gameProps);
+        GAME_PROPS.setProperty("intelligentMonkey.chase", "true");
+        ShadowDonkeyKong.screenWidth = Integer.parseInt(gameProps.getProperty("window.width"));
+        ShadowDonkeyKong.screenHeight = Integer.parseInt(gameProps.getProperty("window.height"));
+        ShadowDonkeyKong.setHeadless(true);
+        GameLogger.setLevel(GameLogger.LogLevel.OFF);
+    }
+
+    /**
+     * Checks every level on the first frame, then closes the window.
+     *
+     * @param input The current mouse/keyboard input (unused).
+     */
+    @Override
+    protected void update(Input input) {
+        if (hasRun) {
+            return;
+        }
+        hasRun = true;
+
+        for (int levelNumber = 1; levelNumber <= LEVEL_COUNT; levelNumber++) {
+            try {
+                checkLevel(levelNumber);
+            } catch (IOException | RuntimeException ex) {
+                System.out.printf("level %d: ERROR%n", levelNumber);
+                ex.printStackTrace();
+                failures++;
+            }
+        }
+
+        Window.close();
+    }
+
+    /** Records a bot session on one level, then seeks its replay forwards and backwards. */
+    private void checkLevel(int levelNumber) throws IOException {
+        File file = File.createTempFile("seek-check", ".dkr");
+        file.deleteOnExit();
+
+        // 1) Play and record, keeping the state before every frame
+        Level level = levelNumber == 1 ? new Level1(GAME_PROPS) : new Level2(GAME_PROPS);
+        MarioBot bot = new MarioBot();
+        ReplayWriter writer = new ReplayWriter(file.getPath(), levelNumber, KEYFRAME_INTERVAL);
+        RecordedControls recorded = new RecordedControls();
+        ArrayList<byte[]> states = new ArrayList<>();
+        boolean isOver = false;
+        while (!isOver) {
+            states.add(captureState(level));
+            bot.update(level);
+            recorded.setMask(RecordedControls.encode(bot));
+            writer.recordFrame(level, recorded.getMask());
+            isOver = level.update(recorded);
+        }
+        states.add(captureState(level));
+        writer.close();
+        writer.awaitCompletion();
+
+        // 2) Seek to the end, then back through every frame
+        ReplayReader reader = new ReplayReader(file.getPath());
+        Level replayed = reader.createLevel(GAME_PROPS);
+        RecordedControls controls = new RecordedControls();
+        int mismatches = 0;
+        int firstMismatch = -1;
+        for (int frame = reader.getFrameCount(); frame >= 0; frame--) {
+            reader.seek(replayed, frame, controls);
+            if (!Arrays.equals(states.get(frame), captureState(replayed))) {
+                mismatches++;
+                firstMismatch = frame;
+            }
+        }
+        reader.close();
+
+        boolean isPassed = mismatches == 0;
+        if (!isPassed) {
+            failures++;
+        }
+        System.out.printf("level %d: %s  %d frames sought backwards  %d mismatched%s%n", levelNumber,
+                isPassed ? "PASS" : "FAIL", reader.getFrameCount() + 1, mismatches,
+                isPassed ? "" : ", earliest at frame " + firstMismatch);
+    }
+
+    /** Writes a level's state to a byte array. */
+    private static byte[] captureState(Level level) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            level.writeState(out);
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Entry point for the check. Exits with status 1 if any level failed.
+     *
+     * @param args Optional path of the properties file to play.
+     */
+    public static void main(String[] args) {
+        Properties gameProps = IOUtils.readPropertiesFile(args.length > 0 ? args[0] : "res/app.properties");
+        ReplaySeekCheck check = new ReplaySeekCheck(gameProps);
+        check.run();
+        System.exit(check.failures > 0 ? 1 : 0);
+    }
+}
@@ -0,0 +1,94 @@
+import bagel.*;
+
+import java.io.IOException;
+import java.util.Properties;
+
+/**
+ * Plays back a replay file recorded by {@link ReplayWriter}.
+ * LEFT and RIGHT jump back and forward by {@code SEEK_FRAMES}; SPACE pauses and resumes playback.
+ *
+ * Usage: {@code java ReplayViewer replayFile}
+ */
+public class ReplayViewer extends AbstractGame {
+
+    /** Frames skipped per seek: 10 seconds at 60 frames per second */
+    private static final int SEEK_FRAMES = 600;
+
+    private final ReplayReader REPLAY;
+    private final Level LEVEL;
+    private final RecordedControls CONTROLS = new RecordedControls();
+    private int frame = 0;
+    private boolean isPaused = false;
+
+    /**
+     * Constructs the viewer window and loads the replay's level at frame 0.
+     *
+     * @param gameProps The properties the replay was recorded with.
+     * @param replay    The replay to play.
+     * @throws IOException If the replay cannot be read.
+     */
+    public ReplayViewer(Properties gameProps, ReplayReader replay) throws IOException {
+        super(Integer.parseInt(gameProps.getProperty("window.width")),
+                Integer.parseInt(gameProps.getProperty("window.height")),
+                "Replay viewer");
+        ShadowDonkeyKong.screenWidth = Integer.parseInt(gameProps.getProperty("window.width"));
+        ShadowDonkeyKong.screenHeight = Integer.parseInt(gameProps.getProperty("window.height"));
+        this.REPLAY = replay;
+        this.LEVEL = replay.createLevel(gameProps);
+        replay.seek(LEVEL, 0, CONTROLS);
+    }
+
+    /**
+     * Handles seeking and plays one recorded frame.
+     *
+     * @param input The current mouse/keyboard input.
+     */
+    @Override
+    protected void update(Input input) {
+        if (input.wasPressed(Keys.ESCAPE)) {
+            Window.close();
+        }
+        try {
+            if (input.wasPressed(Keys.RIGHT)) {
+                frame = Math.min(REPLAY.getFrameCount(), frame + SEEK_FRAMES);
+                REPLAY.seek(LEVEL, frame, CONTROLS);
+            } else if (input.wasPressed(Keys.LEFT)) {
+                frame = Math.max(0, frame - SEEK_FRAMES);
+                REPLAY.seek(LEVEL, frame, CONTROLS);
+            }
+            if (input.wasPressed(Keys.SPACE)) {
+                isPaused = !isPaused;
+            }
+
+            if (!isPaused && frame < REPLAY.getFrameCount()) {
+                CONTROLS.setMask(REPLAY.getInputMask(frame));
+                LEVEL.update(CONTROLS);
+                frame++;
+            }
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            Window.close();
+        }
+    }
+
+    /**
+     * Entry point for the replay viewer.
+     *
+     * @param args The path of the replay file.
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: java ReplayViewer replayFile");
+            System.exit(-1);
+        }
+        Properties gameProps = IOUtils.readPropertiesFile("res/app.properties");
+        try {
+            ReplayReader replay = new ReplayReader(args[0]);
+            Physics.setFixedPoint(replay.isFixedPoint()); // Keyframes can only be read in the recorded mode
+            new ReplayViewer(gameProps, replay).run();
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            System.exit(-1);
+        }
+    }
+}
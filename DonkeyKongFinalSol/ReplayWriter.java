@@ -0,0 +1,199 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.Deflater;
+
+/**
+ * Records a level session to a seekable replay file.
+ *
+ * The session is split into blocks of {@code keyframeInterval} frames. Each block starts with a
+ * keyframe (the level's full state before the block's first frame) followed by the encoded input
+ * of every frame in the block. Blocks are compressed and indexed by their first frame, so a reader
+ * can jump to any frame by restoring one keyframe and simulating at most one block of input.
+ *
+ * File layout: header (magic, version, level number, keyframe interval, fixed-point physics flag), then the blocks
+ * (compressed length, raw length, deflated bytes), then the index (block count, then the first
+ * frame and file offset of each block), then a footer (index offset, frame count, magic).
+ *
+ * Compression and file I/O happen on a background thread. On the game thread, recording a frame
+ * only stores the input in the current block, plus serialising the level state every keyframe.
+ */
+public class ReplayWriter {
+
+    static final int MAGIC = 0x444B5250; // "DKRP"
+    static final int VERSION = 8;
+
+    private final int KEYFRAME_INTERVAL;
+    private final RandomAccessFile FILE;
+    private final LinkedBlockingQueue<Block> QUEUE = new LinkedBlockingQueue<>();
+    private final Thread WRITER_THREAD;
+
+    private Block current;
+    private int frame = 0;
+
+    /** A keyframe and the input recorded after it */
+    private static final class Block {
+        private final int startFrame;
+        private final byte[] keyframe;
+        private final short[] inputs;
+        private int count = 0;
+
+        private Block(int startFrame, byte[] keyframe, int capacity) {
+            this.startFrame = startFrame;
+            this.keyframe = keyframe;
+            this.inputs = new short[capacity];
+        }
+    }
+
+    /** Marks the end of the recording on the queue */
+    private static final Block END = new Block(-1, new byte[0], 0);
+
+    /**
+     * Creates a replay file and starts its background writer.
+     *
+     * @param fileName         Path of the replay file.
+     * @param levelNumber      The level being recorded (1 or 2).
+     * @param keyframeInterval Number of frames between keyframes.
+     * @throws IOException If the file cannot be created.
+     */
+    public ReplayWriter(String fileName, int levelNumber, int keyframeInterval) throws IOException {
+        this.KEYFRAME_INTERVAL = keyframeInterval;
+        this.FILE = new RandomAccessFile(fileName, "rw");
+        FILE.setLength(0);
+        FILE.writeInt(MAGIC);
+        FILE.writeInt(VERSION);
+        FILE.writeInt(levelNumber);
+        FILE.writeInt(keyframeInterval);
+        FILE.writeBoolean(Physics.isFixedPoint());
+
+        // Not a daemon, so a recording that was closed just before exit is still written out
+        WRITER_THREAD = new Thread(this::writeLoop, "replay-writer");
+        WRITER_THREAD.start();
+    }
+
+    /**
+     * Records the input for the frame the level is about to play.
+     * Must be called before each {@link Level#update(Controls)}.
+     *
+     * @param level     The level being recorded.
+     * @param inputMask The frame's input, encoded with {@link RecordedControls#encode(Controls)}.
+     */
+    public void recordFrame(Level level, int inputMask) {
+        if (frame % KEYFRAME_INTERVAL == 0) {
+            if (current != null) {
+                QUEUE.add(current);
+            }
+            current = new Block(frame, captureKeyframe(level), KEYFRAME_INTERVAL);
+        }
+        current.inputs[current.count++] = (short) inputMask;
+        frame++;
+    }
+
+    /**
+     * Finishes the recording. The last block, the index and the footer are written by the
+     * background writer, so this returns immediately; use {@link #awaitCompletion()} to wait for them.
+     */
+    public void close() {
+        if (current != null) {
+            QUEUE.add(current);
+            current = null;
+        }
+        QUEUE.add(END);
+    }
+
+    /**
+     * Waits until a closed recording has been completely written to disk.
+     */
+    public void awaitCompletion() {
+        try {
+            WRITER_THREAD.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Serialises the level state into a keyframe. */
+    private static byte[] captureKeyframe(Level level) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            level.writeState(out);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Could not capture keyframe", ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    /** Body of the writer thread: compresses and writes blocks until the end marker arrives. */
+    private void writeLoop() {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        int[] indexFrames = new int[16];
+        long[] indexOffsets = new long[16];
+        int blockCount = 0;
+        int frameCount = 0;
+
+        try {
+            while (true) {
+                Block block = QUEUE.take();
+                if (block == END) {
+                    break;
+                }
+                if (blockCount == indexFrames.length) {
+                    indexFrames = Arrays.copyOf(indexFrames, blockCount * 2);
+                    indexOffsets = Arrays.copyOf(indexOffsets, blockCount * 2);
+                }
+                indexFrames[blockCount] = block.startFrame;
+                indexOffsets[blockCount] = FILE.getFilePointer();
+                blockCount++;
+                frameCount = block.startFrame + block.count;
+                writeBlock(deflater, block);
+            }
+
+            long indexOffset = FILE.getFilePointer();
+            FILE.writeInt(blockCount);
+            for (int i = 0; i < blockCount; i++) {
+                FILE.writeInt(indexFrames[i]);
+                FILE.writeLong(indexOffsets[i]);
+            }
+            FILE.writeLong(indexOffset);
+            FILE.writeInt(frameCount);
+            FILE.writeInt(MAGIC);
+            FILE.close();
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /** Compresses one block and appends it to the file. */
+    private void writeBlock(Deflater deflater, Block block) throws IOException {
+        ByteArrayOutputStream raw = new ByteArrayOutputStream(block.keyframe.length + block.count * 2 + 8);
+        DataOutputStream out = new DataOutputStream(raw);
+        out.writeInt(block.keyframe.length);
+        out.write(block.keyframe);
+        out.writeInt(block.count);
+        for (int i = 0; i < block.count; i++) {
+            out.writeShort(block.inputs[i]);
+        }
+        byte[] rawBytes = raw.toByteArray();
+
+        deflater.reset();
+        deflater.setInput(rawBytes);
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(rawBytes.length / 2 + 16);
+        byte[] chunk = new byte[4096];
+        while (!deflater.finished()) {
+            int length = deflater.deflate(chunk);
+            compressed.write(chunk, 0, length);
+        }
+
+        FILE.writeInt(compressed.size());
+        FILE.writeInt(rawBytes.length);
+        FILE.write(compressed.toByteArray());
+    }
+}
@@ -0,0 +1,212 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Persistent history of finished runs, stored in an append-only memory-mapped file,
+ * with an in-memory top-K leaderboard per level.
+ *
+ * The file starts with a 16-byte header (magic, version, record count, reserved), followed by
+ * fixed-size records. A record only counts once the header's record count has been bumped,
+ * so a crash mid-write never leaves a half-written run in the history.
+ *
+ * The leaderboard is rebuilt from the log when the store is opened. Every run is logged, but only
+ * runs that scored are ranked: a lost run's final score is 0, and would otherwise fill the
+ * leaderboard with zeros. Each update publishes a new immutable snapshot, so reading the
+ * leaderboard is a single volatile read.
+ * All file I/O runs on a background thread; {@link #record} only enqueues the run.
+ */
+public class RunHistoryStore {
+
+    /** Number of scores kept per level */
+    public static final int TOP_K = 5;
+
+    /** Number of levels with a leaderboard */
+    private static final int LEVEL_COUNT = 2;
+
+    private static final int MAGIC = 0x444B5248; // "DKRH"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int COUNT_OFFSET = 8;
+    private static final int RECORD_SIZE = 32;
+    private static final int INITIAL_CAPACITY = 256; // records
+
+    private final Path PATH;
+    private final ExecutorService WRITER;
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int recordCount = 0;
+
+    /** Leaderboard snapshot, indexed by level - 1; replaced as a whole on every update */
+    private volatile int[][] topScores = new int[LEVEL_COUNT][0];
+    private volatile int version = 0;
+
+    /**
+     * Opens (or creates) the history file and rebuilds the leaderboard from it.
+     * If the file cannot be opened, the store still works but keeps nothing on disk.
+     *
+     * @param fileName Path of the history file.
+     */
+    public RunHistoryStore(String fileName) {
+        this.PATH = Paths.get(fileName);
+        this.WRITER = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "run-history-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            openLog();
+            rebuildIndex();
+        } catch (IOException | RuntimeException ex) {
+            // An unreadable history file must not stop the game from starting
+            ex.printStackTrace();
+            channel = null;
+            buffer = null;
+        }
+    }
+
+    /**
+     * Records a finished run. Returns immediately; the run is written on a background thread.
+     *
+     * @param level            Level number (1 or 2).
+     * @param finalScore       Final score shown on the end screen.
+     * @param barrelsDestroyed Number of barrels destroyed.
+     * @param barrelsJumped    Number of barrels jumped over.
+     * @param monkeysDestroyed Number of monkeys destroyed.
+     * @param secondsLeft      Seconds left when the level ended.
+     */
+    public void record(int level, int finalScore, int barrelsDestroyed, int barrelsJumped,
+                       int monkeysDestroyed, int secondsLeft) {
+        long timestamp = System.currentTimeMillis();
+        WRITER.execute(() -> {
+            append(level, finalScore, barrelsDestroyed, barrelsJumped, monkeysDestroyed, secondsLeft, timestamp);
+            updateIndex(level, finalScore);
+        });
+    }
+
+    /**
+     * Gets the best scores for a level, highest first.
+     *
+     * @param level Level number (1 or 2).
+     * @return Up to {@link #TOP_K} scores. The array must not be modified.
+     */
+    public int[] getTopScores(int level) {
+        return topScores[level - 1];
+    }
+
+    /**
+     * Gets a number that changes every time the leaderboard changes, so callers can cache
+     * anything they derive from it.
+     *
+     * @return The leaderboard version.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Maps the log file, writing a fresh header if it is new or unrecognised. A record count that
+     * does not fit the file, as left by truncation or corruption, is clamped to the records it holds.
+     */
+    private void openLog() throws IOException {
+        channel = FileChannel.open(PATH, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = Math.max(channel.size(), HEADER_SIZE + (long) INITIAL_CAPACITY * RECORD_SIZE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(COUNT_OFFSET, 0);
+            buffer.putInt(12, 0);
+        }
+        recordCount = buffer.getInt(COUNT_OFFSET);
+        int maxRecords = (buffer.capacity() - HEADER_SIZE) / RECORD_SIZE;
+        if (recordCount < 0 || recordCount > maxRecords) {
+            recordCount = Math.max(0, Math.min(recordCount, maxRecords));
+            buffer.putInt(COUNT_OFFSET, recordCount);
+        }
+    }
+
+    /** Scans every record in the log and builds the leaderboard snapshot. */
+    private void rebuildIndex() {
+        int[][] scores = new int[LEVEL_COUNT][0];
+        for (int i = 0; i < recordCount; i++) {
+            int offset = HEADER_SIZE + i * RECORD_SIZE;
+            int level = buffer.getInt(offset);
+            int finalScore = buffer.getInt(offset + 4);
+            if (level >= 1 && level <= LEVEL_COUNT && isRanked(finalScore)) {
+                scores[level - 1] = insert(scores[level - 1], finalScore);
+            }
+        }
+        topScores = scores;
+        version++;
+    }
+
+    /** Writes one record at the end of the log, growing the mapping if it is full. Writer thread only. */
+    private void append(int level, int finalScore, int barrelsDestroyed, int barrelsJumped,
+                        int monkeysDestroyed, int secondsLeft, long timestamp) {
+        if (buffer == null) {
+            return;
+        }
+        try {
+            int offset = HEADER_SIZE + recordCount * RECORD_SIZE;
+            if (offset + RECORD_SIZE > buffer.capacity()) {
+                buffer.force();
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) buffer.capacity() * 2);
+            }
+            buffer.putInt(offset, level);
+            buffer.putInt(offset + 4, finalScore);
+            buffer.putInt(offset + 8, barrelsDestroyed);
+            buffer.putInt(offset + 12, barrelsJumped);
+            buffer.putInt(offset + 16, monkeysDestroyed);
+            buffer.putInt(offset + 20, secondsLeft);
+            buffer.putLong(offset + 24, timestamp);
+
+            // Commit the record by bumping the count only after it has been written
+            recordCount++;
+            buffer.putInt(COUNT_OFFSET, recordCount);
+            buffer.force();
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    /** Publishes a new leaderboard snapshot containing the score, if it is ranked. Writer thread only. */
+    private void updateIndex(int level, int finalScore) {
+        if (level < 1 || level > LEVEL_COUNT || !isRanked(finalScore)) {
+            return;
+        }
+        int[][] scores = topScores.clone();
+        scores[level - 1] = insert(scores[level - 1], finalScore);
+        topScores = scores;
+        version++;
+    }
+
+    /** Checks whether a run's score belongs on the leaderboard; lost runs score 0 and do not. */
+    private static boolean isRanked(int finalScore) {
+        return finalScore > 0;
+    }
+
+    /** Returns a copy of a descending top-K array with the score inserted in place. */
+    private static int[] insert(int[] scores, int score) {
+        int position = 0;
+        while (position < scores.length && scores[position] >= score) {
+            position++;
+        }
+        if (position >= TOP_K) {
+            return scores;
+        }
+        int[] result = Arrays.copyOf(scores, Math.min(TOP_K, scores.length + 1));
+        System.arraycopy(scores, position, result, position + 1, result.length - position - 1);
+        result[position] = score;
+        return result;
+    }
+}
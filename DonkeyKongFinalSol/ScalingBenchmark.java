@@ -0,0 +1,106 @@
+import bagel.*;
+
+import java.util.Properties;
+
+/**
+ * Measures Level 2 ticks per second on generated stress arenas of increasing size.
+ * Each step multiplies the base entity counts by the step number, so the output can be
+ * plotted directly as a scaling curve. Results are printed as CSV, together with the mean
+ * work and critical path of a tick as measured by the level's {@link SystemScheduler}; their
+ * ratio bounds the speed-up running independent systems concurrently could give.
+ *
+ * Like {@link HotPathBenchmark}, all runs happen headless inside the first frame of a bagel window.
+ *
+ * Usage: {@code java ScalingBenchmark [steps] [ticksPerStep] [seed]}
+ */
+public class ScalingBenchmark extends AbstractGame {
+
+    /** Entity counts at step 1; step n uses n times these counts */
+    private static final int BASE_BARRELS = 1000;
+    private static final int BASE_MONKEYS = 200;
+    private static final int BASE_PLATFORM_TILES = 500;
+
+    private static final int WARMUP_TICKS = 200;
+
+    private final Properties GAME_PROPS;
+    private final int STEPS;
+    private final int TICKS_PER_STEP;
+    private final long SEED;
+    private boolean hasRun = false;
+
+    /**
+     * Constructs the benchmark window using the window size from the game properties.
+     *
+     * @param gameProps    Base game properties the arenas are generated from.
+     * @param steps        Number of arena sizes to measure.
+     * @param ticksPerStep Number of measured ticks for each arena.
+     * @param seed         Seed passed to {@link StressArenaGenerator}.
+     */
+    public ScalingBenchmark(Properties gameProps, int steps, int ticksPerStep, long seed) {
+        super(Integer.parseInt(gameProps.getProperty("window.width")),
+                Integer.parseInt(gameProps.getProperty("window.height")),
+                "Scaling benchmark");
+        this.GAME_PROPS = gameProps;
+        this.STEPS = steps;
+        this.TICKS_PER_STEP = ticksPerStep;
+        this.SEED = seed;
+        ShadowDonkeyKong.screenWidth = Integer.parseInt(gameProps.getProperty("window.width"));
+        ShadowDonkeyKong.screenHeight = Integer.parseInt(gameProps.getProperty("window.height"));
+        ShadowDonkeyKong.setHeadless(true);
+    }
+
+    /**
+     * Runs every arena size on the first frame, then closes the window.
+     *
+     * @param input The current mouse/keyboard input (unused; levels run with no keys held).
+     */
+    @Override
+    protected void update(Input input) {
+        if (hasRun) {
+            return;
+        }
+        hasRun = true;
+        Controls controls = new RecordedControls(); // No keys held
+
+        System.out.println("barrels,monkeys,platforms,ticksPerSecond,workMicros,criticalPathMicros");
+        for (int step = 1; step <= STEPS; step++) {
+            int barrels = BASE_BARRELS * step;
+            int monkeys = BASE_MONKEYS * step;
+            int tiles = BASE_PLATFORM_TILES * step;
+            Properties arena = StressArenaGenerator.generate(GAME_PROPS, barrels, monkeys, tiles, SEED);
+            // Keep the clock from ending the level while it is being measured
+            arena.setProperty("gamePlay.maxFrames", String.valueOf(Integer.MAX_VALUE));
+
+            Level2 level = new Level2(arena);
+            for (int i = 0; i < WARMUP_TICKS; i++) {
+                level.update(controls);
+            }
+            long workNanos = 0;
+            long criticalPathNanos = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < TICKS_PER_STEP; i++) {
+                level.update(controls);
+                workNanos += level.getScheduler().getWorkNanos();
+                criticalPathNanos += level.getScheduler().getCriticalPathNanos();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d,%d,%d,%.1f,%.1f,%.1f%n", barrels, monkeys, tiles, TICKS_PER_STEP / seconds,
+                    workNanos / 1e3 / TICKS_PER_STEP, criticalPathNanos / 1e3 / TICKS_PER_STEP);
+        }
+
+        Window.close();
+    }
+
+    /**
+     * Entry point for the scaling benchmark.
+     *
+     * @param args Optional number of steps, ticks per step and seed.
+     */
+    public static void main(String[] args) {
+        Properties gameProps = IOUtils.readPropertiesFile("res/app.properties");
+        int steps = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42L;
+        new ScalingBenchmark(gameProps, steps, ticks, seed).run();
+    }
+}
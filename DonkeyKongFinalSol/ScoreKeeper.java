@@ -0,0 +1,118 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Keeps the running score and the per-run statistics of a level by listening to gameplay events.
+ * This is the single place where scoring weights are applied, both for the in-game score
+ * and for the final score shown on the {@link GameEndScreen}.
+ */
+public class ScoreKeeper implements GameEventListener {
+
+    private int score = 0;
+    private int barrelsDestroyed = 0;
+    private int barrelsJumped = 0;
+    private int monkeysDestroyed = 0;
+    private int donkeyHits = 0;
+    private int itemsCollected = 0;
+
+    /**
+     * Updates the score and statistics for one event.
+     *
+     * @param type  The type of the event.
+     * @param value The event's value.
+     */
+    @Override
+    public void onEvent(GameEventType type, int value) {
+        switch (type) {
+            case BARREL_JUMPED:
+                barrelsJumped++;
+                score += Level.BARREL_CROSS_SCORE;
+                break;
+            case BARREL_DESTROYED:
+                barrelsDestroyed++;
+                score += Level.BARREL_SCORE;
+                break;
+            case MONKEY_DESTROYED:
+                monkeysDestroyed++;
+                score += Level.MONKEY_SCORE;
+                break;
+            case DONKEY_HIT:
+                donkeyHits++;
+                break;
+            case ITEM_COLLECTED:
+                itemsCollected++;
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Computes the final score for a finished run.
+     *
+     * @param barrelsDestroyed Number of barrels destroyed.
+     * @param barrelsJumped    Number of barrels jumped over.
+     * @param monkeysDestroyed Number of monkeys destroyed.
+     * @param secondsLeft      Seconds remaining when the level ended.
+     * @param isWon            Whether the level was won; a lost run scores 0.
+     * @return The final score.
+     */
+    public static int computeFinalScore(int barrelsDestroyed, int barrelsJumped, int monkeysDestroyed,
+                                        int secondsLeft, boolean isWon) {
+        if (!isWon) {
+            return 0;
+        }
+        return Level.BARREL_SCORE * barrelsDestroyed
+                + Level.BARREL_CROSS_SCORE * barrelsJumped
+                + Level.TIME_SCORE * secondsLeft
+                + Level.MONKEY_SCORE * monkeysDestroyed;
+    }
+
+    /**
+     * Sets the score, e.g. to carry it over from a previous level.
+     *
+     * @param score The new score.
+     */
+    public void setScore(int score) {
+        this.score = score;
+    }
+
+    /**
+     * Writes the score and statistics for a replay keyframe.
+     *
+     * @param out The stream to write to.
+     * @throws IOException If writing fails.
+     */
+    public void writeState(DataOutput out) throws IOException {
+        out.writeInt(score);
+        out.writeInt(barrelsDestroyed);
+        out.writeInt(barrelsJumped);
+        out.writeInt(monkeysDestroyed);
+        out.writeInt(donkeyHits);
+        out.writeInt(itemsCollected);
+    }
+
+    /**
+     * Restores the state written by {@link #writeState(DataOutput)}.
+     *
+     * @param in The stream to read from.
+     * @throws IOException If reading fails.
+     */
+    public void readState(DataInput in) throws IOException {
+        score = in.readInt();
+        barrelsDestroyed = in.readInt();
+        barrelsJumped = in.readInt();
+        monkeysDestroyed = in.readInt();
+        donkeyHits = in.readInt();
+        itemsCollected = in.readInt();
+    }
+
+    /** Getters */
+    public int getScore() { return score; }
+    public int getBarrelsDestroyed() { return barrelsDestroyed; }
+    public int getBarrelsJumped() { return barrelsJumped; }
+    public int getMonkeysDestroyed() { return monkeysDestroyed; }
+    public int getDonkeyHits() { return donkeyHits; }
+    public int getItemsCollected() { return itemsCollected; }
+}
@@ -1,4 +1,7 @@
 import bagel.*;
+
+import java.io.File;
+import java.io.IOException;
 import java.util.Properties;
 
 /**
@@ -16,7 +19,13 @@ public class ShadowDonkeyKong extends AbstractGame {
 
     private HomeScreen homeScreen;
     private Level currentLevel;
+    private int currentLevelNumber;
     private GameEndScreen gameEndScreen;
+    private final KeyboardControls CONTROLS = new KeyboardControls();
+    private ReplayWriter replayWriter; // Records the current level when replay.directory is set
+    private GhostRecorder ghostRecorder; // Records Mario's track for the current run
+    private GhostPlayer ghostPlayer;     // Replays the best recorded track for the current level
+    private final RunHistoryStore RUN_HISTORY;
 
     public static double screenWidth;
 
@@ -24,6 +33,8 @@ public class ShadowDonkeyKong extends AbstractGame {
 
     private int persistentScore = 0;  // Store score between levels
 
+    private static boolean headless = false; // Skip all drawing when simulating without rendering
+
 
     /**
      * Constructs a new instance of the ShadowDonkeyKong game.
@@ -44,7 +55,8 @@ public class ShadowDonkeyKong extends AbstractGame {
         this.screenWidth = Integer.parseInt(gameProps.getProperty("window.width"));
         this.screenHeight = Integer.parseInt(gameProps.getProperty("window.height"));
 
-        homeScreen = new HomeScreen(GAME_PROPS, MESSAGE_PROPS);
+        RUN_HISTORY = new RunHistoryStore(gameProps.getProperty("history.file", "run_history.dat"));
+        homeScreen = new HomeScreen(GAME_PROPS, MESSAGE_PROPS, RUN_HISTORY);
     }
 
 
@@ -62,18 +74,30 @@ public class ShadowDonkeyKong extends AbstractGame {
         if (currentLevel == null && gameEndScreen == null) {
             if (homeScreen.update(input)) {
                 int selected = homeScreen.getSelectedLevel();
+                currentLevelNumber = selected;
                 if (selected==1){
                     currentLevel = new Level1(GAME_PROPS);
                 } else if (selected==2){
                     currentLevel=new Level2(GAME_PROPS);
                     currentLevel.setInitialScore(persistentScore);
                 }
+                startReplay();
+                startGhost();
             }
         }
         // Gameplay Screen
         else if (currentLevel != null && gameEndScreen == null) {
             // The gameplay ended
-            if (currentLevel.update(input)) {
+            CONTROLS.setInput(input);
+            if (replayWriter != null) {
+                replayWriter.recordFrame(currentLevel, RecordedControls.encode(CONTROLS));
+            }
+            boolean isOver = currentLevel.update(CONTROLS);
+            ghostRecorder.record(currentLevel.getMario().getX(), currentLevel.getMario().getY());
+            if (ghostPlayer != null) {
+                ghostPlayer.update();
+            }
+            if (isOver) {
                 boolean isWon = currentLevel.isLevelCompleted();
 
                 // 1) GET THE SCORE
@@ -93,7 +117,15 @@ public class ShadowDonkeyKong extends AbstractGame {
                     isWon
                 );
 
-                // 4) Nullify gameplay
+                // 4) Keep this run's ghost if it beat the best run so far, then record the run
+                //    in the persistent history (both written in the background)
+                saveGhost(isWon, gameEndScreen.getFinalScore());
+                RUN_HISTORY.record(currentLevelNumber, gameEndScreen.getFinalScore(),
+                        currentLevel.getBarrelsDestroyed(), currentLevel.getBarrelsJumped(),
+                        currentLevel.getMonkeysDestroyed(), timeRemaining);
+
+                // 5) Nullify gameplay
+                stopReplay();
                 currentLevel = null;
             }
 
@@ -107,6 +139,88 @@ public class ShadowDonkeyKong extends AbstractGame {
         }
     }
 
+    /**
+     * Starts recording the current level if the {@code replay.directory} property is set.
+     * Each run is written to its own file named after the level and the start time.
+     */
+    private void startReplay() {
+        String directory = GAME_PROPS.getProperty("replay.directory");
+        if (directory == null || currentLevel == null) {
+            return;
+        }
+        int keyframeInterval = Integer.parseInt(GAME_PROPS.getProperty("replay.keyframeInterval", "300"));
+        File file = new File(directory, "level" + currentLevelNumber + "_" + System.currentTimeMillis() + ".dkr");
+        try {
+            file.getParentFile().mkdirs();
+            replayWriter = new ReplayWriter(file.getPath(), currentLevelNumber, keyframeInterval);
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            replayWriter = null;
+        }
+    }
+
+    /**
+     * Stops recording the current level, if it is being recorded. The rest of the file is written
+     * in the background.
+     *
+     * @return The stopped recording, or {@code null} if there was none.
+     */
+    private synchronized ReplayWriter stopReplay() {
+        ReplayWriter writer = replayWriter;
+        if (writer != null) {
+            writer.close();
+            replayWriter = null;
+        }
+        return writer;
+    }
+
+    /**
+     * Finishes a recording cut short by the game closing mid-level, and waits until it is written,
+     * so the file still gets its index and footer and the writer thread does not keep the process alive.
+     */
+    private void finishReplayOnExit() {
+        ReplayWriter writer = stopReplay();
+        if (writer != null) {
+            writer.awaitCompletion();
+        }
+    }
+
+    /**
+     * Starts recording Mario's track and loads the ghost of the best run for the current level, if any.
+     */
+    private void startGhost() {
+        ghostRecorder = new GhostRecorder();
+        ghostPlayer = GhostPlayer.open(getGhostFileName());
+    }
+
+    /**
+     * Saves the finished run's track as the level's ghost if it was won with a new best score.
+     *
+     * @param isWon      Whether the run was won.
+     * @param finalScore The run's final score.
+     */
+    private void saveGhost(boolean isWon, int finalScore) {
+        int[] topScores = RUN_HISTORY.getTopScores(currentLevelNumber);
+        if (isWon && (topScores.length == 0 || finalScore > topScores[0])) {
+            ghostRecorder.saveAsync(getGhostFileName());
+        }
+        if (ghostPlayer != null) {
+            ghostPlayer.close();
+            ghostPlayer = null;
+        }
+        ghostRecorder = null;
+    }
+
+    /**
+     * Gets the path of the ghost file for the current level.
+     *
+     * @return The ghost file path.
+     */
+    private String getGhostFileName() {
+        String directory = GAME_PROPS.getProperty("ghost.directory", "ghosts");
+        return new File(directory, "level" + currentLevelNumber + ".ghost").getPath();
+    }
+
     /**
      * Retrieves the width of the game screen.
      *
@@ -125,6 +239,25 @@ public class ShadowDonkeyKong extends AbstractGame {
         return screenHeight;
     }
 
+    /**
+     * Checks whether the game is running headless, in which case entities skip their draw calls.
+     *
+     * @return {@code true} if drawing is disabled, {@code false} otherwise.
+     */
+    public static boolean isHeadless() {
+        return headless;
+    }
+
+    /**
+     * Enables or disables headless mode. Used by benchmarks and tools that simulate levels
+     * without rendering them.
+     *
+     * @param status {@code true} to skip all drawing, {@code false} to draw normally.
+     */
+    public static void setHeadless(boolean status) {
+        headless = status;
+    }
+
     /**
      * The main entry point of the Shadow Donkey Kong game.
      *
@@ -136,8 +269,16 @@ public class ShadowDonkeyKong extends AbstractGame {
     public static void main(String[] args) {
         Properties gameProps = IOUtils.readPropertiesFile("res/app.properties");
         Properties messageProps = IOUtils.readPropertiesFile("res/message.properties");
+        GameLogger.configure(gameProps);
+        Physics.configure(gameProps);
         ShadowDonkeyKong game = new ShadowDonkeyKong(gameProps, messageProps);
-        game.run();
+        // Closing the window, with ESC or otherwise, can end the game mid-level
+        Runtime.getRuntime().addShutdownHook(new Thread(game::finishReplayOnExit, "replay-finisher"));
+        try {
+            game.run();
+        } finally {
+            game.finishReplayOnExit();
+        }
     }
 
 
@@ -2,6 +2,10 @@ import bagel.*;
 import java.util.Properties;
 import bagel.util.Rectangle;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 public abstract class Shootable {
     protected double x, y;
 
@@ -28,11 +32,11 @@ public abstract class Shootable {
      */
     public void updatePosition() {
         if ("right".equals(direction)) {
-            x += speed;
+            x = Physics.add(x, speed);
         } else if ("left".equals(direction)) {
-            x -= speed;
+            x = Physics.add(x, -speed);
         }
-        distanceTraveled += speed;
+        distanceTraveled = Physics.add(distanceTraveled, speed);
     }
 
 
@@ -49,6 +53,7 @@ public abstract class Shootable {
      * Draws the projectile on the screen.
      */
     public void draw() {
+        if (ShadowDonkeyKong.isHeadless()) return;
         projectileImage.draw(x, y);
     }
 
@@ -73,6 +78,38 @@ public abstract class Shootable {
         return y;
     }
 
+    /**
+     * Gets the direction the projectile travels in.
+     *
+     * @return "left" or "right".
+     */
+    public String getDirection() {
+        return direction;
+    }
+
+    /**
+     * Writes the projectile's state for a replay keyframe.
+     * The direction is written too, so the projectile can be recreated from the stream.
+     *
+     * @param out The stream to write to.
+     * @throws IOException If writing fails.
+     */
+    public void writeState(DataOutput out) throws IOException {
+        Physics.writeValue(out, x);
+        Physics.writeValue(out, y);
+        out.writeBoolean("right".equals(direction));
+        Physics.writeValue(out, distanceTraveled);
+    }
+
+    /**
+     * Restores the distance travelled of a projectile recreated from a replay keyframe.
+     *
+     * @param distanceTraveled Distance already travelled.
+     */
+    public void setDistanceTraveled(double distanceTraveled) {
+        this.distanceTraveled = distanceTraveled;
+    }
+
 
 
     public abstract void update();  // Let subclasses define behavior per frame
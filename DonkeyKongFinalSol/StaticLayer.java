@@ -0,0 +1,136 @@
+import bagel.Image;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Caches a level's scenery, i.e. the background, the platforms and the ladders once they have
+ * settled, as a single image, so it is drawn with one call per frame instead of one per sprite.
+ *
+ * bagel only loads images from files, so the scenery is composed in memory from the sprite files
+ * with AWT, written to a temporary PNG and loaded from there. The layer remembers the positions it
+ * was composed from and is composed again only if they change, e.g. when a keyframe restores
+ * ladders elsewhere. While any ladder is still falling, or if composing fails, the level draws
+ * its scenery sprite by sprite as before.
+ */
+public class StaticLayer {
+
+    static {
+        // Composing needs no display; keep AWT from trying to open one next to the game window
+        if (System.getProperty("java.awt.headless") == null) {
+            System.setProperty("java.awt.headless", "true");
+        }
+    }
+
+    private final String BACKGROUND_FILE;
+
+    private Image layer;                // The composed scenery, or null before the first composition
+    private File layerFile;             // The temporary file the layer was loaded from
+    private long signature;             // The positions the layer was composed from
+    private boolean isUnavailable = false; // Composing failed, so the scenery is always drawn sprite by sprite
+
+    /**
+     * Creates an empty layer.
+     *
+     * @param backgroundFile The background image's file; the layer is the size of this image.
+     */
+    public StaticLayer(String backgroundFile) {
+        this.BACKGROUND_FILE = backgroundFile;
+    }
+
+    /**
+     * Draws the whole scenery as one image, composing it first if the platforms or ladders moved.
+     *
+     * @param platforms The level's platforms.
+     * @param ladders   The level's ladders.
+     * @return {@code true} if the scenery was drawn; {@code false} if a ladder is still falling or
+     *         the layer cannot be composed, and the caller must draw the scenery itself.
+     */
+    public boolean draw(Platform[] platforms, Ladder[] ladders) {
+        if (isUnavailable) {
+            return false;
+        }
+        for (Ladder ladder : ladders) {
+            if (ladder != null && !ladder.hasLanded()) {
+                return false;
+            }
+        }
+
+        long current = signatureOf(platforms, ladders);
+        if (layer == null || current != signature) {
+            try {
+                compose(platforms, ladders);
+                signature = current;
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Drawing the scenery sprite by sprite: " + e.getMessage());
+                isUnavailable = true;
+                return false;
+            }
+        }
+        layer.drawFromTopLeft(0, 0);
+        return true;
+    }
+
+    /** Draws the background, platforms and ladders into a new image and loads it as the layer. */
+    private void compose(Platform[] platforms, Ladder[] ladders) throws IOException {
+        BufferedImage background = ImageIO.read(new File(BACKGROUND_FILE));
+        BufferedImage platformImage = ImageIO.read(new File(Platform.IMAGE_FILE));
+        BufferedImage ladderImage = ImageIO.read(new File(Ladder.IMAGE_FILE));
+        if (background == null || platformImage == null || ladderImage == null) {
+            throw new IOException("a scenery image could not be decoded");
+        }
+
+        BufferedImage canvas = new BufferedImage(background.getWidth(), background.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = canvas.createGraphics();
+        try {
+            graphics.drawImage(background, 0, 0, null);
+            for (Platform platform : platforms) {
+                if (platform != null) drawCentered(graphics, platformImage, platform.getX(), platform.getY());
+            }
+            for (Ladder ladder : ladders) {
+                if (ladder != null) drawCentered(graphics, ladderImage, ladder.getX(), ladder.getY());
+            }
+        } finally {
+            graphics.dispose();
+        }
+
+        File file = File.createTempFile("scenery", ".png");
+        file.deleteOnExit();
+        ImageIO.write(canvas, "png", file);
+        layer = new Image(file.getPath());
+
+        // The previous layer has been replaced, so its file is no longer needed
+        if (layerFile != null) {
+            layerFile.delete();
+        }
+        layerFile = file;
+    }
+
+    /** Draws a sprite centered on a point, as {@link Image#draw(double, double)} does. */
+    private static void drawCentered(Graphics2D graphics, BufferedImage sprite, double x, double y) {
+        int left = (int) Math.round(x - sprite.getWidth() / 2.0);
+        int top = (int) Math.round(y - sprite.getHeight() / 2.0);
+        graphics.drawImage(sprite, left, top, null);
+    }
+
+    /** Combines every platform and ladder position into one value that changes when any of them moves. */
+    private static long signatureOf(Platform[] platforms, Ladder[] ladders) {
+        long signature = platforms.length * 31L + ladders.length;
+        for (Platform platform : platforms) {
+            if (platform != null) {
+                signature = signature * 31 + Double.doubleToLongBits(platform.getX());
+                signature = signature * 31 + Double.doubleToLongBits(platform.getY());
+            }
+        }
+        for (Ladder ladder : ladders) {
+            if (ladder != null) {
+                signature = signature * 31 + Double.doubleToLongBits(ladder.getX());
+                signature = signature * 31 + Double.doubleToLongBits(ladder.getY());
+            }
+        }
+        return signature;
+    }
+}
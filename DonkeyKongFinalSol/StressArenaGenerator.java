@@ -0,0 +1,187 @@
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Generates large Level 2 configurations ("stress arenas") for scaling tests.
+ * The output uses the same keys as {@code res/app.properties}, so the result can be passed
+ * straight to {@link Level2} or written to a file and loaded like the shipped configuration.
+ *
+ * Platform tiles are laid out in evenly spaced rows. Once every slot on screen is taken,
+ * further tiles are stacked onto existing slots so the geometry stays playable.
+ * Barrels and monkeys are dropped above random tiles, so they always land on a platform.
+ * The same seed always produces the same arena.
+ */
+public class StressArenaGenerator {
+
+    /** Horizontal distance between neighbouring platform tiles */
+    private static final int TILE_WIDTH = 40;
+
+    /** Vertical distance between rows of platforms */
+    private static final int ROW_SPACING = 100;
+
+    /** Gap left between the bottom row and the bottom of the screen */
+    private static final int BOTTOM_MARGIN = 10;
+
+    /** Distance above a platform at which entities are dropped */
+    private static final int DROP_HEIGHT = 40;
+
+    /** Number of ladders generated between each pair of rows */
+    private static final int LADDERS_PER_ROW = 2;
+
+    /** Route segment lengths for generated monkeys are picked from this range */
+    private static final int MIN_ROUTE = 40;
+    private static final int MAX_ROUTE = 160;
+
+    private StressArenaGenerator() {
+    }
+
+    /**
+     * Builds a Level 2 configuration with the given entity counts.
+     * All keys not related to Level 2 entity placement are copied from {@code baseProps}.
+     *
+     * @param baseProps     Base game properties, used for window size, fonts and timing.
+     * @param barrelCount   Number of barrels to generate.
+     * @param monkeyCount   Number of monkeys to generate, split evenly between normal and intelligent.
+     * @param platformTiles Number of platform tiles to generate.
+     * @param seed          Seed for the random placement.
+     * @return A new {@link Properties} object describing the arena.
+     */
+    public static Properties generate(Properties baseProps, int barrelCount, int monkeyCount,
+                                      int platformTiles, long seed) {
+        Properties props = new Properties();
+        props.putAll(baseProps);
+        Random random = new Random(seed);
+
+        int width = Integer.parseInt(baseProps.getProperty("window.width"));
+        int height = Integer.parseInt(baseProps.getProperty("window.height"));
+        int columns = Math.max(1, width / TILE_WIDTH);
+        int rows = Math.max(1, (height - BOTTOM_MARGIN) / ROW_SPACING);
+        int tiles = Math.max(columns, platformTiles); // Always keep a full floor
+
+        // 1) Platforms: fill the floor first, then the rows above it
+        double[] tileX = new double[tiles];
+        double[] tileY = new double[tiles];
+        StringBuilder platforms = new StringBuilder();
+        for (int i = 0; i < tiles; i++) {
+            int slot = i % (columns * rows);
+            tileX[i] = columnX(slot % columns);
+            tileY[i] = rowY(slot / columns, height);
+            if (i > 0) {
+                platforms.append(';');
+            }
+            platforms.append(format(tileX[i])).append(',').append(format(tileY[i]));
+        }
+        props.setProperty("platforms.level2", platforms.toString());
+        int filledRows = Math.min(rows, (tiles + columns - 1) / columns);
+
+        // 2) Ladders: dropped above the lower row of each pair of rows so they settle on it
+        int ladderCount = (filledRows - 1) * LADDERS_PER_ROW;
+        props.setProperty("ladder.level2.count", String.valueOf(ladderCount));
+        for (int i = 0; i < ladderCount; i++) {
+            int row = i / LADDERS_PER_ROW;
+            double x = columnX(random.nextInt(columns));
+            double y = rowY(row, height) - ROW_SPACING / 2.0;
+            props.setProperty("ladder.level2." + (i + 1), format(x) + "," + format(y));
+        }
+
+        // 3) Barrels
+        props.setProperty("barrel.level2.count", String.valueOf(barrelCount));
+        for (int i = 0; i < barrelCount; i++) {
+            int tile = random.nextInt(tiles);
+            props.setProperty("barrel.level2." + (i + 1),
+                    format(tileX[tile]) + "," + format(tileY[tile] - DROP_HEIGHT));
+        }
+
+        // 4) Monkeys, half normal and half intelligent
+        int normalCount = (monkeyCount + 1) / 2;
+        int intelligentCount = monkeyCount - normalCount;
+        props.setProperty("normalMonkey.level2.count", String.valueOf(normalCount));
+        props.setProperty("intelligentMonkey.level2.count", String.valueOf(intelligentCount));
+        for (int i = 0; i < monkeyCount; i++) {
+            int tile = random.nextInt(tiles);
+            String direction = random.nextBoolean() ? "right" : "left";
+            String route = randomRoute(random);
+            String value = format(tileX[tile]) + "," + format(tileY[tile] - DROP_HEIGHT)
+                    + ";" + direction + ";" + route;
+            if (i < normalCount) {
+                props.setProperty("normalMonkey.level2." + (i + 1), value);
+            } else {
+                props.setProperty("intelligentMonkey.level2." + (i - normalCount + 1), value);
+            }
+        }
+
+        // 5) Mario starts on the floor at the left, Donkey Kong on the top row at the right
+        props.setProperty("mario.level2", format(columnX(0)) + "," + format(rowY(0, height) - DROP_HEIGHT));
+        props.setProperty("donkey.level2",
+                format(columnX(columns - 1)) + "," + format(rowY(filledRows - 1, height) - DROP_HEIGHT));
+
+        // 6) One hammer and one blaster on random tiles
+        int hammerTile = random.nextInt(tiles);
+        props.setProperty("hammer.level2.1",
+                format(tileX[hammerTile]) + "," + format(tileY[hammerTile] - DROP_HEIGHT));
+        int blasterTile = random.nextInt(tiles);
+        props.setProperty("blaster.level2.count", "1");
+        props.setProperty("blaster.level2.1",
+                format(tileX[blasterTile]) + "," + format(tileY[blasterTile] - DROP_HEIGHT));
+
+        return props;
+    }
+
+    /** Creates a comma-separated monkey route of two to four segments. */
+    private static String randomRoute(Random random) {
+        int segments = 2 + random.nextInt(3);
+        StringBuilder route = new StringBuilder();
+        for (int i = 0; i < segments; i++) {
+            if (i > 0) {
+                route.append(',');
+            }
+            route.append(MIN_ROUTE + random.nextInt(MAX_ROUTE - MIN_ROUTE + 1));
+        }
+        return route.toString();
+    }
+
+    /** X-coordinate of the centre of a platform column. */
+    private static double columnX(int column) {
+        return TILE_WIDTH / 2.0 + column * TILE_WIDTH;
+    }
+
+    /** Y-coordinate of a platform row, counted upwards from the floor. */
+    private static double rowY(int row, int screenHeight) {
+        return screenHeight - BOTTOM_MARGIN - row * ROW_SPACING;
+    }
+
+    /** Formats a coordinate without a trailing ".0" to match the shipped configuration. */
+    private static String format(double value) {
+        return value == Math.rint(value) ? String.valueOf((long) value) : String.valueOf(value);
+    }
+
+    /**
+     * Writes a stress arena to a properties file.
+     * Usage: {@code java StressArenaGenerator barrels monkeys platformTiles seed [outputFile]}
+     *
+     * @param args Entity counts, seed and an optional output path (defaults to {@code res/stress.properties}).
+     */
+    public static void main(String[] args) {
+        if (args.length < 4) {
+            System.err.println("Usage: java StressArenaGenerator barrels monkeys platformTiles seed [outputFile]");
+            System.exit(-1);
+        }
+        Properties baseProps = IOUtils.readPropertiesFile("res/app.properties");
+        Properties arena = generate(baseProps,
+                Integer.parseInt(args[0]),
+                Integer.parseInt(args[1]),
+                Integer.parseInt(args[2]),
+                Long.parseLong(args[3]));
+
+        String outputFile = args.length > 4 ? args[4] : "res/stress.properties";
+        try (OutputStream out = new FileOutputStream(outputFile)) {
+            arena.store(out, "Stress arena seed=" + args[3]);
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            System.exit(-1);
+        }
+    }
+}
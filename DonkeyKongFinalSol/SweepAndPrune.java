@@ -0,0 +1,134 @@
+import bagel.util.Rectangle;
+
+/**
+ * Finds which of a fixed set of targets a box overlaps, by sweeping targets sorted along x.
+ *
+ * Targets are kept in order of their left edge. Since they move a little each frame, re-sorting
+ * with insertion sort costs close to one pass. A query binary-searches the first target whose
+ * left edge could reach the box, then sweeps right until left edges pass the box's right edge,
+ * so it only tests the targets that share the box's x-range. Overlap is tested as
+ * {@link Rectangle#intersects} tests it: boxes that only touch do not overlap.
+ *
+ * Targets are identified by their index in the caller's own array. A target set empty, e.g. a
+ * destroyed monkey, sorts to the end and is never found.
+ */
+public class SweepAndPrune {
+
+    private final double[] LEFT;
+    private final double[] RIGHT;
+    private final double[] TOP;
+    private final double[] BOTTOM;
+    private final int[] ORDER; // Target indices sorted by left edge
+    private double maxWidth = 0; // Widest non-empty target as of the last sort
+
+    /**
+     * Creates an index for a fixed number of targets, all empty.
+     *
+     * @param targetCount The number of targets.
+     */
+    public SweepAndPrune(int targetCount) {
+        this.LEFT = new double[targetCount];
+        this.RIGHT = new double[targetCount];
+        this.TOP = new double[targetCount];
+        this.BOTTOM = new double[targetCount];
+        this.ORDER = new int[targetCount];
+        for (int i = 0; i < targetCount; i++) {
+            ORDER[i] = i;
+            setEmpty(i);
+        }
+    }
+
+    /**
+     * Moves a target's box. Takes effect for queries after the next {@link #sort()}.
+     *
+     * @param target The target's index.
+     */
+    public void set(int target, double left, double top, double right, double bottom) {
+        LEFT[target] = left;
+        TOP[target] = top;
+        RIGHT[target] = right;
+        BOTTOM[target] = bottom;
+    }
+
+    /**
+     * Removes a target from queries, after the next {@link #sort()}.
+     *
+     * @param target The target's index.
+     */
+    public void setEmpty(int target) {
+        // An infinite left edge sorts last and is never left of a query's right edge
+        LEFT[target] = Double.POSITIVE_INFINITY;
+        RIGHT[target] = Double.POSITIVE_INFINITY;
+        TOP[target] = Double.NaN;
+        BOTTOM[target] = Double.NaN;
+    }
+
+    /**
+     * Restores the left-edge order after targets moved, and measures the widest target.
+     */
+    public void sort() {
+        for (int i = 1; i < ORDER.length; i++) {
+            int target = ORDER[i];
+            double left = LEFT[target];
+            int j = i - 1;
+            while (j >= 0 && LEFT[ORDER[j]] > left) {
+                ORDER[j + 1] = ORDER[j];
+                j--;
+            }
+            ORDER[j + 1] = target;
+        }
+
+        maxWidth = 0;
+        for (int i = 0; i < ORDER.length; i++) {
+            int target = ORDER[i];
+            if (LEFT[target] == Double.POSITIVE_INFINITY) {
+                break; // Only empty targets are left
+            }
+            maxWidth = Math.max(maxWidth, RIGHT[target] - LEFT[target]);
+        }
+    }
+
+    /**
+     * Finds every target a box overlaps.
+     *
+     * @param box  The box to test.
+     * @param hits Receives the overlapped targets' indices, in no particular order;
+     *             must be as long as the number of targets.
+     * @return The number of targets written to {@code hits}.
+     */
+    public int query(Rectangle box, int[] hits) {
+        double queryLeft = box.left();
+        double queryTop = box.top();
+        double queryRight = box.right();
+        double queryBottom = box.bottom();
+
+        // A target reaches the box only if its left edge is within its width of the box;
+        // the extra pixel keeps rounding in that bound from skipping a target
+        int hitCount = 0;
+        for (int i = firstAtOrAfter(queryLeft - maxWidth - 1); i < ORDER.length; i++) {
+            int target = ORDER[i];
+            if (LEFT[target] >= queryRight) {
+                break; // Every target from here on starts right of the box
+            }
+            if (queryLeft < RIGHT[target] && queryTop < BOTTOM[target] && queryBottom > TOP[target]) {
+                hits[hitCount++] = target;
+            }
+        }
+        return hitCount;
+    }
+
+    /** Binary-searches the first sorted position whose left edge is at least {@code value}. */
+    private int firstAtOrAfter(double value) {
+        int low = 0;
+        int high = ORDER.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (LEFT[ORDER[middle]] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
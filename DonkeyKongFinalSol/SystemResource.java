@@ -0,0 +1,41 @@
+/**
+ * The pieces of level state a {@link GameSystem} can read or write.
+ * Two systems that share a resource, with at least one of them writing it, never run at the same time.
+ */
+public enum SystemResource {
+    PLATFORMS,
+    LADDERS,
+    NAVIGATION,       // The level's navigation graph
+    BARRELS,
+    BARREL_CONTACTS,  // This tick's contact of each live barrel with Mario
+    MONKEYS,
+    MONKEY_CONTACTS,  // This tick's contact of each live monkey with Mario
+    CHASE_ROUTES,     // The chase planner's routes and its view of Mario
+    BANANAS,
+    BANANA_HITS,      // Whether a banana hit Mario this tick
+    BULLETS,
+    MARIO,
+    DONKEY,
+    HAMMER,
+    BLASTERS,
+    INPUT,
+    EVENTS,           // The event bus, the score it feeds and the game log
+    COMMANDS,         // The tick's command buffer
+    LEVEL_STATE,      // Frame count, game over, death cause and level completion
+    HUD_TEXT,         // The text the HUD shows, rebuilt from the score, time, health and bullets
+    SCREEN;           // Drawing; only written while a window is shown
+
+    /**
+     * Packs resources into a bit mask, one bit per ordinal.
+     *
+     * @param resources The resources.
+     * @return The mask.
+     */
+    public static long maskOf(Iterable<SystemResource> resources) {
+        long mask = 0;
+        for (SystemResource resource : resources) {
+            mask |= 1L << resource.ordinal();
+        }
+        return mask;
+    }
+}
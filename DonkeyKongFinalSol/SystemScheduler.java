@@ -0,0 +1,274 @@
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs a level's systems each tick, in parallel where their declared reads and writes allow it.
+ *
+ * Systems are added in the order the level would run them one after another. Each tick the scheduler
+ * builds a dependency graph over the systems active that tick: a system depends on every earlier one
+ * it conflicts with. Conflicting systems therefore keep their order and the others touch disjoint
+ * state, so results match running the systems in order exactly, whichever ran first.
+ *
+ * Systems only run concurrently, on the common pool, when the scheduler is made concurrent and the
+ * game runs headless; drawing must stay on the window's thread and in order. Either way each system
+ * is timed and the tick's critical path, the longest chain of dependent systems, is reported: the
+ * shortest the tick could take with enough threads.
+ *
+ * Systems below {@link FrameBudgetGovernor.Priority#ESSENTIAL} priority are left to the level's
+ * governor, which may skip them in a frame running over budget. When run in order, each system
+ * is also charged to the level's {@link AllocationTracker} as a phase.
+ */
+public class SystemScheduler {
+
+    /** Dependencies are kept as bit masks over system indices */
+    private static final int MAX_SYSTEMS = Long.SIZE;
+
+    private final ArrayList<GameSystem> systems = new ArrayList<>();
+    private final boolean IS_CONCURRENT;
+    private final FrameBudgetGovernor GOVERNOR;
+    private final AllocationTracker ALLOCATIONS;
+
+    private long[] conflicts = new long[0]; // Per system, the earlier systems it conflicts with
+    private long conflictsIgnored = -1;     // The resources left out when conflicts were last found
+    private long graphActive = -1;          // The active systems the dependency graph was last built for
+    private long[] dependencies = new long[0];
+    private long[] dependents = new long[0];
+    private long[] durations = new long[0];
+    private long[] finish = new long[0];  // Per system, the longest chain of durations ending with it
+    private int[] previous = new int[0];  // Per system, the dependency on that chain, or -1
+
+    private long criticalPathNanos = 0;
+    private long workNanos = 0;
+    private int criticalPathEnd = -1;
+
+    private AtomicIntegerArray pending;
+    private CountDownLatch unfinished;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    /**
+     * Creates an empty scheduler.
+     *
+     * @param isConcurrent Whether independent systems may run at the same time when the game runs headless.
+     * @param governor     The governor deciding whether deferrable systems run.
+     * @param allocations  The tracker each system's allocations are charged to.
+     */
+    public SystemScheduler(boolean isConcurrent, FrameBudgetGovernor governor, AllocationTracker allocations) {
+        this.IS_CONCURRENT = isConcurrent;
+        this.GOVERNOR = governor;
+        this.ALLOCATIONS = allocations;
+    }
+
+    /**
+     * Adds a system after the existing ones.
+     *
+     * @param system The system.
+     */
+    public void add(GameSystem system) {
+        if (systems.size() == MAX_SYSTEMS) {
+            throw new IllegalStateException("A scheduler holds at most " + MAX_SYSTEMS + " systems");
+        }
+        systems.add(system);
+        int count = systems.size();
+        dependencies = new long[count];
+        dependents = new long[count];
+        durations = new long[count];
+        finish = new long[count];
+        previous = new int[count];
+        pending = new AtomicIntegerArray(count);
+        conflictsIgnored = -1;
+        graphActive = -1;
+    }
+
+    /**
+     * Runs one tick of every active system and measures its critical path.
+     */
+    public void run() {
+        boolean isHeadless = ShadowDonkeyKong.isHeadless();
+        // Draw order only matters while something is drawn
+        long ignored = isHeadless ? 1L << SystemResource.SCREEN.ordinal() : 0;
+        if (ignored != conflictsIgnored) {
+            findConflicts(ignored);
+            graphActive = -1;
+        }
+
+        boolean isConcurrent = IS_CONCURRENT && isHeadless;
+        long active = 0;
+        for (int i = 0; i < systems.size(); i++) {
+            durations[i] = 0;
+            GameSystem system = systems.get(i);
+            // Concurrent ticks ask the governor up front; sequential ones ask as each system comes up
+            if (system.isActive() && (!isConcurrent || GOVERNOR.shouldRun(system.getPriority()))) {
+                active |= 1L << i;
+            }
+        }
+        if (active != graphActive) {
+            buildGraph(active);
+            graphActive = active;
+        }
+
+        if (isConcurrent) {
+            runConcurrently(active);
+        } else {
+            // One clock reading ends each system and starts the next
+            long start = System.nanoTime();
+            for (int i = 0; i < systems.size(); i++) {
+                GameSystem system = systems.get(i);
+                if ((active & (1L << i)) != 0 && GOVERNOR.shouldRun(system.getPriority())) {
+                    system.run();
+                    long end = System.nanoTime();
+                    durations[i] = end - start;
+                    if (ALLOCATIONS.isEnabled()) {
+                        ALLOCATIONS.endPhase(system.getName());
+                        end = System.nanoTime(); // Leave the tracker's own reading out of the next system
+                    }
+                    start = end;
+                }
+            }
+        }
+        measureCriticalPath(active);
+    }
+
+    /** Finds, for every system, the earlier systems it conflicts with. */
+    private void findConflicts(long ignored) {
+        conflicts = new long[systems.size()];
+        for (int i = 0; i < systems.size(); i++) {
+            for (int j = 0; j < i; j++) {
+                if (systems.get(i).conflictsWith(systems.get(j), ignored)) {
+                    conflicts[i] |= 1L << j;
+                }
+            }
+        }
+        conflictsIgnored = ignored;
+    }
+
+    /** Keeps the conflicts between active systems as this tick's dependency graph. */
+    private void buildGraph(long active) {
+        for (int i = 0; i < systems.size(); i++) {
+            dependents[i] = 0;
+        }
+        for (int i = 0; i < systems.size(); i++) {
+            dependencies[i] = (active & (1L << i)) != 0 ? conflicts[i] & active : 0;
+            for (long rest = dependencies[i]; rest != 0; rest &= rest - 1) {
+                dependents[Long.numberOfTrailingZeros(rest)] |= 1L << i;
+            }
+        }
+    }
+
+    /**
+     * Starts every system without dependencies on the common pool; each finished system starts the
+     * dependents it was the last to wait for. Returns once all have finished, rethrowing the first failure.
+     */
+    private void runConcurrently(long active) {
+        failure.set(null);
+        unfinished = new CountDownLatch(Long.bitCount(active));
+        for (long rest = active; rest != 0; rest &= rest - 1) {
+            int i = Long.numberOfTrailingZeros(rest);
+            pending.set(i, Long.bitCount(dependencies[i]));
+        }
+        for (long rest = active; rest != 0; rest &= rest - 1) {
+            int i = Long.numberOfTrailingZeros(rest);
+            if (dependencies[i] == 0) {
+                start(i);
+            }
+        }
+
+        boolean isInterrupted = false;
+        while (true) {
+            try {
+                unfinished.await();
+                break;
+            } catch (InterruptedException e) {
+                isInterrupted = true; // The tick must still finish before the level is touched again
+            }
+        }
+        if (isInterrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        Throwable thrown = failure.get();
+        if (thrown instanceof RuntimeException) {
+            throw (RuntimeException) thrown;
+        }
+        if (thrown instanceof Error) {
+            throw (Error) thrown;
+        }
+    }
+
+    /** Runs a system on the common pool, then releases its dependents. */
+    private void start(int i) {
+        ForkJoinPool.commonPool().execute(() -> {
+            try {
+                if (failure.get() == null) { // After a failure the rest of the tick is skipped
+                    runTimed(i);
+                }
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                for (long rest = dependents[i]; rest != 0; rest &= rest - 1) {
+                    int dependent = Long.numberOfTrailingZeros(rest);
+                    if (pending.decrementAndGet(dependent) == 0) {
+                        start(dependent);
+                    }
+                }
+                unfinished.countDown();
+            }
+        });
+    }
+
+    /** Runs a system and records how long it took. */
+    private void runTimed(int i) {
+        long start = System.nanoTime();
+        systems.get(i).run();
+        durations[i] = System.nanoTime() - start;
+    }
+
+    /** Finds the longest chain of dependent systems by their durations this tick. */
+    private void measureCriticalPath(long active) {
+        int last = -1;
+        workNanos = 0;
+        // Dependencies always point to earlier systems, so one pass in order suffices
+        for (int i = 0; i < systems.size(); i++) {
+            if ((active & (1L << i)) == 0) {
+                continue;
+            }
+            previous[i] = -1;
+            for (long rest = dependencies[i]; rest != 0; rest &= rest - 1) {
+                int j = Long.numberOfTrailingZeros(rest);
+                if (previous[i] == -1 || finish[j] > finish[previous[i]]) {
+                    previous[i] = j;
+                }
+            }
+            finish[i] = durations[i] + (previous[i] == -1 ? 0 : finish[previous[i]]);
+            workNanos += durations[i];
+            if (last == -1 || finish[i] > finish[last]) {
+                last = i;
+            }
+        }
+        criticalPathEnd = last;
+        criticalPathNanos = last == -1 ? 0 : finish[last];
+    }
+
+    /**
+     * Gets the last tick's critical path, e.g. {@code "gravity > barrelContacts > barrelRules"}.
+     *
+     * @return The systems on the path, in order, or an empty string before the first tick.
+     */
+    public String getCriticalPath() {
+        if (criticalPathEnd == -1) {
+            return "";
+        }
+        StringBuilder path = new StringBuilder(systems.get(criticalPathEnd).getName());
+        for (int i = previous[criticalPathEnd]; i != -1; i = previous[i]) {
+            path.insert(0, systems.get(i).getName() + " > ");
+        }
+        return path.toString();
+    }
+
+    /** Getters */
+    public long getCriticalPathNanos() { return criticalPathNanos; }
+    public long getWorkNanos() { return workNanos; }
+    public boolean isConcurrent() { return IS_CONCURRENT; }
+}
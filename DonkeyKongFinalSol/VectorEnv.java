@@ -0,0 +1,440 @@
+import bagel.Keys;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+
+/**
+ * A batch of headless levels stepped together, for training agents.
+ *
+ * {@link #reset(long)} starts every environment, then each {@link #step(int[])} applies one discrete
+ * action per environment and advances them all by one frame. Results are written into arrays that
+ * are allocated once and overwritten by every call:
+ * <ul>
+ *     <li>observations: {@link #OBS_SIZE} floats per environment, laid out back to back;</li>
+ *     <li>rewards: the score gained this step. When an episode ends the reward also settles the
+ *     difference to {@link ScoreKeeper#computeFinalScore}, so an episode's rewards add up to the score
+ *     the game would award: the time bonus on a win, and minus everything gained on a loss;</li>
+ *     <li>done flags: whether the episode ended this step. A finished environment is reset straight
+ *     away, so its observation is already the first one of the next episode.</li>
+ * </ul>
+ *
+ * Environments are split into contiguous slices, one per thread. The calling thread steps the first
+ * slice and persistent worker threads step the rest; they meet at a barrier before and after each step.
+ * Stepping allocates nothing of its own, although the levels still allocate what they do in the game.
+ *
+ * Levels, and the images they load, are created in the constructor, which must therefore run on
+ * the thread that owns the graphics context. Everything is simulated headless.
+ */
+public class VectorEnv {
+
+    /** Discrete actions, as indices into {@link #ACTION_MASKS} */
+    public static final int NOOP = 0;
+    public static final int LEFT = 1;
+    public static final int RIGHT = 2;
+    public static final int UP = 3;
+    public static final int DOWN = 4;
+    public static final int JUMP = 5;
+    public static final int LEFT_JUMP = 6;
+    public static final int RIGHT_JUMP = 7;
+    public static final int SHOOT = 8;
+    public static final int ACTION_COUNT = 9;
+
+    /** Number of barrels, monkeys and projectiles observed, nearest first */
+    public static final int NEAREST = 4;
+
+    /** Observation layout; positions are offsets from Mario scaled by the screen size */
+    private static final int MARIO_FEATURES = 5;      // x, y, holds hammer, bullets, fraction of time left
+    private static final int DONKEY_FEATURES = 3;     // dx, dy, health
+    private static final int HAMMER_FEATURES = 3;     // dx, dy, not yet collected
+    private static final int ENTITY_FEATURES = 3;     // dx, dy, present
+    private static final int PROJECTILE_FEATURES = 4; // dx, dy, present, thrown by a monkey
+    public static final int OBS_SIZE = MARIO_FEATURES + DONKEY_FEATURES + HAMMER_FEATURES
+            + NEAREST * ENTITY_FEATURES * 2 + NEAREST * PROJECTILE_FEATURES;
+
+    /** Most no-op frames played at the start of an episode, so the environments drift apart */
+    private static final int MAX_NOOP_FRAMES = 60;
+
+    /** Control masks for each action */
+    private static final int[] ACTION_MASKS = {
+            0,
+            RecordedControls.maskOf(Keys.LEFT, false),
+            RecordedControls.maskOf(Keys.RIGHT, false),
+            RecordedControls.maskOf(Keys.UP, false),
+            RecordedControls.maskOf(Keys.DOWN, false),
+            RecordedControls.maskOf(Keys.SPACE, true),
+            RecordedControls.maskOf(Keys.LEFT, false) | RecordedControls.maskOf(Keys.SPACE, true),
+            RecordedControls.maskOf(Keys.RIGHT, false) | RecordedControls.maskOf(Keys.SPACE, true),
+            RecordedControls.maskOf(Keys.S, true)
+    };
+
+    private final int ENV_COUNT;
+    private final Env[] ENVS;
+    private final float[] OBSERVATIONS;
+    private final float[] REWARDS;
+    private final boolean[] DONES;
+    private final int[] ACTIONS;
+    private final double SCREEN_WIDTH;
+    private final double SCREEN_HEIGHT;
+
+    private final int THREAD_COUNT;
+    private final CyclicBarrier START_BARRIER;
+    private final CyclicBarrier END_BARRIER;
+    private final Thread[] WORKERS;
+    private volatile boolean isClosed = false;
+    private volatile RuntimeException failure;
+
+    /**
+     * Creates the environments and starts the worker threads.
+     *
+     * @param gameProps   Game configuration the levels are created from.
+     * @param levelNumber The level played, 1 or 2.
+     * @param envCount    Number of environments stepped together.
+     * @param threadCount Number of threads stepping them, including the caller.
+     */
+    public VectorEnv(Properties gameProps, int levelNumber, int envCount, int threadCount) {
+        this.ENV_COUNT = envCount;
+        this.ENVS = new Env[envCount];
+        this.OBSERVATIONS = new float[envCount * OBS_SIZE];
+        this.REWARDS = new float[envCount];
+        this.DONES = new boolean[envCount];
+        this.ACTIONS = new int[envCount];
+        this.SCREEN_WIDTH = ShadowDonkeyKong.getScreenWidth();
+        this.SCREEN_HEIGHT = ShadowDonkeyKong.getScreenHeight();
+        ShadowDonkeyKong.setHeadless(true);
+
+        // 1) Load every image the levels may create mid-game while still on the graphics thread
+        Monkey.preloadImages();
+        new Bullet(0, 0, "right");
+        new Banana(0, 0, "right");
+
+        // 2) Create the levels and remember the starting state they are reset to
+        byte[] startState = null;
+        for (int i = 0; i < envCount; i++) {
+            Level level = levelNumber == 1 ? new Level1(gameProps) : new Level2(gameProps);
+            if (startState == null) {
+                startState = captureState(level);
+            }
+            ENVS[i] = new Env(level, startState);
+        }
+
+        // 3) Start one worker per slice after the caller's
+        this.THREAD_COUNT = Math.max(1, Math.min(threadCount, envCount));
+        this.START_BARRIER = new CyclicBarrier(THREAD_COUNT);
+        this.END_BARRIER = new CyclicBarrier(THREAD_COUNT);
+        this.WORKERS = new Thread[THREAD_COUNT - 1];
+        for (int i = 0; i < WORKERS.length; i++) {
+            int slice = i + 1;
+            WORKERS[i] = new Thread(() -> workerLoop(slice), "vector-env-" + slice);
+            WORKERS[i].setDaemon(true);
+            WORKERS[i].start();
+        }
+    }
+
+    /**
+     * Starts a new episode in every environment.
+     * Each environment plays a number of no-op frames drawn from the seed first, and later episodes
+     * draw theirs from the same sequence, so a run is reproducible from its seed and actions.
+     *
+     * @param seed Seed for the no-op starts.
+     * @return The observations of the first frame, {@link #OBS_SIZE} floats per environment.
+     */
+    public float[] reset(long seed) {
+        for (int i = 0; i < ENV_COUNT; i++) {
+            ENVS[i].RANDOM.setSeed(seed + i * 0x9E3779B97F4A7C15L);
+            ENVS[i].startEpisode();
+            writeObservation(i);
+            REWARDS[i] = 0;
+            DONES[i] = false;
+        }
+        return OBSERVATIONS;
+    }
+
+    /**
+     * Applies one action to every environment and advances them all by one frame.
+     * Rewards and done flags are available from {@link #getRewards()} and {@link #getDones()} afterwards.
+     *
+     * @param actions One action per environment, each between 0 and {@link #ACTION_COUNT} - 1.
+     * @return The observations after the step, {@link #OBS_SIZE} floats per environment.
+     */
+    public float[] step(int[] actions) {
+        if (isClosed) {
+            throw new IllegalStateException("Environment is closed");
+        }
+        System.arraycopy(actions, 0, ACTIONS, 0, ENV_COUNT);
+        await(START_BARRIER);
+        stepSlice(0);
+        await(END_BARRIER);
+
+        RuntimeException error = failure;
+        if (error != null) {
+            failure = null;
+            throw new IllegalStateException("Environment step failed", error);
+        }
+        return OBSERVATIONS;
+    }
+
+    /**
+     * Stops the worker threads. The environment cannot be stepped afterwards.
+     */
+    public void close() {
+        if (isClosed) {
+            return;
+        }
+        isClosed = true;
+        if (WORKERS.length > 0) {
+            await(START_BARRIER); // Wakes the workers, which see the flag and exit
+        }
+    }
+
+    /** Getters */
+    public int getEnvCount() { return ENV_COUNT; }
+    public int getThreadCount() { return THREAD_COUNT; }
+    public float[] getObservations() { return OBSERVATIONS; }
+    public float[] getRewards() { return REWARDS; }
+    public boolean[] getDones() { return DONES; }
+
+    /**
+     * Gets the controls an action holds, for driving a level directly with the same actions.
+     *
+     * @param action An action between 0 and {@link #ACTION_COUNT} - 1.
+     * @return A bitmask for {@link RecordedControls#setMask(int)}.
+     */
+    public static int getActionMask(int action) {
+        return ACTION_MASKS[action];
+    }
+
+    /** Body of a worker thread: steps its slice whenever the caller starts a step. */
+    private void workerLoop(int slice) {
+        while (true) {
+            await(START_BARRIER);
+            if (isClosed) {
+                return;
+            }
+            stepSlice(slice);
+            await(END_BARRIER);
+        }
+    }
+
+    /** Steps the environments of one slice, recording the first failure for the caller. */
+    private void stepSlice(int slice) {
+        int from = (int) ((long) ENV_COUNT * slice / THREAD_COUNT);
+        int to = (int) ((long) ENV_COUNT * (slice + 1) / THREAD_COUNT);
+        try {
+            for (int i = from; i < to; i++) {
+                stepEnv(i);
+            }
+        } catch (RuntimeException ex) {
+            failure = ex;
+        }
+    }
+
+    /** Steps one environment, resetting it if its episode ends. */
+    private void stepEnv(int index) {
+        Env env = ENVS[index];
+        Level level = env.LEVEL;
+        env.CONTROLS.setMask(ACTION_MASKS[ACTIONS[index]]);
+        boolean isOver = level.update(env.CONTROLS);
+
+        int score = level.getScore();
+        float reward = score - env.lastScore;
+        env.lastScore = score;
+        if (isOver) {
+            // Settle to the score the game awards, so the episode's rewards add up to it
+            int finalScore = ScoreKeeper.computeFinalScore(level.getBarrelsDestroyed(), level.getBarrelsJumped(),
+                    level.getMonkeysDestroyed(), level.getSecondsLeft(), level.isLevelCompleted());
+            reward += finalScore - score;
+            env.startEpisode();
+        }
+        REWARDS[index] = reward;
+        DONES[index] = isOver;
+        writeObservation(index);
+    }
+
+    /** Writes the observation of one environment into its slot of the observation array. */
+    private void writeObservation(int index) {
+        Env env = ENVS[index];
+        Level level = env.LEVEL;
+        Mario mario = level.getMario();
+        double marioX = mario.getX();
+        double marioY = mario.getY();
+        float[] obs = OBSERVATIONS;
+        int offset = index * OBS_SIZE;
+
+        // 1) Mario
+        obs[offset++] = (float) (marioX / SCREEN_WIDTH);
+        obs[offset++] = (float) (marioY / SCREEN_HEIGHT);
+        obs[offset++] = mario.holdHammer() ? 1 : 0;
+        obs[offset++] = mario.getTotalBullets();
+        obs[offset++] = env.startSeconds > 0 ? (float) level.getSecondsLeft() / env.startSeconds : 0;
+
+        // 2) Donkey and the hammer
+        Donkey donkey = level.getDonkey();
+        obs[offset++] = (float) ((donkey.getX() - marioX) / SCREEN_WIDTH);
+        obs[offset++] = (float) ((donkey.getY() - marioY) / SCREEN_HEIGHT);
+        obs[offset++] = donkey.getHealth();
+        Hammer hammer = level.getHammer();
+        boolean hasHammerLeft = !hammer.isCollected();
+        obs[offset++] = hasHammerLeft ? (float) ((hammer.getX() - marioX) / SCREEN_WIDTH) : 0;
+        obs[offset++] = hasHammerLeft ? (float) ((hammer.getY() - marioY) / SCREEN_HEIGHT) : 0;
+        obs[offset++] = hasHammerLeft ? 1 : 0;
+
+        // 3) Nearest barrels
+        env.clearNearest();
+        for (Barrel barrel : level.getBarrels()) {
+            if (!barrel.isDestroyed()) {
+                env.offer(barrel.getX() - marioX, barrel.getY() - marioY, 0);
+            }
+        }
+        offset = env.writeNearest(obs, offset, false, SCREEN_WIDTH, SCREEN_HEIGHT);
+
+        // 4) Nearest monkeys, then nearest projectiles; level 1 has neither
+        env.clearNearest();
+        if (level instanceof Level2) {
+            for (Monkey monkey : ((Level2) level).getMonkeys()) {
+                if (!monkey.isDestroyed()) {
+                    env.offer(monkey.getX() - marioX, monkey.getY() - marioY, 0);
+                }
+            }
+        }
+        offset = env.writeNearest(obs, offset, false, SCREEN_WIDTH, SCREEN_HEIGHT);
+
+        env.clearNearest();
+        if (level instanceof Level2) {
+            ProjectileStore<Banana> bananas = ((Level2) level).getBananas();
+            for (int i = 0; i < bananas.size(); i++) {
+                Banana banana = bananas.get(i);
+                env.offer(banana.getX() - marioX, banana.getY() - marioY, 1);
+            }
+            ProjectileStore<Bullet> bullets = ((Level2) level).getBullets();
+            for (int i = 0; i < bullets.size(); i++) {
+                Bullet bullet = bullets.get(i);
+                env.offer(bullet.getX() - marioX, bullet.getY() - marioY, 0);
+            }
+        }
+        env.writeNearest(obs, offset, true, SCREEN_WIDTH, SCREEN_HEIGHT);
+    }
+
+    /** Writes a level's state to a byte array. */
+    private static byte[] captureState(Level level) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            level.writeState(out);
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    /** Waits at a barrier, turning interruption into an unchecked failure. */
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        } catch (BrokenBarrierException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * One environment: its level, its controls and the scratch space used to build its observation.
+     * Only the thread stepping the environment's slice touches it during a step.
+     */
+    private static final class Env {
+        private final Level LEVEL;
+        private final RecordedControls CONTROLS = new RecordedControls();
+        private final Random RANDOM = new Random();
+
+        // Rewinding this stream restores the starting state without allocating a new one
+        private final ByteArrayInputStream START_BYTES;
+        private final DataInputStream START_STATE;
+
+        // The nearest entities offered so far, closest first
+        private final double[] NEAREST_DISTANCE = new double[NEAREST];
+        private final double[] NEAREST_DX = new double[NEAREST];
+        private final double[] NEAREST_DY = new double[NEAREST];
+        private final float[] NEAREST_FLAG = new float[NEAREST];
+        private int nearestCount = 0;
+
+        private int lastScore = 0;
+        private int startSeconds = 0;
+
+        private Env(Level level, byte[] startState) {
+            this.LEVEL = level;
+            this.START_BYTES = new ByteArrayInputStream(startState);
+            this.START_STATE = new DataInputStream(START_BYTES);
+        }
+
+        /** Restores the starting state, then plays a random number of no-op frames. */
+        private void startEpisode() {
+            restoreStart();
+            CONTROLS.setMask(0);
+            int noopFrames = RANDOM.nextInt(MAX_NOOP_FRAMES + 1);
+            for (int i = 0; i < noopFrames; i++) {
+                if (LEVEL.update(CONTROLS)) {
+                    restoreStart(); // Too dangerous to wait; start from the beginning instead
+                    break;
+                }
+            }
+            lastScore = LEVEL.getScore();
+            startSeconds = LEVEL.getSecondsLeft();
+        }
+
+        private void restoreStart() {
+            START_BYTES.reset();
+            try {
+                LEVEL.readState(START_STATE);
+            } catch (IOException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+
+        private void clearNearest() {
+            nearestCount = 0;
+        }
+
+        /** Keeps an entity if it is among the {@link #NEAREST} closest offered so far. */
+        private void offer(double dx, double dy, float flag) {
+            double distance = dx * dx + dy * dy;
+            int slot = nearestCount;
+            while (slot > 0 && NEAREST_DISTANCE[slot - 1] > distance) {
+                if (slot < NEAREST) {
+                    NEAREST_DISTANCE[slot] = NEAREST_DISTANCE[slot - 1];
+                    NEAREST_DX[slot] = NEAREST_DX[slot - 1];
+                    NEAREST_DY[slot] = NEAREST_DY[slot - 1];
+                    NEAREST_FLAG[slot] = NEAREST_FLAG[slot - 1];
+                }
+                slot--;
+            }
+            if (slot < NEAREST) {
+                NEAREST_DISTANCE[slot] = distance;
+                NEAREST_DX[slot] = dx;
+                NEAREST_DY[slot] = dy;
+                NEAREST_FLAG[slot] = flag;
+                nearestCount = Math.min(nearestCount + 1, NEAREST);
+            }
+        }
+
+        /** Writes the kept entities, padding empty slots with zeros, and returns the next offset. */
+        private int writeNearest(float[] obs, int offset, boolean withFlag, double width, double height) {
+            for (int i = 0; i < NEAREST; i++) {
+                boolean isPresent = i < nearestCount;
+                obs[offset++] = isPresent ? (float) (NEAREST_DX[i] / width) : 0;
+                obs[offset++] = isPresent ? (float) (NEAREST_DY[i] / height) : 0;
+                obs[offset++] = isPresent ? 1 : 0;
+                if (withFlag) {
+                    obs[offset++] = isPresent ? NEAREST_FLAG[i] : 0;
+                }
+            }
+            return offset;
+        }
+    }
+}
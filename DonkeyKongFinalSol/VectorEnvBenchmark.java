@@ -0,0 +1,128 @@
+import bagel.*;
+
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Measures the throughput of a {@link VectorEnv} driven by random actions.
+ * Prints environment steps per second and per hour, plus the episodes finished and their mean return.
+ *
+ * Like {@link HotPathBenchmark}, everything runs headless inside the first frame of a bagel window,
+ * since the levels' images need a graphics context to load.
+ *
+ * Usage: {@code java VectorEnvBenchmark [level] [envCount] [threadCount] [steps] [seed]}
+ */
+public class VectorEnvBenchmark extends AbstractGame {
+
+    private static final int WARMUP_STEPS = 500;
+
+    private final Properties GAME_PROPS;
+    private final int LEVEL_NUMBER;
+    private final int ENV_COUNT;
+    private final int THREAD_COUNT;
+    private final int STEPS;
+    private final long SEED;
+    private boolean hasRun = false;
+
+    /**
+     * Constructs the benchmark window using the window size from the game properties.
+     *
+     * @param gameProps   Game configuration properties.
+     * @param levelNumber The level played, 1 or 2.
+     * @param envCount    Number of environments stepped together.
+     * @param threadCount Number of threads stepping them.
+     * @param steps       Number of measured batch steps.
+     * @param seed        Seed for the no-op starts and the random actions.
+     */
+    public VectorEnvBenchmark(Properties gameProps, int levelNumber, int envCount, int threadCount,
+                              int steps, long seed) {
+        super(Integer.parseInt(gameProps.getProperty("window.width")),
+                Integer.parseInt(gameProps.getProperty("window.height")),
+                "Vector environment benchmark");
+        this.GAME_PROPS = gameProps;
+        this.LEVEL_NUMBER = levelNumber;
+        this.ENV_COUNT = envCount;
+        this.THREAD_COUNT = threadCount;
+        this.STEPS = steps;
+        this.SEED = seed;
+        ShadowDonkeyKong.screenWidth = Integer.parseInt(gameProps.getProperty("window.width"));
+        ShadowDonkeyKong.screenHeight = Integer.parseInt(gameProps.getProperty("window.height"));
+        ShadowDonkeyKong.setHeadless(true);
+    }
+
+    /**
+     * Runs the benchmark on the first frame, then closes the window.
+     *
+     * @param input The current mouse/keyboard input (unused).
+     */
+    @Override
+    protected void update(Input input) {
+        if (hasRun) {
+            return;
+        }
+        hasRun = true;
+        GameLogger.setLevel(GameLogger.LogLevel.OFF);
+
+        VectorEnv env = new VectorEnv(GAME_PROPS, LEVEL_NUMBER, ENV_COUNT, THREAD_COUNT);
+        Random random = new Random(SEED);
+        int[] actions = new int[ENV_COUNT];
+        double[] returns = new double[ENV_COUNT];
+        int episodes = 0;
+        double totalReturn = 0;
+
+        env.reset(SEED);
+        for (int i = 0; i < WARMUP_STEPS; i++) {
+            randomActions(random, actions);
+            env.step(actions);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < STEPS; i++) {
+            randomActions(random, actions);
+            env.step(actions);
+            float[] rewards = env.getRewards();
+            boolean[] dones = env.getDones();
+            for (int j = 0; j < ENV_COUNT; j++) {
+                returns[j] += rewards[j];
+                if (dones[j]) {
+                    totalReturn += returns[j];
+                    returns[j] = 0;
+                    episodes++;
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        env.close();
+
+        double stepsPerSecond = (double) STEPS * ENV_COUNT / seconds;
+        System.out.printf("level %d, %d envs on %d threads%n", LEVEL_NUMBER, ENV_COUNT, env.getThreadCount());
+        System.out.printf("%-20s %14.0f%n", "env steps/s", stepsPerSecond);
+        System.out.printf("%-20s %14.0f%n", "env steps/hour", stepsPerSecond * 3600);
+        System.out.printf("%-20s %14d%n", "episodes", episodes);
+        System.out.printf("%-20s %14.1f%n", "mean return", episodes > 0 ? totalReturn / episodes : 0);
+
+        Window.close();
+    }
+
+    /** Fills the action array with uniformly random actions. */
+    private static void randomActions(Random random, int[] actions) {
+        for (int i = 0; i < actions.length; i++) {
+            actions[i] = random.nextInt(VectorEnv.ACTION_COUNT);
+        }
+    }
+
+    /**
+     * Entry point for the benchmark.
+     *
+     * @param args Optional level, environment count, thread count, measured steps and seed.
+     */
+    public static void main(String[] args) {
+        Properties gameProps = IOUtils.readPropertiesFile("res/app.properties");
+        int levelNumber = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+        int envCount = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int threadCount = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int steps = args.length > 3 ? Integer.parseInt(args[3]) : 2000;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 42L;
+        new VectorEnvBenchmark(gameProps, levelNumber, envCount, threadCount, steps, seed).run();
+    }
+}